@@ -0,0 +1,53 @@
+package com.alvinliu.dbmcp.bench;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SQL inputs shared by the benchmarks: small (one statement), medium (~16 KB script) and large (~10 MB script).
+ * Scripts mix SELECT/INSERT/UPDATE/DELETE, comments and string literals containing semicolons, and hit a few
+ * review keywords so matching and highlighting have work to do.
+ */
+public final class SqlInputs {
+
+    public static final String SMALL = "small";
+    public static final String MEDIUM = "medium";
+    public static final String LARGE = "large";
+
+    /** whole_text_match keywords used by the benchmarks. */
+    public static final List<String> WHOLE_TEXT = Arrays.asList("drop table", "truncate", "execute immediate", "grant");
+    /** command_match keywords used by the benchmarks. */
+    public static final List<String> COMMAND = Arrays.asList("delete", "update", "drop", "alter");
+
+    private static final String[] TEMPLATES = {
+        "SELECT o.id, o.customer_id, c.name, SUM(l.amount) AS total\n"
+            + "  FROM orders o JOIN customers c ON c.id = o.customer_id\n"
+            + "  LEFT JOIN order_lines l ON l.order_id = o.id\n"
+            + " WHERE o.status IN ('NEW', 'PAID') AND o.created_at > DATE '2024-01-01' AND o.id > %d\n"
+            + " GROUP BY o.id, o.customer_id, c.name ORDER BY total DESC",
+        "INSERT INTO audit_events (id, kind, payload) VALUES (%d, 'import', 'a;b;c -- not a comment')",
+        "-- refresh denormalized totals\nUPDATE customers SET order_count = order_count + 1, note = 'it''s; fine' WHERE id = %d",
+        "DELETE FROM session_tokens WHERE expires_at < CURRENT_TIMESTAMP AND user_id = %d",
+        "/* nightly */ SELECT COUNT(*) FROM events e WHERE e.kind = 'truncate' AND e.id BETWEEN %d AND 1000000",
+    };
+
+    private SqlInputs() {}
+
+    /** SQL text for the given size name. */
+    public static String sql(String size) {
+        switch (size) {
+            case SMALL: return String.format(TEMPLATES[2], 1);
+            case MEDIUM: return script(16 * 1024);
+            case LARGE: return script(10 * 1024 * 1024);
+            default: throw new IllegalArgumentException("unknown size: " + size);
+        }
+    }
+
+    private static String script(int targetChars) {
+        StringBuilder sb = new StringBuilder(targetChars + 512);
+        for (int i = 0; sb.length() < targetChars; i++) {
+            sb.append(String.format(TEMPLATES[i % TEMPLATES.length], i)).append(";\n");
+        }
+        return sb.toString();
+    }
+}
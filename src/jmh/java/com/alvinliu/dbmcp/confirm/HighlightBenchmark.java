@@ -0,0 +1,42 @@
+package com.alvinliu.dbmcp.confirm;
+
+import com.alvinliu.dbmcp.bench.SqlInputs;
+import com.alvinliu.dbmcp.core.BaseFormatter;
+import com.alvinliu.dbmcp.core.DangerKeywordMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyword highlighting of the confirmation dialog HTML.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HighlightBenchmark {
+
+    @Param({SqlInputs.SMALL, SqlInputs.MEDIUM, SqlInputs.LARGE})
+    public String size;
+
+    private String html;
+    private List<String> keywords;
+    private List<String> actions;
+
+    @Setup
+    public void setup() {
+        String sql = SqlInputs.sql(size);
+        html = new BaseFormatter().formatHtml(sql);
+        keywords = DangerKeywordMatcher.matchWholeText(sql, SqlInputs.WHOLE_TEXT);
+        actions = new ArrayList<>(DangerKeywordMatcher.matchWholeText(sql, SqlInputs.COMMAND));
+    }
+
+    @Benchmark
+    public String highlightMatchedKeywords() {
+        return Confirmer.highlightMatchedKeywords(html, keywords, actions);
+    }
+}
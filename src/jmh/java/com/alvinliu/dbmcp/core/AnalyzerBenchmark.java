@@ -0,0 +1,77 @@
+package com.alvinliu.dbmcp.core;
+
+import com.alibaba.druid.DbType;
+import com.alvinliu.dbmcp.bench.SqlInputs;
+import com.alvinliu.dbmcp.core.druid.DruidSqlAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Review-path benchmarks: Druid and base analyzers, keyword matching and HTML formatting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalyzerBenchmark {
+
+    @Param({SqlInputs.SMALL, SqlInputs.MEDIUM, SqlInputs.LARGE})
+    public String size;
+
+    private String sql;
+    private List<String> allKeywords;
+    private DruidSqlAnalyzer druid;
+    private DruidSqlAnalyzer druidCached;
+    private BaseAnalyzer base;
+    private DangerKeywordMatcher matcher;
+    private BaseFormatter formatter;
+
+    @Setup
+    public void setup() {
+        sql = SqlInputs.sql(size);
+        allKeywords = new ArrayList<>(SqlInputs.WHOLE_TEXT);
+        allKeywords.addAll(SqlInputs.COMMAND);
+        druid = new DruidSqlAnalyzer(DbType.mysql, SqlInputs.WHOLE_TEXT, SqlInputs.COMMAND, 0);
+        druidCached = new DruidSqlAnalyzer(DbType.mysql, SqlInputs.WHOLE_TEXT, SqlInputs.COMMAND, 16);
+        druidCached.analyze(sql);
+        base = new BaseAnalyzer(allKeywords, "whole_text");
+        matcher = DangerKeywordMatcher.compile(allKeywords);
+        formatter = new BaseFormatter();
+    }
+
+    @Benchmark
+    public AnalysisResult druidAnalyze() {
+        return druid.analyze(sql);
+    }
+
+    /** Repeated SQL text served from the analysis cache (when it fits the cache's size limit). */
+    @Benchmark
+    public AnalysisResult druidAnalyzeCached() {
+        return druidCached.analyze(sql);
+    }
+
+    @Benchmark
+    public AnalysisResult baseAnalyze() {
+        return base.analyze(sql);
+    }
+
+    @Benchmark
+    public List<String> matchWholeText() {
+        return DangerKeywordMatcher.matchWholeText(sql, allKeywords);
+    }
+
+    @Benchmark
+    public List<String> matchCompiled() {
+        return matcher.match(sql);
+    }
+
+    @Benchmark
+    public String formatHtml() {
+        return formatter.formatHtml(sql);
+    }
+}
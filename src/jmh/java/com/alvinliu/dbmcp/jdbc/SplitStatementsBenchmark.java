@@ -0,0 +1,33 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import com.alvinliu.dbmcp.bench.SqlInputs;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Semicolon splitting of multi-statement SQL (quote-aware).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitStatementsBenchmark {
+
+    @Param({SqlInputs.SMALL, SqlInputs.MEDIUM, SqlInputs.LARGE})
+    public String size;
+
+    private String sql;
+
+    @Setup
+    public void setup() {
+        sql = SqlInputs.sql(size);
+    }
+
+    @Benchmark
+    public String[] splitStatements() {
+        return JdbcExecutor.splitStatements(sql);
+    }
+}
@@ -0,0 +1,118 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV / text export writing of 100,000 already fetched rows (id, name, amount, note with commas and quotes in one
+ * row of ten, timestamp text) to a temp file: {@link TextFileWriter} against the previous BufferedWriter path,
+ * which built a String per cell and a List and StringBuilder per row. No JDBC, so only the writer is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextExportBenchmark {
+    private static final int ROWS = 100_000;
+
+    @Param({"csv", "text"})
+    public String format;
+
+    private Object[][] rows;
+    private Path file;
+    private boolean csv;
+
+    @Setup
+    public void setup() throws IOException {
+        csv = "csv".equals(format);
+        rows = new Object[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new Object[] {
+                (long) i,
+                "customer-" + i,
+                BigDecimal.valueOf(i * 125L, 2),
+                i % 10 == 0 ? "note, with \"quotes\"" : "plain note " + i,
+                "2024-01-01 00:00:00." + (i % 1000)
+            };
+        }
+        file = Files.createTempFile("db-mcp-bench", ".csv");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long textFileWriter() throws IOException {
+        TextFileWriter w = new TextFileWriter(file, Progress.NONE);
+        try (w) {
+            for (Object[] row : rows) {
+                for (int c = 0; c < row.length; c++) {
+                    if (c > 0) w.write(csv ? ',' : '\t');
+                    Object v = row[c];
+                    if (v instanceof Long) {
+                        w.writeLong((Long) v);
+                    } else if (csv) {
+                        w.writeCsv(v.toString());
+                    } else {
+                        w.write(v.toString());
+                    }
+                }
+                if (csv) w.newLine();
+            }
+        }
+        return w.getCount();
+    }
+
+    /** The writer this replaced: BufferedWriter over OutputStreamWriter, escaping with contains and replace. */
+    @Benchmark
+    public long bufferedWriter() throws IOException {
+        CountingOutputStream counter = new CountingOutputStream(Files.newOutputStream(file), Progress.NONE);
+        try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8))) {
+            List<Object> row = new ArrayList<>();
+            for (Object[] r : rows) {
+                row.clear();
+                for (Object v : r) row.add(v);
+                if (csv) {
+                    List<String> cells = new ArrayList<>(row.size());
+                    for (Object o : row) cells.add(o == null ? "" : o.toString());
+                    w.write(csvEscapeRow(cells));
+                    w.newLine();
+                    continue;
+                }
+                for (int i = 0; i < row.size(); i++) {
+                    if (i > 0) w.write('\t');
+                    Object o = row.get(i);
+                    if (o != null) w.write(o.toString());
+                }
+            }
+        }
+        return counter.getCount();
+    }
+
+    private static String csvEscapeRow(List<String> cells) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < cells.size(); i++) {
+            if (i > 0) sb.append(',');
+            String s = cells.get(i) == null ? "" : cells.get(i);
+            if (s.contains(",") || s.contains("\"") || s.contains("\n") || s.contains("\r")) {
+                s = '"' + s.replace("\"", "\"\"") + '"';
+            }
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package com.alvinliu.dbmcp.mcp;
+
+import com.alvinliu.dbmcp.config.Config;
+import com.alvinliu.dbmcp.config.ConnectionEntry;
+import com.alvinliu.dbmcp.jdbc.JdbcPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end: JSON-RPC line in, execute_sql against in-memory H2, JSON response line out.
+ * Result sizes: small (10 rows), medium (1000 rows), large (~10 MB of response JSON).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandleRequestBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    private JdbcPool pool;
+    private McpServer server;
+    private LineSignalOutputStream out;
+    private String executeLine;
+
+    @Setup
+    public void setup() throws Exception {
+        int rows;
+        switch (size) {
+            case "small": rows = 10; break;
+            case "medium": rows = 1000; break;
+            default: rows = 100_000; break;
+        }
+        ConnectionEntry e = new ConnectionEntry();
+        e.setName("h2");
+        e.setDriver("org.h2.Driver");
+        e.setDbType("h2");
+        e.setUrl("jdbc:h2:mem:bench_" + size + ";DB_CLOSE_DELAY=-1");
+        e.setUser("sa");
+        Config config = new Config();
+        config.setConnections(List.of(e));
+        pool = new JdbcPool(config);
+        try (Connection conn = pool.getConnection("h2"); Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE orders (id INT PRIMARY KEY, customer VARCHAR(64), amount DECIMAL(12,2), created_at TIMESTAMP)");
+            st.execute("INSERT INTO orders SELECT X, 'customer-' || X, X * 1.25, TIMESTAMP '2024-01-01 00:00:00' FROM SYSTEM_RANGE(1, " + rows + ")");
+        }
+        out = new LineSignalOutputStream();
+        server = new McpServer(config, pool, new ByteArrayInputStream(new byte[0]), out);
+        executeLine = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"tools/call\",\"params\":{\"name\":\"execute_sql\","
+            + "\"arguments\":{\"connection\":\"h2\",\"sql\":\"SELECT * FROM orders ORDER BY id\",\"max_rows\":0}}}";
+    }
+
+    /** Stops the server's executors, health monitor and metrics along with the pool it closes. */
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public void executeSql() throws InterruptedException {
+        server.handleRequest(executeLine);
+        out.awaitLine();
+    }
+
+    /** Inline (non tools/call) path: parse, dispatch, write. */
+    @Benchmark
+    public void ping() throws InterruptedException {
+        server.handleRequest("{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"ping\"}");
+        out.awaitLine();
+    }
+
+    /** Discards output; signals once per complete response line. */
+    private static final class LineSignalOutputStream extends OutputStream {
+        private final Semaphore lines = new Semaphore(0);
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') lines.release();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') lines.release();
+            }
+        }
+
+        void awaitLine() throws InterruptedException {
+            lines.acquire();
+        }
+    }
+}
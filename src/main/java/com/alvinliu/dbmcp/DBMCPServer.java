@@ -2,7 +2,9 @@ package com.alvinliu.dbmcp;
 
 import com.alvinliu.dbmcp.config.Config;
 import com.alvinliu.dbmcp.config.ConfigLoader;
+import com.alvinliu.dbmcp.config.ServerConfig;
 import com.alvinliu.dbmcp.jdbc.JdbcPool;
+import com.alvinliu.dbmcp.mcp.HttpTransport;
 import com.alvinliu.dbmcp.mcp.McpServer;
 
 import java.io.IOException;
@@ -10,7 +12,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Entry point: load config, start MCP server on stdio.
+ * Entry point: load config, start MCP server on stdio, or on HTTP when server.transport is "http".
  */
 public class DBMCPServer {
     public static void main(String[] args) {
@@ -21,6 +23,19 @@ public class DBMCPServer {
 
             Config config = ConfigLoader.load();
             JdbcPool pool = new JdbcPool(config);
+            ServerConfig sc = config.getServer();
+            if ("http".equals(sc.getTransport())) {
+                McpServer server = new McpServer(config, pool);
+                HttpTransport http = new HttpTransport(server, sc.getHttpHost(), sc.getHttpPort(),
+                    sc.getHttpAllowedOrigins(), sc.getHttpSessionIdleTimeoutSeconds());
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    http.stop();
+                    server.close();
+                }, "db-mcp-shutdown"));
+                http.start();
+                System.err.println("[db_mcp] listening on " + http.getUrl());
+                return;
+            }
             McpServer server = new McpServer(config, pool, System.in, System.out);
             server.run();
         } catch (IOException e) {
@@ -1,29 +1,100 @@
 package com.alvinliu.dbmcp.audit;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Audit logging for SQL operations. Same format and rotation as Go Auditor:
  * 10MB per file, filename base_yyyy-MM-dd_HHmmss.log; reuse most recent file under 10MB or create new.
+ * <p>
+ * Entries are formatted on the caller's thread and handed to a bounded queue; a single writer thread keeps the
+ * current file open and appends whole batches. Durability:
+ * <ul>
+ *   <li>{@code none}: no fsync (the OS flushes when it likes); callers never wait for the disk.</li>
+ *   <li>{@code batch}: fsync at most every flush interval while there are unsynced entries; callers never wait.</li>
+ *   <li>{@code every_entry}: callers wait until their entry is fsynced; one fsync covers every entry queued
+ *       meanwhile (group commit).</li>
+ * </ul>
+ * When the queue is full, callers block until the writer catches up; entries are never dropped. Entries logged
+ * after {@link #close()} are ignored.
  */
 public class Auditor {
     private static final long MAX_SIZE = 10L << 20; // 10MB
     private static final DateTimeFormatter ROTATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HHmmss").withZone(ZoneId.systemDefault());
+    private static final int MAX_BATCH = 256;
+    private static final long CLOSE_WAIT_MS = 10_000;
+    /** Longest an every_entry caller waits for its fsync, so a stuck disk or writer cannot hang tool calls. */
+    private static final long SYNC_WAIT_MS = 10_000;
+
+    public enum Durability {
+        NONE, BATCH, EVERY_ENTRY;
+
+        /** Config value (none / batch / every_entry, case-insensitive); null or unknown means BATCH. */
+        public static Durability parse(String s) {
+            if (s == null) return BATCH;
+            switch (s.trim().toLowerCase()) {
+                case "none": return NONE;
+                case "every_entry": return EVERY_ENTRY;
+                default: return BATCH;
+            }
+        }
+    }
+
+    /** One formatted entry; synced is set for every_entry callers waiting on the fsync. */
+    private static final class Entry {
+        final byte[] bytes;
+        final CountDownLatch synced;
+
+        Entry(byte[] bytes, CountDownLatch synced) {
+            this.bytes = bytes;
+            this.synced = synced;
+        }
+    }
+
+    private static final Entry CLOSE = new Entry(new byte[0], null);
 
-    private File file;
-    private final Object lock = new Object();
-    private long currentSize;
     private final String dir;
     private final String base;
     private final String ext;
+    private final Durability durability;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+    /**
+     * Read-held by log() from the closed check through the enqueue, write-held by close() to set closed, so
+     * CLOSE is queued after every accepted entry and nothing is queued behind it.
+     */
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    // Writer thread only.
+    private FileChannel channel;
+    private long currentSize;
+    private boolean dirty;
+    private long lastForceNanos;
 
     public Auditor(String logFile) throws IOException {
+        this(logFile, Durability.BATCH, 100, 4096);
+    }
+
+    /**
+     * @param flushIntervalMs max time unsynced entries wait for an fsync in batch mode
+     * @param queueCapacity entries buffered before callers block
+     */
+    public Auditor(String logFile, Durability durability, int flushIntervalMs, int queueCapacity) throws IOException {
         Path p = Paths.get(logFile).normalize();
         Path parent = p.getParent();
         dir = parent != null ? parent.toString() : ".";
@@ -36,7 +107,13 @@ public class Auditor {
             base = filename.isEmpty() ? "audit" : filename;
             ext = ".log";
         }
+        this.durability = durability != null ? durability : Durability.BATCH;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
         openOrCreate();
+        writer = new Thread(this::writeLoop, "db-mcp-audit-writer");
+        writer.setDaemon(true);
+        writer.start();
     }
 
     private void openOrCreate() throws IOException {
@@ -55,28 +132,34 @@ public class Auditor {
         for (Path path : matches) {
             long size = Files.size(path);
             if (size < MAX_SIZE) {
-                file = path.toFile();
-                currentSize = size;
+                open(path);
                 return;
             }
         }
         rotateOpen();
     }
 
+    /**
+     * Open a new timestamped file; the old one is synced and closed only once the new one is open.
+     * A second rotation within the same second gets a _1, _2, ... suffix instead of reopening the file just filled.
+     */
     private void rotateOpen() throws IOException {
-        if (file != null) {
-            try { new FileOutputStream(file, true).getChannel().force(true); } catch (IOException ignored) {}
-            try { new FileWriter(file, true).close(); } catch (IOException ignored) {}
-            file = null;
-        }
-        String name = base + "_" + ROTATE_FORMAT.format(Instant.now()) + ext;
-        Path path = Paths.get(dir, name);
-        file = path.toFile();
-        if (!file.exists()) {
-            file.getParentFile().mkdirs();
-            file.createNewFile();
-        }
-        currentSize = file.length();
+        FileChannel old = channel;
+        String stamp = base + "_" + ROTATE_FORMAT.format(Instant.now());
+        Path path = Paths.get(dir, stamp + ext);
+        for (int i = 1; Files.exists(path); i++) {
+            path = Paths.get(dir, stamp + "_" + i + ext);
+        }
+        open(path);
+        if (old != null) {
+            try { old.force(true); } catch (IOException ignored) {}
+            try { old.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    private void open(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        currentSize = channel.size();
     }
 
     /**
@@ -89,9 +172,17 @@ public class Auditor {
 
     /**
      * Write one audit entry, optionally with output file path (e.g. for query_to_csv_file / query_to_text_file).
+     * Returns once the entry is queued, or with every_entry once it is on disk.
      */
     public void log(String sql, List<String> matchedKeywords, boolean approved, String action,
                     String connection, String databaseName, String schema, String driver, String outputFile) {
+        log(sql, matchedKeywords, approved, action, connection, databaseName, schema, driver, outputFile, null);
+    }
+
+    /** Write one audit entry; params (e.g. execute_sql bound values, as JSON) is written on its own line when set. */
+    public void log(String sql, List<String> matchedKeywords, boolean approved, String action,
+                    String connection, String databaseName, String schema, String driver, String outputFile,
+                    String params) {
         String keywords = (matchedKeywords != null && !matchedKeywords.isEmpty())
             ? String.join(",", matchedKeywords) : "none";
         if (connection == null || connection.isEmpty()) connection = "default";
@@ -110,35 +201,125 @@ public class Auditor {
         if (outputFile != null && !outputFile.isEmpty()) {
             header.append("AUDIT_OUTPUT_FILE=").append(outputFile).append("\n");
         }
+        if (params != null && !params.isEmpty()) {
+            header.append("AUDIT_PARAMS=").append(params).append("\n");
+        }
         header.append("AUDIT_SQL=\n");
         String entry = header.toString() + sql + (sql.endsWith("\n") ? "" : "\n") + "######AUDIT_END######\n";
-        long size = entry.getBytes(StandardCharsets.UTF_8).length;
-
-        synchronized (lock) {
-            if (currentSize + size >= MAX_SIZE && currentSize > 0) {
-                try {
-                    rotateOpen();
-                } catch (IOException e) {
-                    // write to current file anyway
+
+        Entry e = new Entry(entry.getBytes(StandardCharsets.UTF_8),
+            durability == Durability.EVERY_ENTRY ? new CountDownLatch(1) : null);
+        try {
+            closing.readLock().lock();
+            try {
+                if (closed) return;
+                queue.put(e);
+            } finally {
+                closing.readLock().unlock();
+            }
+            if (e.synced != null) e.synced.await(SYNC_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Entries queued and not yet written. */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH);
+        boolean stop = false;
+        while (!stop) {
+            Entry first;
+            try {
+                if (dirty) {
+                    long wait = flushIntervalNanos - (System.nanoTime() - lastForceNanos);
+                    first = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+                } else {
+                    first = queue.take();
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (first == null) {
+                force();
+                continue;
+            }
+            batch.clear();
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH - 1);
+            for (Entry e : batch) {
+                if (e == CLOSE) {
+                    stop = true;
+                } else {
+                    write(e.bytes);
+                    dirty = durability != Durability.NONE;
                 }
             }
-            try (FileOutputStream fos = new FileOutputStream(file, true);
-                 OutputStreamWriter w = new OutputStreamWriter(fos, StandardCharsets.UTF_8)) {
-                w.write(entry);
-                w.flush();
-                fos.getChannel().force(true);
-            } catch (IOException ignored) {
-                // best effort
+            if (durability == Durability.EVERY_ENTRY
+                || (dirty && System.nanoTime() - lastForceNanos >= flushIntervalNanos)) {
+                force();
+            }
+            for (Entry e : batch) {
+                if (e.synced != null) e.synced.countDown();
             }
-            currentSize += size;
         }
+        force();
+        if (channel != null) try { channel.close(); } catch (IOException ignored) {}
     }
 
+    private void write(byte[] bytes) {
+        if (currentSize + bytes.length >= MAX_SIZE && currentSize > 0) {
+            try {
+                rotateOpen();
+            } catch (IOException e) {
+                // write to current file anyway
+            }
+        }
+        if (channel == null) return;
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) channel.write(buf);
+        } catch (IOException ignored) {
+            // best effort
+        }
+        currentSize += bytes.length;
+    }
+
+    private void force() {
+        if (dirty && channel != null) {
+            try { channel.force(false); } catch (IOException ignored) {}
+        }
+        dirty = false;
+        lastForceNanos = System.nanoTime();
+    }
+
+    /**
+     * Write and sync everything queued so far, then stop the writer and close the file. Waits for log() calls
+     * already enqueueing; later ones are ignored.
+     */
     public void close() throws IOException {
-        synchronized (lock) {
-            if (file != null) {
-                // no hold on file handle; nothing to close per entry
-                file = null;
+        closing.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            queue.put(CLOSE);
+            writer.join(CLOSE_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!writer.isAlive()) {
+            // The writer stopped early (interrupted): release every_entry callers of anything it left behind.
+            List<Entry> left = new ArrayList<>();
+            queue.drainTo(left);
+            for (Entry e : left) {
+                if (e.synced != null) e.synced.countDown();
             }
         }
     }
@@ -10,6 +10,7 @@ public class Config {
     private List<ConnectionEntry> connections = new ArrayList<>();
     private SecurityConfig review = new SecurityConfig();
     private LoggingConfig logging = new LoggingConfig();
+    private ServerConfig server = new ServerConfig();
     private String configPath;
 
     public List<ConnectionEntry> getConnections() { return connections; }
@@ -21,6 +22,9 @@ public class Config {
     public LoggingConfig getLogging() { return logging; }
     public void setLogging(LoggingConfig logging) { this.logging = logging != null ? logging : new LoggingConfig(); }
 
+    public ServerConfig getServer() { return server; }
+    public void setServer(ServerConfig server) { this.server = server != null ? server : new ServerConfig(); }
+
     public String getConfigPath() { return configPath; }
     public void setConfigPath(String configPath) { this.configPath = configPath; }
 }
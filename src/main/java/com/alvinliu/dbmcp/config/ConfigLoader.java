@@ -50,6 +50,10 @@ public final class ConfigLoader {
         if (log instanceof Map) {
             cfg.setLogging(loggingFromMap((Map<String, Object>) log));
         }
+        Object srv = raw.get("server");
+        if (srv instanceof Map) {
+            cfg.setServer(serverFromMap((Map<String, Object>) srv));
+        }
         return cfg;
     }
 
@@ -61,9 +65,64 @@ public final class ConfigLoader {
         if (v instanceof Boolean) l.setMcpConsoleLog((Boolean) v);
         String f = getStr(m, "log_file");
         if (f != null) l.setLogFile(f);
+        String d = getStr(m, "audit_durability");
+        if (d != null) l.setAuditDurability(d);
+        Integer n = getInt(m, "audit_flush_interval_ms");
+        if (n != null) l.setAuditFlushIntervalMs(n);
+        n = getInt(m, "audit_queue_capacity");
+        if (n != null) l.setAuditQueueCapacity(n);
         return l;
     }
 
+    private static ServerConfig serverFromMap(Map<String, Object> m) {
+        ServerConfig s = new ServerConfig();
+        Integer n = getInt(m, "max_concurrent_calls");
+        if (n != null) s.setMaxConcurrentCalls(n);
+        n = getInt(m, "max_rows");
+        if (n != null) s.setMaxRows(n);
+        n = getInt(m, "max_lob_chars");
+        if (n != null) s.setMaxLobChars(n);
+        n = getInt(m, "cursor_idle_timeout_seconds");
+        if (n != null) s.setCursorIdleTimeoutSeconds(n);
+        n = getInt(m, "max_open_cursors");
+        if (n != null) s.setMaxOpenCursors(n);
+        n = getInt(m, "analyzer_cache_entries");
+        if (n != null) s.setAnalyzerCacheEntries(n);
+        n = getInt(m, "batch_size");
+        if (n != null) s.setBatchSize(n);
+        String f = getStr(m, "metrics_file");
+        if (f != null) s.setMetricsFile(f);
+        n = getInt(m, "metrics_dump_interval_seconds");
+        if (n != null) s.setMetricsDumpIntervalSeconds(n);
+        n = getInt(m, "health_check_interval_seconds");
+        if (n != null) s.setHealthCheckIntervalSeconds(n);
+        n = getInt(m, "health_check_max_backoff_seconds");
+        if (n != null) s.setHealthCheckMaxBackoffSeconds(n);
+        n = getInt(m, "progress_interval_rows");
+        if (n != null) s.setProgressIntervalRows(n);
+        n = getInt(m, "progress_interval_statements");
+        if (n != null) s.setProgressIntervalStatements(n);
+        n = getInt(m, "compression_buffer_size");
+        if (n != null) s.setCompressionBufferSize(n);
+        String t = getStr(m, "transport");
+        if (t != null) s.setTransport(t);
+        t = getStr(m, "http_host");
+        if (t != null) s.setHttpHost(t);
+        n = getInt(m, "http_port");
+        if (n != null) s.setHttpPort(n);
+        Object origins = m.get("http_allowed_origins");
+        if (origins instanceof List) {
+            List<String> list = new ArrayList<>();
+            for (Object o : (List<?>) origins) {
+                if (o != null) list.add(o.toString().trim());
+            }
+            s.setHttpAllowedOrigins(list);
+        }
+        n = getInt(m, "http_session_idle_timeout_seconds");
+        if (n != null) s.setHttpSessionIdleTimeoutSeconds(n);
+        return s;
+    }
+
     private static ConnectionEntry entryFromMap(Map<String, Object> m) {
         ConnectionEntry e = new ConnectionEntry();
         e.setName(getStr(m, "name"));
@@ -74,6 +133,33 @@ public final class ConfigLoader {
         e.setPassword(getStr(m, "password"));
         e.setSchema(getStr(m, "schema"));
         e.setDatabase(getStr(m, "database"));
+        Object v = m.get("rewrite_batched_statements");
+        if (v instanceof Boolean) e.setRewriteBatchedStatements((Boolean) v);
+        Integer n = getInt(m, "prepared_statement_cache_size");
+        if (n != null) e.setPreparedStatementCacheSize(n);
+        n = getInt(m, "initial_size");
+        if (n != null) e.setInitialSize(n);
+        n = getInt(m, "max_active");
+        if (n != null) e.setMaxActive(n);
+        n = getInt(m, "min_idle");
+        if (n != null) e.setMinIdle(n);
+        n = getInt(m, "max_wait_ms");
+        if (n != null) e.setMaxWaitMs(n);
+        e.setValidationQuery(getStr(m, "validation_query"));
+        v = m.get("test_while_idle");
+        if (v instanceof Boolean) e.setTestWhileIdle((Boolean) v);
+        v = m.get("test_on_borrow");
+        if (v instanceof Boolean) e.setTestOnBorrow((Boolean) v);
+        v = m.get("keep_alive");
+        if (v instanceof Boolean) e.setKeepAlive((Boolean) v);
+        n = getInt(m, "keep_alive_interval_ms");
+        if (n != null) e.setKeepAliveIntervalMs(n);
+        n = getInt(m, "eviction_interval_ms");
+        if (n != null) e.setEvictionIntervalMs(n);
+        n = getInt(m, "min_evictable_idle_ms");
+        if (n != null) e.setMinEvictableIdleMs(n);
+        v = m.get("prewarm");
+        if (v instanceof Boolean) e.setPrewarm((Boolean) v);
         return e;
     }
 
@@ -105,6 +191,17 @@ public final class ConfigLoader {
         return v != null ? v.toString().trim() : null;
     }
 
+    private static Integer getInt(Map<String, Object> m, String key) {
+        Object v = m.get(key);
+        if (v instanceof Number) return ((Number) v).intValue();
+        if (v != null) {
+            try {
+                return Integer.parseInt(v.toString().trim());
+            } catch (NumberFormatException ignored) { }
+        }
+        return null;
+    }
+
     static Path findConfigPath() {
         String env = System.getenv(CONFIG_ENV);
         if (env != null && !env.isBlank()) {
@@ -14,6 +14,27 @@ public class ConnectionEntry {
     private String password;
     private String schema;
     private String database;
+    /** Ask the driver to rewrite JDBC batches into multi-row statements (MySQL/MariaDB, PostgreSQL); ignored elsewhere. */
+    private boolean rewriteBatchedStatements;
+    /** Prepared statements cached per pooled connection (Druid PS cache); 0 disables the cache. */
+    private int preparedStatementCacheSize = 20;
+
+    // Druid pool tuning; defaults keep one warm connection that is validated while idle.
+    private int initialSize = 1;
+    private int maxActive = 20;
+    private int minIdle = 1;
+    private int maxWaitMs = 10_000;
+    /** Connection check SQL; null = dialect default (e.g. SELECT 1 FROM DUAL on Oracle). */
+    private String validationQuery;
+    private boolean testWhileIdle = true;
+    private boolean testOnBorrow;
+    /** Validate idle connections up to min_idle every keep_alive_interval_ms so they are not dropped by firewalls or the server. */
+    private boolean keepAlive = true;
+    private int keepAliveIntervalMs = 120_000;
+    private int evictionIntervalMs = 60_000;
+    private int minEvictableIdleMs = 1_800_000;
+    /** Open min_idle connections when the pool is created instead of on first use. */
+    private boolean prewarm = true;
 
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
@@ -38,4 +59,46 @@ public class ConnectionEntry {
 
     public String getDatabase() { return database; }
     public void setDatabase(String database) { this.database = database; }
+
+    public boolean isRewriteBatchedStatements() { return rewriteBatchedStatements; }
+    public void setRewriteBatchedStatements(boolean rewriteBatchedStatements) { this.rewriteBatchedStatements = rewriteBatchedStatements; }
+
+    public int getPreparedStatementCacheSize() { return preparedStatementCacheSize; }
+    public void setPreparedStatementCacheSize(int preparedStatementCacheSize) { this.preparedStatementCacheSize = Math.max(0, preparedStatementCacheSize); }
+
+    public int getInitialSize() { return initialSize; }
+    public void setInitialSize(int initialSize) { this.initialSize = Math.max(0, initialSize); }
+
+    public int getMaxActive() { return maxActive; }
+    public void setMaxActive(int maxActive) { this.maxActive = Math.max(1, maxActive); }
+
+    public int getMinIdle() { return minIdle; }
+    public void setMinIdle(int minIdle) { this.minIdle = Math.max(0, minIdle); }
+
+    public int getMaxWaitMs() { return maxWaitMs; }
+    public void setMaxWaitMs(int maxWaitMs) { this.maxWaitMs = Math.max(0, maxWaitMs); }
+
+    public String getValidationQuery() { return validationQuery; }
+    public void setValidationQuery(String validationQuery) { this.validationQuery = validationQuery; }
+
+    public boolean isTestWhileIdle() { return testWhileIdle; }
+    public void setTestWhileIdle(boolean testWhileIdle) { this.testWhileIdle = testWhileIdle; }
+
+    public boolean isTestOnBorrow() { return testOnBorrow; }
+    public void setTestOnBorrow(boolean testOnBorrow) { this.testOnBorrow = testOnBorrow; }
+
+    public boolean isKeepAlive() { return keepAlive; }
+    public void setKeepAlive(boolean keepAlive) { this.keepAlive = keepAlive; }
+
+    public int getKeepAliveIntervalMs() { return keepAliveIntervalMs; }
+    public void setKeepAliveIntervalMs(int keepAliveIntervalMs) { this.keepAliveIntervalMs = Math.max(1000, keepAliveIntervalMs); }
+
+    public int getEvictionIntervalMs() { return evictionIntervalMs; }
+    public void setEvictionIntervalMs(int evictionIntervalMs) { this.evictionIntervalMs = Math.max(1000, evictionIntervalMs); }
+
+    public int getMinEvictableIdleMs() { return minEvictableIdleMs; }
+    public void setMinEvictableIdleMs(int minEvictableIdleMs) { this.minEvictableIdleMs = Math.max(1000, minEvictableIdleMs); }
+
+    public boolean isPrewarm() { return prewarm; }
+    public void setPrewarm(boolean prewarm) { this.prewarm = prewarm; }
 }
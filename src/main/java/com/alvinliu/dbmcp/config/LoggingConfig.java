@@ -7,6 +7,10 @@ public class LoggingConfig {
     private boolean auditLog = false;
     private boolean mcpConsoleLog = false;
     private String logFile = "";
+    /** none | batch | every_entry: when audit entries are fsynced (see Auditor). */
+    private String auditDurability = "batch";
+    private int auditFlushIntervalMs = 100;
+    private int auditQueueCapacity = 4096;
 
     public boolean isAuditLog() { return auditLog; }
     public void setAuditLog(boolean auditLog) { this.auditLog = auditLog; }
@@ -16,4 +20,13 @@ public class LoggingConfig {
 
     public String getLogFile() { return logFile; }
     public void setLogFile(String logFile) { this.logFile = logFile != null ? logFile : ""; }
+
+    public String getAuditDurability() { return auditDurability; }
+    public void setAuditDurability(String auditDurability) { this.auditDurability = auditDurability != null ? auditDurability : "batch"; }
+
+    public int getAuditFlushIntervalMs() { return auditFlushIntervalMs; }
+    public void setAuditFlushIntervalMs(int auditFlushIntervalMs) { this.auditFlushIntervalMs = Math.max(1, auditFlushIntervalMs); }
+
+    public int getAuditQueueCapacity() { return auditQueueCapacity; }
+    public void setAuditQueueCapacity(int auditQueueCapacity) { this.auditQueueCapacity = Math.max(1, auditQueueCapacity); }
 }
@@ -0,0 +1,104 @@
+package com.alvinliu.dbmcp.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Server settings (YAML "server" section). All optional; omit the section to use defaults.
+ */
+public class ServerConfig {
+    /** Max tools/call requests executing at once; further calls wait for a free slot. */
+    private int maxConcurrentCalls = 8;
+    /** Default row cap for execute_sql / execute_sql_file results when the call does not pass max_rows; 0 = unlimited. */
+    private int maxRows = 1000;
+    /** Default max_lob_chars: inline CLOB/BLOB and long text values are cut after this many characters; 0 = unlimited. */
+    private int maxLobChars = 65536;
+    /** Open cursors (results cut off by max_rows) idle longer than this are closed. */
+    private int cursorIdleTimeoutSeconds = 300;
+    /** Max cursors kept open at once; the least recently used is closed when exceeded. Each holds a pooled connection. */
+    private int maxOpenCursors = 16;
+    /** Analysis results cached per dialect, keyed by SQL text; 0 disables the cache. */
+    private int analyzerCacheEntries = 1024;
+    /** Default batch size for multi-statement execute_sql / execute_sql_file (consecutive DML per JDBC batch); 0 = off. */
+    private int batchSize = 0;
+    /** File the Prometheus text metrics are rewritten to periodically; empty = no dump (server_metrics tool only). */
+    private String metricsFile = "";
+    /** Seconds between metrics file dumps. */
+    private int metricsDumpIntervalSeconds = 15;
+    /** Seconds between background checks of each healthy connection; 0 = no background checks (list_connections checks inline). */
+    private int healthCheckIntervalSeconds = 30;
+    /** Upper bound of the retry backoff for a failing connection. */
+    private int healthCheckMaxBackoffSeconds = 300;
+    /** Exports send a progress notification each time this many more rows are fetched; 0 = never on rows. */
+    private int progressIntervalRows = 10000;
+    /** execute_sql_file sends a progress notification each time this many more statements finish; 0 = never on statements. */
+    private int progressIntervalStatements = 100;
+    /** Bytes a compressed export (compression: gzip / zstd) hands to the file at a time. */
+    private int compressionBufferSize = 64 * 1024;
+    /** "stdio" (one client on stdin/stdout) or "http" (streamable HTTP on http_host:http_port, many clients). */
+    private String transport = "stdio";
+    /** Address the HTTP transport binds to; keep it on loopback unless the port is otherwise protected. */
+    private String httpHost = "127.0.0.1";
+    private int httpPort = 8765;
+    /** Browser origins (e.g. "https://app.example.com") allowed besides localhost; requests from other origins get 403. */
+    private List<String> httpAllowedOrigins = new ArrayList<>();
+    /** HTTP sessions with no request and no running call for this long are dropped. */
+    private int httpSessionIdleTimeoutSeconds = 3600;
+
+    public int getMaxConcurrentCalls() { return maxConcurrentCalls; }
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) { this.maxConcurrentCalls = maxConcurrentCalls > 0 ? maxConcurrentCalls : 1; }
+
+    public int getMaxRows() { return maxRows; }
+    public void setMaxRows(int maxRows) { this.maxRows = Math.max(0, maxRows); }
+
+    public int getMaxLobChars() { return maxLobChars; }
+    public void setMaxLobChars(int maxLobChars) { this.maxLobChars = Math.max(0, maxLobChars); }
+
+    public int getCursorIdleTimeoutSeconds() { return cursorIdleTimeoutSeconds; }
+    public void setCursorIdleTimeoutSeconds(int cursorIdleTimeoutSeconds) { this.cursorIdleTimeoutSeconds = cursorIdleTimeoutSeconds > 0 ? cursorIdleTimeoutSeconds : 1; }
+
+    public int getMaxOpenCursors() { return maxOpenCursors; }
+    public void setMaxOpenCursors(int maxOpenCursors) { this.maxOpenCursors = maxOpenCursors > 0 ? maxOpenCursors : 1; }
+
+    public int getAnalyzerCacheEntries() { return analyzerCacheEntries; }
+    public void setAnalyzerCacheEntries(int analyzerCacheEntries) { this.analyzerCacheEntries = Math.max(0, analyzerCacheEntries); }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = Math.max(0, batchSize); }
+
+    public String getMetricsFile() { return metricsFile; }
+    public void setMetricsFile(String metricsFile) { this.metricsFile = metricsFile != null ? metricsFile : ""; }
+
+    public int getMetricsDumpIntervalSeconds() { return metricsDumpIntervalSeconds; }
+    public void setMetricsDumpIntervalSeconds(int metricsDumpIntervalSeconds) { this.metricsDumpIntervalSeconds = metricsDumpIntervalSeconds > 0 ? metricsDumpIntervalSeconds : 1; }
+
+    public int getHealthCheckIntervalSeconds() { return healthCheckIntervalSeconds; }
+    public void setHealthCheckIntervalSeconds(int healthCheckIntervalSeconds) { this.healthCheckIntervalSeconds = Math.max(0, healthCheckIntervalSeconds); }
+
+    public int getHealthCheckMaxBackoffSeconds() { return healthCheckMaxBackoffSeconds; }
+    public void setHealthCheckMaxBackoffSeconds(int healthCheckMaxBackoffSeconds) { this.healthCheckMaxBackoffSeconds = healthCheckMaxBackoffSeconds > 0 ? healthCheckMaxBackoffSeconds : 1; }
+
+    public int getProgressIntervalRows() { return progressIntervalRows; }
+    public void setProgressIntervalRows(int progressIntervalRows) { this.progressIntervalRows = Math.max(0, progressIntervalRows); }
+
+    public int getProgressIntervalStatements() { return progressIntervalStatements; }
+    public void setProgressIntervalStatements(int progressIntervalStatements) { this.progressIntervalStatements = Math.max(0, progressIntervalStatements); }
+
+    public int getCompressionBufferSize() { return compressionBufferSize; }
+    public void setCompressionBufferSize(int compressionBufferSize) { this.compressionBufferSize = Math.max(512, compressionBufferSize); }
+
+    public String getTransport() { return transport; }
+    public void setTransport(String transport) { this.transport = transport != null && !transport.isBlank() ? transport.trim().toLowerCase() : "stdio"; }
+
+    public String getHttpHost() { return httpHost; }
+    public void setHttpHost(String httpHost) { this.httpHost = httpHost != null && !httpHost.isBlank() ? httpHost.trim() : "127.0.0.1"; }
+
+    public int getHttpPort() { return httpPort; }
+    public void setHttpPort(int httpPort) { this.httpPort = httpPort >= 0 && httpPort <= 65535 ? httpPort : 8765; }
+
+    public List<String> getHttpAllowedOrigins() { return httpAllowedOrigins; }
+    public void setHttpAllowedOrigins(List<String> httpAllowedOrigins) { this.httpAllowedOrigins = httpAllowedOrigins != null ? httpAllowedOrigins : new ArrayList<>(); }
+
+    public int getHttpSessionIdleTimeoutSeconds() { return httpSessionIdleTimeoutSeconds; }
+    public void setHttpSessionIdleTimeoutSeconds(int httpSessionIdleTimeoutSeconds) { this.httpSessionIdleTimeoutSeconds = httpSessionIdleTimeoutSeconds > 0 ? httpSessionIdleTimeoutSeconds : 1; }
+}
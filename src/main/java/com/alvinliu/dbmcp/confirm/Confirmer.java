@@ -86,8 +86,9 @@ public class Confirmer {
 
     /**
      * Show confirmation dialog. Returns true if user approved, false if cancelled or error.
+     * Synchronized: concurrent tool calls get one dialog at a time (the temp files are shared).
      */
-    public boolean confirm(ConfirmRequest req) {
+    public synchronized boolean confirm(ConfirmRequest req) {
         String os = System.getProperty("os.name", "").toLowerCase();
         if (os.contains("win")) {
             return confirmWindows(req);
@@ -252,7 +253,7 @@ public class Confirmer {
      * In HTML body, wrap matched keywords (whole_text + command_match) in red bold.
      * Only replaces in text content (not inside tags) and uses word boundary.
      */
-    private static String highlightMatchedKeywords(String html, List<String> matchedKeywords, List<String> matchedActions) {
+    static String highlightMatchedKeywords(String html, List<String> matchedKeywords, List<String> matchedActions) {
         if (html == null) return "";
         Set<String> set = new LinkedHashSet<>();
         if (matchedKeywords != null) set.addAll(matchedKeywords);
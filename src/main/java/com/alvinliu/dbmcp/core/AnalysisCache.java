@@ -0,0 +1,73 @@
+package com.alvinliu.dbmcp.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of {@link AnalysisResult} keyed by SQL text, with hit/miss counters.
+ * Size-aware: bounded by entry count and by the total characters held (SQL + formatted preview);
+ * SQL longer than {@link #MAX_ENTRY_CHARS} (e.g. migration scripts) is never cached.
+ * Cached results are shared between callers and must be treated as read-only.
+ */
+public final class AnalysisCache {
+    /** SQL longer than this is analyzed every time and not cached. */
+    public static final int MAX_ENTRY_CHARS = 64 * 1024;
+    /** Upper bound on characters held by one cache (about 32 MB of char data). */
+    private static final long MAX_TOTAL_CHARS = 16L << 20;
+
+    private final int maxEntries;
+    /** Access-ordered: first entry is the least recently used. Guarded by this. */
+    private final LinkedHashMap<String, AnalysisResult> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalChars;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public AnalysisCache(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /** Cached result for this exact SQL text, or null (counted as a miss). */
+    public AnalysisResult get(String sql) {
+        AnalysisResult r;
+        synchronized (this) {
+            r = entries.get(sql);
+        }
+        if (r != null) hits.increment(); else misses.increment();
+        return r;
+    }
+
+    public void put(String sql, AnalysisResult result) {
+        if (sql == null || sql.length() > MAX_ENTRY_CHARS || result == null) return;
+        long weight = weight(sql, result);
+        synchronized (this) {
+            AnalysisResult old = entries.put(sql, result);
+            if (old != null) totalChars -= weight(sql, old);
+            totalChars += weight;
+            Iterator<Map.Entry<String, AnalysisResult>> it = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || totalChars > MAX_TOTAL_CHARS) && it.hasNext()) {
+                Map.Entry<String, AnalysisResult> e = it.next();
+                totalChars -= weight(e.getKey(), e.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalChars = 0;
+    }
+
+    public synchronized int size() { return entries.size(); }
+
+    public long getHits() { return hits.sum(); }
+
+    public long getMisses() { return misses.sum(); }
+
+    private static long weight(String sql, AnalysisResult r) {
+        long w = sql.length();
+        if (r.getPreviewSql() != null && r.getPreviewSql() != sql) w += r.getPreviewSql().length();
+        return w;
+    }
+}
@@ -1,37 +1,136 @@
 package com.alvinliu.dbmcp.core;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
 /**
  * Review keyword match: plain string comparison only, no AST.
  * Normalize whitespace (including newlines) to spaces before matching; last gate.
+ * <p>
+ * Keywords are compiled once into an Aho-Corasick automaton ({@link #compile(List)}); {@link #match(String)} then
+ * finds every keyword in one case-insensitive pass over the SQL, collapsing whitespace on the fly, without building
+ * a normalized or lowercased copy of the text. Instances are immutable and thread-safe.
  */
 public final class DangerKeywordMatcher {
 
-    private DangerKeywordMatcher() {}
+    private static final DangerKeywordMatcher EMPTY = new DangerKeywordMatcher(Collections.emptyList());
 
-    /**
-     * Whole-text mode: normalize all whitespace in SQL to single space, lowercase, then substring match.
-     * Text only, no parse, no AST.
-     */
-    public static List<String> matchWholeText(String sql, List<String> keywords) {
-        if (sql == null || keywords == null || keywords.isEmpty()) return Collections.emptyList();
-        String normalized = normalizeWhitespace(sql);
-        if (normalized.isEmpty()) return Collections.emptyList();
-        String lower = normalized.toLowerCase();
-        List<String> matched = new ArrayList<>();
+    /** Keywords as configured (trimmed), in config order; match results keep this order. */
+    private final List<String> keywords;
+    /** Per state: sorted transition chars and their target states. State 0 is the root. */
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    /** Per state: indexes of keywords ending here, including those reached through failure links. */
+    private final int[][] outputs;
+
+    private DangerKeywordMatcher(List<String> keywords) {
+        this.keywords = keywords;
+        List<char[]> chars = new ArrayList<>();
+        List<int[]> targets = new ArrayList<>();
+        List<int[]> out = new ArrayList<>();
+        chars.add(new char[0]);
+        targets.add(new int[0]);
+        out.add(new int[0]);
+        for (int k = 0; k < keywords.size(); k++) {
+            String p = normalizeKeyword(keywords.get(k));
+            int state = 0;
+            for (int i = 0; i < p.length(); i++) {
+                char c = p.charAt(i);
+                int next = find(chars.get(state), targets.get(state), c);
+                if (next < 0) {
+                    next = chars.size();
+                    chars.add(new char[0]);
+                    targets.add(new int[0]);
+                    out.add(new int[0]);
+                    addEdge(chars, targets, state, c, next);
+                }
+                state = next;
+            }
+            out.set(state, append(out.get(state), k));
+        }
+        int n = chars.size();
+        this.edgeChars = chars.toArray(new char[n][]);
+        this.edgeTargets = targets.toArray(new int[n][]);
+        this.outputs = out.toArray(new int[n][]);
+        this.fail = new int[n];
+        // Breadth-first: failure link of a child = deepest proper suffix state; merge outputs along it.
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int t : edgeTargets[0]) queue.add(t);
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            for (int e = 0; e < edgeChars[s].length; e++) {
+                char c = edgeChars[s][e];
+                int child = edgeTargets[s][e];
+                int f = fail[s];
+                while (f != 0 && find(edgeChars[f], edgeTargets[f], c) < 0) f = fail[f];
+                int via = find(edgeChars[f], edgeTargets[f], c);
+                fail[child] = (via >= 0 && via != child) ? via : 0;
+                if (outputs[fail[child]].length > 0) {
+                    outputs[child] = merge(outputs[child], outputs[fail[child]]);
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    /** Compile keywords (null/blank entries ignored) into a reusable matcher. */
+    public static DangerKeywordMatcher compile(List<String> keywords) {
+        if (keywords == null || keywords.isEmpty()) return EMPTY;
+        List<String> list = new ArrayList<>();
         for (String kw : keywords) {
             if (kw == null) continue;
             String k = kw.trim();
-            if (k.isEmpty()) continue;
-            String kLower = k.toLowerCase();
-            if (lower.contains(kLower)) matched.add(k);
+            if (!k.isEmpty()) list.add(k);
+        }
+        return list.isEmpty() ? EMPTY : new DangerKeywordMatcher(Collections.unmodifiableList(list));
+    }
+
+    /**
+     * Whole-text mode: keywords found in the SQL after whitespace normalization, case-insensitive, in keyword order.
+     * One pass over the text; stops early once every keyword has matched.
+     */
+    public List<String> match(String sql) {
+        if (sql == null || keywords.isEmpty()) return Collections.emptyList();
+        boolean[] hit = new boolean[keywords.size()];
+        int remaining = keywords.size();
+        int state = 0;
+        boolean started = false;
+        boolean pendingSpace = false;
+        for (int i = 0, len = sql.length(); i < len && remaining > 0; i++) {
+            char c = sql.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                pendingSpace = started;
+                continue;
+            }
+            if (pendingSpace) {
+                state = step(state, ' ');
+                remaining -= collect(state, hit);
+                pendingSpace = false;
+            }
+            started = true;
+            state = step(state, Character.toLowerCase(c));
+            remaining -= collect(state, hit);
+        }
+        List<String> matched = new ArrayList<>();
+        for (int k = 0; k < hit.length; k++) {
+            if (hit[k]) matched.add(keywords.get(k));
         }
         return matched;
     }
 
+    /**
+     * Whole-text mode: normalize all whitespace in SQL to single space, lowercase, then substring match.
+     * Text only, no parse, no AST. Compiles the keywords on each call; prefer {@link #compile(List)} for reuse.
+     */
+    public static List<String> matchWholeText(String sql, List<String> keywords) {
+        return compile(keywords).match(sql);
+    }
+
     /** Replace all runs of whitespace (including \\r \\n \\t) with single space and trim. */
     public static String normalizeWhitespace(String sql) {
         if (sql == null) return "";
@@ -49,4 +148,66 @@ public final class DangerKeywordMatcher {
         }
         return sb.toString().trim();
     }
+
+    /** Keyword as matched against the normalized text: whitespace runs collapsed, lowercased per char. */
+    private static String normalizeKeyword(String kw) {
+        String n = normalizeWhitespace(kw);
+        char[] cs = n.toCharArray();
+        for (int i = 0; i < cs.length; i++) cs[i] = Character.toLowerCase(cs[i]);
+        return new String(cs);
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            int next = find(edgeChars[state], edgeTargets[state], c);
+            if (next >= 0) return next;
+            if (state == 0) return 0;
+            state = fail[state];
+        }
+    }
+
+    /** Mark keywords ending at this state; returns how many were newly matched. */
+    private int collect(int state, boolean[] hit) {
+        int newly = 0;
+        for (int k : outputs[state]) {
+            if (!hit[k]) {
+                hit[k] = true;
+                newly++;
+            }
+        }
+        return newly;
+    }
+
+    private static int find(char[] keys, int[] targets, char c) {
+        int i = Arrays.binarySearch(keys, c);
+        return i >= 0 ? targets[i] : -1;
+    }
+
+    private static void addEdge(List<char[]> chars, List<int[]> targets, int state, char c, int target) {
+        char[] keys = chars.get(state);
+        int[] tgts = targets.get(state);
+        int pos = -(Arrays.binarySearch(keys, c) + 1);
+        char[] nk = new char[keys.length + 1];
+        int[] nt = new int[tgts.length + 1];
+        System.arraycopy(keys, 0, nk, 0, pos);
+        System.arraycopy(tgts, 0, nt, 0, pos);
+        nk[pos] = c;
+        nt[pos] = target;
+        System.arraycopy(keys, pos, nk, pos + 1, keys.length - pos);
+        System.arraycopy(tgts, pos, nt, pos + 1, tgts.length - pos);
+        chars.set(state, nk);
+        targets.set(state, nt);
+    }
+
+    private static int[] append(int[] a, int v) {
+        int[] r = Arrays.copyOf(a, a.length + 1);
+        r[a.length] = v;
+        return r;
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        int[] r = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, r, a.length, b.length);
+        return r;
+    }
 }
@@ -15,10 +15,16 @@ public final class PluginRegistry {
 
     public static SqlAnalyzer getAnalyzer(String dbType, List<String> dangerKeywordsWholeText,
                                           List<String> dangerKeywordsAst) {
+        return getAnalyzer(dbType, dangerKeywordsWholeText, dangerKeywordsAst, 0);
+    }
+
+    /** Analyzer with a result cache of up to cacheEntries SQL texts (0 = no cache). */
+    public static SqlAnalyzer getAnalyzer(String dbType, List<String> dangerKeywordsWholeText,
+                                          List<String> dangerKeywordsAst, int cacheEntries) {
         List<String> w = dangerKeywordsWholeText != null ? dangerKeywordsWholeText : Collections.emptyList();
         List<String> a = dangerKeywordsAst != null ? dangerKeywordsAst : Collections.emptyList();
         DbType dt = DbTypes.resolve(dbType);
-        return new DruidSqlAnalyzer(dt, w, a);
+        return new DruidSqlAnalyzer(dt, w, a, cacheEntries);
     }
 
     public static SqlFormatter getFormatter(String dbType) {
@@ -4,6 +4,7 @@ import com.alibaba.druid.DbType;
 import com.alibaba.druid.sql.SQLUtils;
 import com.alibaba.druid.sql.ast.SQLStatement;
 import com.alibaba.druid.sql.ast.statement.*;
+import com.alvinliu.dbmcp.core.AnalysisCache;
 import com.alvinliu.dbmcp.core.AnalysisResult;
 import com.alvinliu.dbmcp.core.DangerKeywordMatcher;
 import com.alvinliu.dbmcp.core.SqlAnalyzer;
@@ -17,22 +18,55 @@ import java.util.Set;
 
 /**
  * SQL analyzer using Alibaba Druid: parse + statement type + whole_text/command_match.
+ * Results are cached by SQL text (optional {@link AnalysisCache}); the review keywords are copied at construction
+ * and never change for an instance, so new keywords mean a new analyzer with an empty cache.
  */
 public class DruidSqlAnalyzer implements SqlAnalyzer {
 
     private final DbType dbType;
     private final List<String> dangerKeywordsWholeText;
     private final List<String> dangerKeywordsAst;
+    /** whole_text + command_match keywords in that order, compiled once; one pass per text instead of one per list. */
+    private final DangerKeywordMatcher keywordMatcher;
+    private final AnalysisCache cache;
 
     public DruidSqlAnalyzer(DbType dbType, List<String> dangerKeywordsWholeText,
                             List<String> dangerKeywordsAst) {
+        this(dbType, dangerKeywordsWholeText, dangerKeywordsAst, 0);
+    }
+
+    /** @param cacheEntries max cached analyses (by SQL text); 0 disables the cache */
+    public DruidSqlAnalyzer(DbType dbType, List<String> dangerKeywordsWholeText,
+                            List<String> dangerKeywordsAst, int cacheEntries) {
         this.dbType = dbType != null ? dbType : DbType.mysql;
-        this.dangerKeywordsWholeText = dangerKeywordsWholeText != null ? dangerKeywordsWholeText : Collections.emptyList();
-        this.dangerKeywordsAst = dangerKeywordsAst != null ? dangerKeywordsAst : Collections.emptyList();
+        this.dangerKeywordsWholeText = dangerKeywordsWholeText != null
+            ? Collections.unmodifiableList(new ArrayList<>(dangerKeywordsWholeText)) : Collections.emptyList();
+        this.dangerKeywordsAst = dangerKeywordsAst != null
+            ? Collections.unmodifiableList(new ArrayList<>(dangerKeywordsAst)) : Collections.emptyList();
+        List<String> merged = new ArrayList<>(this.dangerKeywordsWholeText);
+        merged.addAll(this.dangerKeywordsAst);
+        this.keywordMatcher = DangerKeywordMatcher.compile(merged);
+        this.cache = cacheEntries > 0 ? new AnalysisCache(cacheEntries) : null;
+    }
+
+    /** Cache of analysis results (for hit/miss counters), or null when caching is disabled. */
+    public AnalysisCache getCache() {
+        return cache;
     }
 
+    /** Analyze SQL, serving repeated SQL text from the cache. The returned result may be shared: do not modify it. */
     @Override
     public AnalysisResult analyze(String sql) {
+        if (cache == null || sql == null) return analyzeUncached(sql);
+        AnalysisResult r = cache.get(sql);
+        if (r == null) {
+            r = analyzeUncached(sql);
+            cache.put(sql, r);
+        }
+        return r;
+    }
+
+    private AnalysisResult analyzeUncached(String sql) {
         AnalysisResult r = new AnalysisResult();
         r.setOriginalSQL(sql);
 
@@ -60,13 +94,11 @@ public class DruidSqlAnalyzer implements SqlAnalyzer {
                 return r;
             }
             // 1) whole_text_match on original -> review keywords (trigger review if hit)
-            List<String> matchedOnOriginal = new ArrayList<>(DangerKeywordMatcher.matchWholeText(trimmed, dangerKeywordsWholeText));
-            matchedOnOriginal.addAll(DangerKeywordMatcher.matchWholeText(trimmed, dangerKeywordsAst));
+            List<String> matchedOnOriginal = new ArrayList<>(keywordMatcher.match(trimmed));
             dedupeKeywords(matchedOnOriginal);
             // 2) After format: whole_text_match on formatted text again; use for highlight on formatted HTML
             String formattedSql = SQLUtils.toSQLString(stmts, dbType).trim();
-            List<String> matchedOnFormatted = new ArrayList<>(DangerKeywordMatcher.matchWholeText(formattedSql, dangerKeywordsWholeText));
-            matchedOnFormatted.addAll(DangerKeywordMatcher.matchWholeText(formattedSql, dangerKeywordsAst));
+            List<String> matchedOnFormatted = new ArrayList<>(keywordMatcher.match(formattedSql));
             dedupeKeywords(matchedOnFormatted);
             // 3) Either hit triggers review; merge for dialog display; highlight only on formatted-text hits
             List<String> matchedKeywords = new ArrayList<>(matchedOnOriginal);
@@ -109,9 +141,7 @@ public class DruidSqlAnalyzer implements SqlAnalyzer {
 
     /** Parse failed: merge command_match keywords into whole_text, run whole_text_match on original; preview shows original. */
     private void parseFailedRequireReview(AnalysisResult r, String trimmed) {
-        List<String> merged = new ArrayList<>(dangerKeywordsWholeText);
-        merged.addAll(dangerKeywordsAst);
-        List<String> onOriginal = new ArrayList<>(DangerKeywordMatcher.matchWholeText(trimmed, merged));
+        List<String> onOriginal = new ArrayList<>(keywordMatcher.match(trimmed));
         r.setMatchedKeywords(onOriginal);
         r.setMatchedKeywordsForHighlight(onOriginal); // highlight on preview (original) when parse failed
         r.setMatchedActions(Collections.emptyList());
@@ -0,0 +1,827 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Apache Arrow IPC file writer (query_to_arrow_file): format V5, little-endian, uncompressed, no dictionaries.
+ * <p>
+ * Column types come from ResultSetMetaData: integers, floats, DECIMAL (precision 1..38), DATE, TIME, TIMESTAMP,
+ * booleans and binary map to the matching Arrow types; everything else (and NUMBER without precision) is UTF-8
+ * text. Rows are collected into record batches of up to {@link #BATCH_ROWS} rows (or {@link #BATCH_BYTES} of
+ * variable-length data) and each full batch is written at once, so memory use is bounded by one batch.
+ * Message and footer metadata follow Schema.fbs, Message.fbs and File.fbs, built with the FlatBuffers runtime.
+ */
+final class ArrowFileWriter {
+
+    private static final byte[] MAGIC = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+    private static final int BATCH_ROWS = 64 * 1024;
+    private static final long BATCH_BYTES = 64L << 20;
+
+    private static final short METADATA_V5 = 4;
+    private static final byte HEADER_SCHEMA = 1;
+    private static final byte HEADER_RECORD_BATCH = 3;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_FLOATING_POINT = 3;
+    private static final byte TYPE_BINARY = 4;
+    private static final byte TYPE_UTF8 = 5;
+    private static final byte TYPE_BOOL = 6;
+    private static final byte TYPE_DECIMAL = 7;
+    private static final byte TYPE_DATE = 8;
+    private static final byte TYPE_TIME = 9;
+    private static final byte TYPE_TIMESTAMP = 10;
+    private static final short PRECISION_SINGLE = 1;
+    private static final short PRECISION_DOUBLE = 2;
+    private static final short DATE_UNIT_DAY = 0;
+    private static final short TIME_UNIT_SECOND = 0;
+    private static final short TIME_UNIT_MICROSECOND = 2;
+
+    private final OutputStream out;
+    private final List<String> names;
+    private final List<Column> columns;
+    /** Per record batch written: file offset, metadata length, body length (footer Blocks). */
+    private final List<long[]> blocks = new ArrayList<>();
+    private long position;
+    /** File offsets of the first record batch and of the end-of-stream marker (see {@link Layout}). */
+    private long dataStart;
+    private long dataEnd;
+    private int batchRows;
+    private long rows;
+
+    private ArrowFileWriter(OutputStream out, List<String> names, List<Column> columns) {
+        this.out = out;
+        this.names = names;
+        this.columns = columns;
+    }
+
+    /** Stream the result set into an Arrow file. Returns the number of rows written. */
+    static long writeResultSet(OutputStream out, ResultSet rs, Progress progress) throws SQLException, IOException {
+        return stream(out, rs, progress).rows;
+    }
+
+    /** Like {@link #writeResultSet}, keeping what {@link #merge} needs to join this file with others. */
+    static Layout writeResultSetPart(OutputStream out, ResultSet rs, Progress progress) throws SQLException, IOException {
+        return new Layout(stream(out, rs, progress));
+    }
+
+    /**
+     * Join Arrow files written by {@link #writeResultSetPart} for the same query into one file on target: the
+     * first file's schema, every file's record batches copied in order (no re-encoding), one footer.
+     */
+    static void merge(List<Path> parts, List<Layout> layouts, FileChannel target) throws IOException {
+        Layout first = layouts.get(0);
+        ArrowFileWriter w = new ArrowFileWriter(Channels.newOutputStream(target), first.names, first.columns);
+        for (int i = 0; i < parts.size(); i++) {
+            Layout l = layouts.get(i);
+            try (FileChannel src = FileChannel.open(parts.get(i), StandardOpenOption.READ)) {
+                if (i == 0) w.position += transfer(src, 0, l.dataStart, target);
+                long delta = w.position - l.dataStart;
+                w.position += transfer(src, l.dataStart, l.dataEnd - l.dataStart, target);
+                for (long[] b : l.blocks) w.blocks.add(new long[]{b[0] + delta, b[1], b[2]});
+                w.rows += l.rows;
+            }
+        }
+        w.finish();
+    }
+
+    /** Copy count bytes of src from position to target's current position (kernel copy where supported). */
+    static long transfer(FileChannel src, long position, long count, FileChannel target) throws IOException {
+        long done = 0;
+        while (done < count) {
+            long n = src.transferTo(position + done, count - done, target);
+            if (n <= 0) throw new IOException("short transfer from part file");
+            done += n;
+        }
+        return done;
+    }
+
+    /** Where a finished file keeps its record batches: bytes [dataStart, dataEnd), plus its schema and blocks. */
+    static final class Layout {
+        final List<String> names;
+        final List<Column> columns;
+        final List<long[]> blocks;
+        final long dataStart;
+        final long dataEnd;
+        final long rows;
+
+        private Layout(ArrowFileWriter w) {
+            this.names = w.names;
+            this.columns = w.columns;
+            this.blocks = w.blocks;
+            this.dataStart = w.dataStart;
+            this.dataEnd = w.dataEnd;
+            this.rows = w.rows;
+        }
+
+        long getRows() { return rows; }
+    }
+
+    private static ArrowFileWriter stream(OutputStream out, ResultSet rs, Progress progress) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int cols = meta.getColumnCount();
+        List<String> names = new ArrayList<>(cols);
+        List<Column> columns = new ArrayList<>(cols);
+        for (int i = 1; i <= cols; i++) {
+            names.add(meta.getColumnLabel(i));
+            columns.add(columnFor(meta, i));
+        }
+        ArrowFileWriter w = new ArrowFileWriter(out, names, columns);
+        w.start();
+        while (rs.next()) {
+            for (int i = 0; i < cols; i++) {
+                columns.get(i).read(rs, i + 1);
+            }
+            w.endRow();
+            if ((w.rows & (Progress.ROW_CHUNK - 1)) == 0) progress.addRows(Progress.ROW_CHUNK);
+        }
+        progress.addRows(w.rows & (Progress.ROW_CHUNK - 1));
+        w.finish();
+        return w;
+    }
+
+    /** Already materialized rows (callable / anonymous block): every column is written as UTF-8 text. */
+    static long writeRows(OutputStream out, List<String> names, RowSet rows) throws IOException {
+        List<Column> columns = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) columns.add(new VarColumn(false, VarColumn.OBJECT));
+        ArrowFileWriter w = new ArrowFileWriter(out, names, columns);
+        w.start();
+        for (int r = 0; r < rows.size(); r++) {
+            for (int i = 0; i < columns.size(); i++) {
+                Object v = i < rows.getColumnCount() ? rows.get(r, i) : null;
+                ((VarColumn) columns.get(i)).add(v == null ? null : v.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            w.endRow();
+        }
+        w.finish();
+        return w.rows;
+    }
+
+    /** Single-row file with an int64 rows_affected column, for statements that return no result set. */
+    static void writeRowsAffected(OutputStream out, long rowsAffected) throws IOException {
+        IntColumn c = new IntColumn(64);
+        ArrowFileWriter w = new ArrowFileWriter(out, List.of("rows_affected"), List.of(c));
+        w.start();
+        c.add(rowsAffected);
+        w.endRow();
+        w.finish();
+    }
+
+    private static Column columnFor(ResultSetMetaData meta, int i) throws SQLException {
+        boolean signed;
+        try {
+            signed = meta.isSigned(i);
+        } catch (SQLException e) {
+            signed = true;
+        }
+        switch (meta.getColumnType(i)) {
+            case Types.BOOLEAN:
+                return new BoolColumn();
+            case Types.BIT:
+                return meta.getPrecision(i) > 1 ? new VarColumn(true, VarColumn.BYTES) : new BoolColumn();
+            case Types.TINYINT:
+                return new IntColumn(signed ? 8 : 16);
+            case Types.SMALLINT:
+                return new IntColumn(signed ? 16 : 32);
+            case Types.INTEGER:
+                return new IntColumn(signed ? 32 : 64);
+            case Types.BIGINT:
+                return signed ? new IntColumn(64) : new DecimalColumn(20, 0);
+            case Types.REAL:
+                return new FloatColumn(false);
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return new FloatColumn(true);
+            case Types.DECIMAL:
+            case Types.NUMERIC: {
+                int p = meta.getPrecision(i);
+                int s = meta.getScale(i);
+                if (p >= 1 && p <= 38 && s >= 0 && s <= p) return new DecimalColumn(p, s);
+                return new VarColumn(false, VarColumn.STRING);
+            }
+            case Types.DATE:
+                return new DateColumn();
+            case Types.TIME:
+                return new TimeColumn();
+            case Types.TIMESTAMP:
+                return new TimestampColumn(false);
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return new TimestampColumn(true);
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return new VarColumn(false, VarColumn.STRING);
+            case Types.CLOB:
+            case Types.NCLOB:
+                return new VarColumn(false, VarColumn.CLOB);
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return new VarColumn(true, VarColumn.BYTES);
+            default:
+                return new VarColumn(false, VarColumn.OBJECT);
+        }
+    }
+
+    private void start() throws IOException {
+        write(MAGIC, MAGIC.length);
+        write(new byte[2], 2);
+        FlatBufferBuilder b = builder();
+        writeMessage(b, schema(b), HEADER_SCHEMA, 0);
+        dataStart = position;
+    }
+
+    private void endRow() throws IOException {
+        batchRows++;
+        rows++;
+        if (batchRows >= BATCH_ROWS) {
+            writeBatch();
+            return;
+        }
+        long bytes = 0;
+        for (Column c : columns) bytes += c.dataBytes();
+        if (bytes >= BATCH_BYTES) writeBatch();
+    }
+
+    private void finish() throws IOException {
+        if (batchRows > 0) writeBatch();
+        dataEnd = position;
+        writeIntLE(-1);
+        writeIntLE(0);
+        FlatBufferBuilder b = builder();
+        int schema = schema(b);
+        b.startVector(24, 0, 8);
+        int dictionaries = b.endVector();
+        b.startVector(24, blocks.size(), 8);
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            long[] block = blocks.get(i);
+            b.prep(8, 24);
+            b.putLong(block[2]);
+            b.pad(4);
+            b.putInt((int) block[1]);
+            b.putLong(block[0]);
+        }
+        int recordBatches = b.endVector();
+        b.startTable(5);
+        b.addShort(0, METADATA_V5, 0);
+        b.addOffset(1, schema, 0);
+        b.addOffset(2, dictionaries, 0);
+        b.addOffset(3, recordBatches, 0);
+        b.finish(b.endTable());
+        byte[] footer = b.sizedByteArray();
+        write(footer, footer.length);
+        writeIntLE(footer.length);
+        write(MAGIC, MAGIC.length);
+        out.flush();
+    }
+
+    /** One record batch: FieldNode per column, validity + value buffers, each padded to 8 bytes. */
+    private void writeBatch() throws IOException {
+        List<Buf> buffers = new ArrayList<>();
+        for (Column c : columns) c.collectBuffers(buffers);
+        FlatBufferBuilder b = builder();
+        long bodyLength = 0;
+        long[] offsets = new long[buffers.size()];
+        for (int i = 0; i < buffers.size(); i++) {
+            offsets[i] = bodyLength;
+            bodyLength += padded(buffers.get(i).len);
+        }
+        b.startVector(16, buffers.size(), 8);
+        for (int i = buffers.size() - 1; i >= 0; i--) {
+            b.prep(8, 16);
+            b.putLong(buffers.get(i).len);
+            b.putLong(offsets[i]);
+        }
+        int bufferVector = b.endVector();
+        b.startVector(16, columns.size(), 8);
+        for (int i = columns.size() - 1; i >= 0; i--) {
+            b.prep(8, 16);
+            b.putLong(columns.get(i).nullCount);
+            b.putLong(columns.get(i).count);
+        }
+        int nodeVector = b.endVector();
+        b.startTable(5);
+        b.addLong(0, batchRows, 0);
+        b.addOffset(1, nodeVector, 0);
+        b.addOffset(2, bufferVector, 0);
+        int recordBatch = b.endTable();
+        long offset = position;
+        int metadataLength = writeMessage(b, recordBatch, HEADER_RECORD_BATCH, bodyLength);
+        byte[] zeros = new byte[8];
+        for (Buf buf : buffers) {
+            write(buf.data, buf.len);
+            write(zeros, padded(buf.len) - buf.len);
+        }
+        blocks.add(new long[]{offset, metadataLength, bodyLength});
+        for (Column c : columns) c.reset();
+        batchRows = 0;
+    }
+
+    /** Encapsulated message: continuation marker, metadata size, Message flatbuffer padded to 8. */
+    private int writeMessage(FlatBufferBuilder b, int header, byte headerType, long bodyLength) throws IOException {
+        b.startTable(5);
+        b.addShort(0, METADATA_V5, 0);
+        b.addByte(1, headerType, 0);
+        b.addOffset(2, header, 0);
+        b.addLong(3, bodyLength, 0);
+        b.finish(b.endTable());
+        byte[] fb = b.sizedByteArray();
+        int pad = padded(8 + fb.length) - (8 + fb.length);
+        writeIntLE(-1);
+        writeIntLE(fb.length + pad);
+        write(fb, fb.length);
+        write(new byte[8], pad);
+        return 8 + fb.length + pad;
+    }
+
+    private int schema(FlatBufferBuilder b) {
+        int[] fields = new int[columns.size()];
+        for (int i = 0; i < fields.length; i++) {
+            Column c = columns.get(i);
+            int name = b.createString(names.get(i) != null ? names.get(i) : "");
+            int type = c.type(b);
+            b.startVector(4, 0, 4);
+            int children = b.endVector();
+            b.startTable(7);
+            b.addOffset(0, name, 0);
+            b.addBoolean(1, true, false);
+            b.addByte(2, c.typeTag(), 0);
+            b.addOffset(3, type, 0);
+            b.addOffset(5, children, 0);
+            fields[i] = b.endTable();
+        }
+        b.startVector(4, fields.length, 4);
+        for (int i = fields.length - 1; i >= 0; i--) b.addOffset(fields[i]);
+        int fieldVector = b.endVector();
+        b.startTable(4);
+        b.addShort(0, (short) 0, 0);
+        b.addOffset(1, fieldVector, 0);
+        return b.endTable();
+    }
+
+    private static FlatBufferBuilder builder() {
+        return new FlatBufferBuilder(1024).forceDefaults(true);
+    }
+
+    private static int padded(int n) {
+        return (n + 7) & ~7;
+    }
+
+    private void write(byte[] b, int len) throws IOException {
+        out.write(b, 0, len);
+        position += len;
+    }
+
+    private void writeIntLE(int v) throws IOException {
+        byte[] b = {(byte) v, (byte) (v >>> 8), (byte) (v >>> 16), (byte) (v >>> 24)};
+        write(b, 4);
+    }
+
+    /** Growable little-endian byte buffer; also used as a bitmap. Cleared to zeros on reset. */
+    private static final class Buf {
+        byte[] data = new byte[1024];
+        int len;
+
+        void ensure(int extra) {
+            if (len + extra > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, len + extra));
+        }
+
+        void putLE(long v, int bytes) {
+            ensure(bytes);
+            for (int i = 0; i < bytes; i++) data[len++] = (byte) (v >>> (8 * i));
+        }
+
+        void put(byte[] b) {
+            ensure(b.length);
+            System.arraycopy(b, 0, data, len, b.length);
+            len += b.length;
+        }
+
+        /** Set bit i (bits are appended in order, so the buffer grows one byte per 8 bits). */
+        void setBit(int i, boolean v) {
+            int idx = i >> 3;
+            if (idx >= len) {
+                ensure(idx + 1 - len);
+                len = idx + 1;
+            }
+            if (v) data[idx] |= (byte) (1 << (i & 7));
+        }
+
+        void reset() {
+            Arrays.fill(data, 0, len, (byte) 0);
+            len = 0;
+        }
+    }
+
+    /** One column of the current batch: validity bitmap plus type-specific value buffers. */
+    private abstract static class Column {
+        final Buf validity = new Buf();
+        int count;
+        int nullCount;
+
+        abstract void read(ResultSet rs, int index) throws SQLException;
+
+        abstract byte typeTag();
+
+        abstract int type(FlatBufferBuilder b);
+
+        abstract void collectValueBuffers(List<Buf> out);
+
+        abstract void resetValues();
+
+        long dataBytes() {
+            return 0;
+        }
+
+        void valid(boolean valid) {
+            validity.setBit(count, valid);
+            if (!valid) nullCount++;
+            count++;
+        }
+
+        final void collectBuffers(List<Buf> out) {
+            out.add(validity);
+            collectValueBuffers(out);
+        }
+
+        final void reset() {
+            validity.reset();
+            count = 0;
+            nullCount = 0;
+            resetValues();
+        }
+    }
+
+    private static final class BoolColumn extends Column {
+        final Buf values = new Buf();
+
+        @Override void read(ResultSet rs, int index) throws SQLException {
+            boolean v = rs.getBoolean(index);
+            boolean valid = !rs.wasNull();
+            values.setBit(count, valid && v);
+            valid(valid);
+        }
+
+        @Override byte typeTag() { return TYPE_BOOL; }
+
+        @Override int type(FlatBufferBuilder b) {
+            b.startTable(0);
+            return b.endTable();
+        }
+
+        @Override void collectValueBuffers(List<Buf> out) { out.add(values); }
+
+        @Override void resetValues() { values.reset(); }
+    }
+
+    private static final class IntColumn extends Column {
+        final int bitWidth;
+        final Buf values = new Buf();
+
+        IntColumn(int bitWidth) {
+            this.bitWidth = bitWidth;
+        }
+
+        @Override void read(ResultSet rs, int index) throws SQLException {
+            long v = rs.getLong(index);
+            boolean valid = !rs.wasNull();
+            values.putLE(valid ? v : 0, bitWidth / 8);
+            valid(valid);
+        }
+
+        void add(long v) {
+            values.putLE(v, bitWidth / 8);
+            valid(true);
+        }
+
+        @Override byte typeTag() { return TYPE_INT; }
+
+        @Override int type(FlatBufferBuilder b) {
+            b.startTable(2);
+            b.addInt(0, bitWidth, 0);
+            b.addBoolean(1, true, false);
+            return b.endTable();
+        }
+
+        @Override void collectValueBuffers(List<Buf> out) { out.add(values); }
+
+        @Override void resetValues() { values.reset(); }
+    }
+
+    private static final class FloatColumn extends Column {
+        final boolean isDouble;
+        final Buf values = new Buf();
+
+        FloatColumn(boolean isDouble) {
+            this.isDouble = isDouble;
+        }
+
+        @Override void read(ResultSet rs, int index) throws SQLException {
+            boolean valid;
+            if (isDouble) {
+                double v = rs.getDouble(index);
+                valid = !rs.wasNull();
+                values.putLE(Double.doubleToRawLongBits(valid ? v : 0), 8);
+            } else {
+                float v = rs.getFloat(index);
+                valid = !rs.wasNull();
+                values.putLE(Float.floatToRawIntBits(valid ? v : 0), 4);
+            }
+            valid(valid);
+        }
+
+        @Override byte typeTag() { return TYPE_FLOATING_POINT; }
+
+        @Override int type(FlatBufferBuilder b) {
+            b.startTable(1);
+            b.addShort(0, isDouble ? PRECISION_DOUBLE : PRECISION_SINGLE, 0);
+            return b.endTable();
+        }
+
+        @Override void collectValueBuffers(List<Buf> out) { out.add(values); }
+
+        @Override void resetValues() { values.reset(); }
+    }
+
+    /** 128-bit decimal: unscaled value as little-endian two's complement, rounded to the column scale. */
+    private static final class DecimalColumn extends Column {
+        final int precision;
+        final int scale;
+        final Buf values = new Buf();
+
+        DecimalColumn(int precision, int scale) {
+            this.precision = precision;
+            this.scale = scale;
+        }
+
+        @Override void read(ResultSet rs, int index) throws SQLException {
+            BigDecimal v = rs.getBigDecimal(index);
+            if (v == null) {
+                values.putLE(0, 8);
+                values.putLE(0, 8);
+                valid(false);
+                return;
+            }
+            BigInteger unscaled = v.setScale(scale, RoundingMode.HALF_UP).unscaledValue();
+            if (unscaled.bitLength() > 127) {
+                throw new SQLException("Value " + v + " does not fit DECIMAL(" + precision + "," + scale + ")");
+            }
+            byte[] be = unscaled.toByteArray();
+            byte fill = (byte) (unscaled.signum() < 0 ? 0xFF : 0);
+            values.ensure(16);
+            for (int i = 0; i < 16; i++) {
+                values.data[values.len++] = i < be.length ? be[be.length - 1 - i] : fill;
+            }
+            valid(true);
+        }
+
+        @Override byte typeTag() { return TYPE_DECIMAL; }
+
+        @Override int type(FlatBufferBuilder b) {
+            b.startTable(3);
+            b.addInt(0, precision, 0);
+            b.addInt(1, scale, 0);
+            b.addInt(2, 128, 128);
+            return b.endTable();
+        }
+
+        @Override void collectValueBuffers(List<Buf> out) { out.add(values); }
+
+        @Override void resetValues() { values.reset(); }
+    }
+
+    /** date32: days since 1970-01-01. */
+    private static final class DateColumn extends Column {
+        final Buf values = new Buf();
+
+        @Override void read(ResultSet rs, int index) throws SQLException {
+            Date d = rs.getDate(index);
+            values.putLE(d != null ? d.toLocalDate().toEpochDay() : 0, 4);
+            valid(d != null);
+        }
+
+        @Override byte typeTag() { return TYPE_DATE; }
+
+        @Override int type(FlatBufferBuilder b) {
+            b.startTable(1);
+            b.addShort(0, DATE_UNIT_DAY, 1);
+            return b.endTable();
+        }
+
+        @Override void collectValueBuffers(List<Buf> out) { out.add(values); }
+
+        @Override void resetValues() { values.reset(); }
+    }
+
+    /** time32[s]: seconds since midnight (java.sql.Time carries no fractional seconds). */
+    private static final class TimeColumn extends Column {
+        final Buf values = new Buf();
+
+        @Override void read(ResultSet rs, int index) throws SQLException {
+            Time t = rs.getTime(index);
+            values.putLE(t != null ? t.toLocalTime().toSecondOfDay() : 0, 4);
+            valid(t != null);
+        }
+
+        @Override byte typeTag() { return TYPE_TIME; }
+
+        @Override int type(FlatBufferBuilder b) {
+            b.startTable(2);
+            b.addShort(0, TIME_UNIT_SECOND, 1);
+            b.addInt(1, 32, 32);
+            return b.endTable();
+        }
+
+        @Override void collectValueBuffers(List<Buf> out) { out.add(values); }
+
+        @Override void resetValues() { values.reset(); }
+    }
+
+    /**
+     * timestamp[us]: without time zone the wall-clock value is stored as if it were UTC (Arrow convention);
+     * WITH TIME ZONE columns store the instant and carry timezone "UTC".
+     */
+    private static final class TimestampColumn extends Column {
+        final boolean utc;
+        final Buf values = new Buf();
+
+        TimestampColumn(boolean utc) {
+            this.utc = utc;
+        }
+
+        @Override void read(ResultSet rs, int index) throws SQLException {
+            Timestamp ts = rs.getTimestamp(index);
+            if (ts == null) {
+                values.putLE(0, 8);
+                valid(false);
+                return;
+            }
+            long seconds;
+            if (utc) {
+                seconds = Math.floorDiv(ts.getTime(), 1000L);
+            } else {
+                LocalDateTime ldt = ts.toLocalDateTime();
+                seconds = ldt.toEpochSecond(ZoneOffset.UTC);
+            }
+            values.putLE(seconds * 1_000_000L + ts.getNanos() / 1000, 8);
+            valid(true);
+        }
+
+        @Override byte typeTag() { return TYPE_TIMESTAMP; }
+
+        @Override int type(FlatBufferBuilder b) {
+            int tz = utc ? b.createString("UTC") : 0;
+            b.startTable(2);
+            b.addShort(0, TIME_UNIT_MICROSECOND, 0);
+            if (utc) b.addOffset(1, tz, 0);
+            return b.endTable();
+        }
+
+        @Override void collectValueBuffers(List<Buf> out) { out.add(values); }
+
+        @Override void resetValues() { values.reset(); }
+    }
+
+    /** utf8 / binary: int32 offsets plus data bytes. LOB values are streamed into the data buffer. */
+    private static final class VarColumn extends Column {
+        private static final int STREAM_CHUNK = 8192;
+
+        static final int STRING = 0;
+        static final int CLOB = 1;
+        static final int BYTES = 2;
+        static final int OBJECT = 3;
+
+        final boolean binary;
+        final int source;
+        final Buf offsets = new Buf();
+        final Buf data = new Buf();
+
+        VarColumn(boolean binary, int source) {
+            this.binary = binary;
+            this.source = source;
+            offsets.putLE(0, 4);
+        }
+
+        @Override void read(ResultSet rs, int index) throws SQLException {
+            switch (source) {
+                case BYTES:
+                    addBytes(rs.getBinaryStream(index));
+                    return;
+                case CLOB:
+                    addChars(rs.getCharacterStream(index));
+                    return;
+                case OBJECT: {
+                    Object o = rs.getObject(index);
+                    if (o instanceof Clob) o = JdbcExecutor.clobToString((Clob) o);
+                    add(o != null ? o.toString().getBytes(StandardCharsets.UTF_8) : null);
+                    return;
+                }
+                default: {
+                    String s = rs.getString(index);
+                    add(s != null ? s.getBytes(StandardCharsets.UTF_8) : null);
+                }
+            }
+        }
+
+        void add(byte[] v) {
+            if (v != null) data.put(v);
+            offsets.putLE(data.len, 4);
+            valid(v != null);
+        }
+
+        /** Copy a binary value straight into the data buffer, chunk by chunk. */
+        void addBytes(InputStream in) throws SQLException {
+            if (in == null) {
+                add(null);
+                return;
+            }
+            try (InputStream s = in) {
+                int n;
+                do {
+                    data.ensure(STREAM_CHUNK);
+                    n = s.read(data.data, data.len, STREAM_CHUNK);
+                    if (n > 0) data.len += n;
+                } while (n >= 0);
+            } catch (IOException e) {
+                throw new SQLException("Failed to read binary data", e);
+            }
+            offsets.putLE(data.len, 4);
+            valid(true);
+        }
+
+        /**
+         * Encode a character value to UTF-8 into the data buffer chunk by chunk (a high surrogate ending a chunk
+         * waits for its pair), instead of building the whole String and then its bytes.
+         */
+        void addChars(Reader r) throws SQLException {
+            if (r == null) {
+                add(null);
+                return;
+            }
+            try (Reader in = r) {
+                char[] buf = new char[STREAM_CHUNK];
+                int held = 0;
+                int n;
+                while ((n = in.read(buf, held, buf.length - held)) >= 0) {
+                    int end = held + n;
+                    held = end > 0 && Character.isHighSurrogate(buf[end - 1]) ? 1 : 0;
+                    data.put(new String(buf, 0, end - held).getBytes(StandardCharsets.UTF_8));
+                    if (held == 1) buf[0] = buf[end - 1];
+                }
+                if (held == 1) data.put(new String(buf, 0, 1).getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new SQLException("Failed to read character data", e);
+            }
+            offsets.putLE(data.len, 4);
+            valid(true);
+        }
+
+        @Override long dataBytes() { return data.len; }
+
+        @Override byte typeTag() { return binary ? TYPE_BINARY : TYPE_UTF8; }
+
+        @Override int type(FlatBufferBuilder b) {
+            b.startTable(0);
+            return b.endTable();
+        }
+
+        @Override void collectValueBuffers(List<Buf> out) {
+            out.add(offsets);
+            out.add(data);
+        }
+
+        @Override void resetValues() {
+            offsets.reset();
+            data.reset();
+            offsets.putLE(0, 4);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops one tool call's statements early. {@link #cancel} calls {@link Statement#cancel()} on every statement
+ * running for the call and makes later ones fail before they start; a timeout does the same when it expires and
+ * also caps each statement's query timeout. Thread-safe: a partitioned export runs one statement per worker.
+ * A {@link #child} stops part of a call (one export's ranges) without stopping the rest.
+ */
+public final class Cancellation {
+    /** Query timeout of statements when the call sets no timeout. */
+    public static final int DEFAULT_TIMEOUT_SECONDS = 300;
+
+    private final Cancellation parent;
+    private final Set<Statement> running = ConcurrentHashMap.newKeySet();
+    private volatile String reason;
+    private volatile long timeoutMs;
+    private volatile long deadlineNanos;
+    private volatile Future<?> timer;
+
+    public Cancellation() {
+        this(null);
+    }
+
+    private Cancellation(Cancellation parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Cancellation for part of this call. Its statements are tracked here too, so cancelling the call or its
+     * timeout still reaches them; cancelling the child stops only its own.
+     */
+    public Cancellation child() {
+        return new Cancellation(this);
+    }
+
+    /** Time the call may spend once {@link #startTimer} is called; 0 = only the default query timeout. */
+    public long getTimeoutMs() { return timeoutMs; }
+    public void setTimeoutMs(long timeoutMs) { this.timeoutMs = Math.max(0, timeoutMs); }
+
+    /** Start counting the timeout (no-op without one): the call is cancelled on scheduler when it runs out. */
+    public void startTimer(ScheduledExecutorService scheduler) {
+        long ms = timeoutMs;
+        if (ms <= 0) return;
+        deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ms);
+        timer = scheduler.schedule(this::expire, ms, TimeUnit.MILLISECONDS);
+    }
+
+    private void expire() {
+        cancel("Query cancelled: timeout_ms " + timeoutMs + " exceeded");
+    }
+
+    /**
+     * Track st until {@link #end}: set its query timeout to the time left, and fail instead if the call is already
+     * cancelled or out of time.
+     */
+    public void begin(Statement st) throws SQLException {
+        if (parent != null) {
+            parent.begin(st);
+            running.add(st);
+            if (reason != null) {
+                end(st);
+                check();
+            }
+            return;
+        }
+        running.add(st);
+        try {
+            int seconds = DEFAULT_TIMEOUT_SECONDS;
+            if (deadlineNanos != 0) {
+                long left = deadlineNanos - System.nanoTime();
+                if (left <= 0) expire();
+                seconds = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (TimeUnit.NANOSECONDS.toMillis(left) + 999) / 1000));
+            }
+            check();
+            st.setQueryTimeout(seconds);
+        } catch (SQLException e) {
+            running.remove(st);
+            throw e;
+        }
+    }
+
+    public void end(Statement st) {
+        running.remove(st);
+        if (parent != null) parent.end(st);
+    }
+
+    /** Throws with the cancel reason once the call is cancelled. */
+    public void check() throws SQLException {
+        String r = reason;
+        if (r != null) throw new SQLException(r);
+        if (parent != null) parent.check();
+    }
+
+    /** Cancel the running statements (first reason wins). Safe to call from any thread, any number of times. */
+    public void cancel(String why) {
+        if (reason == null) reason = why;
+        for (Statement st : running) {
+            try {
+                st.cancel();
+            } catch (SQLException | RuntimeException ignored) {
+                // driver cannot cancel; the query timeout still applies
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return reason != null || parent != null && parent.isCancelled();
+    }
+
+    /** Message to report for a failure: the cancel reason if the call was cancelled (drivers word it variously), else e's. */
+    public String describe(Exception e) {
+        String r = reason;
+        return r != null ? r : e.getMessage();
+    }
+
+    /** The call is over: stop the timer. */
+    public void finish() {
+        Future<?> t = timer;
+        if (t != null) t.cancel(false);
+        running.clear();
+    }
+}
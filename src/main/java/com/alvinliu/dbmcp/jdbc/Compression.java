@@ -0,0 +1,87 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of a CSV / text export, applied while the file is written. GZIP uses the JDK; ZSTD needs zstd-jni
+ * (com.github.luben:zstd-jni) on the classpath, like a JDBC driver, and is looked up by class name. Concatenated
+ * gzip members and zstd frames are each one valid stream, so partitioned exports merge by plain byte copy.
+ */
+public enum Compression {
+    NONE(0, 0),
+    GZIP(9, 6),
+    ZSTD(22, 3);
+
+    private static final String ZSTD_STREAM = "com.github.luben.zstd.ZstdOutputStream";
+
+    private final int maxLevel;
+    private final int defaultLevel;
+
+    Compression(int maxLevel, int defaultLevel) {
+        this.maxLevel = maxLevel;
+        this.defaultLevel = defaultLevel;
+    }
+
+    /** none, gzip or zstd (any case). Throws IllegalArgumentException otherwise, or when zstd-jni is missing. */
+    public static Compression parse(String name) {
+        Compression c;
+        try {
+            c = valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("compression must be 'none', 'gzip' or 'zstd'");
+        }
+        if (c == ZSTD && zstdStream() == null) {
+            throw new IllegalArgumentException("compression 'zstd' needs the zstd-jni JAR (com.github.luben:zstd-jni) on the classpath");
+        }
+        return c;
+    }
+
+    /** Highest level accepted (1 is the fastest); 0 for NONE. */
+    public int getMaxLevel() { return maxLevel; }
+
+    /** Level used when none is given. */
+    public int getDefaultLevel() { return defaultLevel; }
+
+    /**
+     * Compressing stream over out at level (0 = default level) that hands out bufferSize bytes at a time;
+     * closing it finishes the stream and closes out. NONE returns out.
+     */
+    OutputStream wrap(OutputStream out, int level, int bufferSize) throws IOException {
+        int l = level > 0 ? level : defaultLevel;
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, bufferSize) {
+                    {
+                        def.setLevel(l);
+                    }
+                };
+            case ZSTD:
+                try {
+                    return zstdStream().newInstance(new BufferedOutputStream(out, bufferSize), l);
+                } catch (InvocationTargetException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) throw (IOException) cause;
+                    throw new IOException("zstd: " + cause, cause);
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    throw new IOException("zstd: " + e, e);
+                }
+            default:
+                return out;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Constructor<? extends OutputStream> zstdStream() {
+        try {
+            return ((Class<? extends OutputStream>) Class.forName(ZSTD_STREAM)).getConstructor(OutputStream.class, int.class);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
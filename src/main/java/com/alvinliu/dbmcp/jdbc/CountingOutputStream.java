@@ -0,0 +1,39 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream that counts bytes passed through to the underlying stream (for export byte counts), also adding
+ * them to the call's {@link Progress}.
+ */
+final class CountingOutputStream extends FilterOutputStream {
+    private final Progress progress;
+    private long count;
+
+    CountingOutputStream(OutputStream out) {
+        this(out, Progress.NONE);
+    }
+
+    CountingOutputStream(OutputStream out, Progress progress) {
+        super(out);
+        this.progress = progress;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        count++;
+        progress.addBytes(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        count += len;
+        progress.addBytes(len);
+    }
+
+    long getCount() { return count; }
+}
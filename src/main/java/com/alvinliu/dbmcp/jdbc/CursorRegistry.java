@@ -0,0 +1,222 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Server-side cursors for results cut off by max_rows. Keeps the pooled connection, statement and ResultSet open
+ * so fetch_more can page through the rest. Cursors idle longer than the timeout are closed by a background sweeper;
+ * when the open limit is reached the least recently used cursor is closed to make room. Each connection name also
+ * has its own limit (by default half its pool), so open cursors never take a whole pool; past it the least
+ * recently used cursor of that connection is closed.
+ * A cursor is removed from the registry while a page is being read, so it is never used by two calls at once.
+ */
+public class CursorRegistry {
+    private final long idleTimeoutMs;
+    private final int maxOpen;
+    private final ToIntFunction<String> maxPerConnection;
+    /** Access-ordered so the first entry is the least recently used. Guarded by this. */
+    private final Map<String, Cursor> cursors = new LinkedHashMap<>(16, 0.75f, true);
+    private final ScheduledExecutorService sweeper;
+
+    private static final class Cursor {
+        final String connectionName;
+        final int connectionLimit;
+        final Connection conn;
+        final Statement st;
+        final ResultSet rs;
+        final List<String> columns;
+        final String statementType;
+        final int maxLobChars;
+        /** Auto-commit was turned off so the driver streams (see JdbcExecutor.beginStreaming). */
+        final boolean inTransaction;
+        /**
+         * The driver streams row by row (MySQL's Integer.MIN_VALUE fetch size) and reads every remaining row when
+         * the result is closed, so a cursor closed early cancels its query first.
+         */
+        final boolean streamsRows;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Cursor(String connectionName, int connectionLimit, Connection conn, Statement st, ResultSet rs, List<String> columns,
+               String statementType, int maxLobChars, boolean inTransaction, boolean streamsRows) {
+            this.connectionName = connectionName;
+            this.connectionLimit = connectionLimit;
+            this.conn = conn;
+            this.st = st;
+            this.rs = rs;
+            this.columns = columns;
+            this.statementType = statementType;
+            this.maxLobChars = maxLobChars;
+            this.inTransaction = inTransaction;
+            this.streamsRows = streamsRows;
+        }
+
+        void close() {
+            close(null);
+        }
+
+        /** Close the result and return the connection, first ending its transaction (rolled back after failure). */
+        void close(Throwable failure) {
+            close(failure, true);
+        }
+
+        /** Every row was read: nothing is left to cancel. */
+        void closeExhausted() {
+            close(null, false);
+        }
+
+        private void close(Throwable failure, boolean rowsLeft) {
+            if (rowsLeft && streamsRows) {
+                try { st.cancel(); } catch (SQLException | RuntimeException ignored) {}
+            }
+            try { rs.close(); } catch (SQLException ignored) {}
+            try { st.close(); } catch (SQLException ignored) {}
+            if (inTransaction) {
+                try { JdbcExecutor.endStreaming(conn, failure); } catch (SQLException ignored) {}
+            }
+            try { conn.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    /** @param maxPerConnection cursors allowed at once for a connection name (at least 1 is kept) */
+    public CursorRegistry(long idleTimeoutMs, int maxOpen, ToIntFunction<String> maxPerConnection) {
+        this.idleTimeoutMs = Math.max(1000, idleTimeoutMs);
+        this.maxOpen = Math.max(1, maxOpen);
+        this.maxPerConnection = maxPerConnection;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-mcp-cursor-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(this.idleTimeoutMs / 2, 30_000));
+        sweeper.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Take ownership of an open result positioned on its next unread row, read from a connection of the named pool
+     * (null = not counted per connection). The connection is closed (returned to the pool) when the cursor is
+     * exhausted, closed or evicted; with inTransaction its transaction is ended first. With streamsRows (the driver
+     * streams row by row) a cursor closed before its last row cancels the statement first. Returns the cursor token.
+     */
+    String open(String connectionName, Connection conn, Statement st, ResultSet rs, List<String> columns, String statementType,
+                int maxLobChars, boolean inTransaction, boolean streamsRows) {
+        int limit = connectionName != null ? Math.max(1, maxPerConnection.applyAsInt(connectionName)) : Integer.MAX_VALUE;
+        String token = UUID.randomUUID().toString();
+        put(token, new Cursor(connectionName, limit, conn, st, rs, columns, statementType, maxLobChars, inTransaction,
+            streamsRows));
+        return token;
+    }
+
+    /**
+     * Read the next page (up to maxRows, 0 = all remaining). Returns null if the cursor is unknown, expired or busy.
+     * The returned result carries the same cursor token while more rows remain; otherwise the cursor is closed.
+     */
+    public ExecutionResult fetch(String token, int maxRows) throws SQLException {
+        Cursor c;
+        synchronized (this) {
+            c = cursors.remove(token);
+        }
+        if (c == null) return null;
+        long start = System.currentTimeMillis();
+        ExecutionResult r = new ExecutionResult();
+        r.setStatementType(c.statementType);
+        try {
+            RowSet rows = new RowSet(c.rs.getMetaData(), c.maxLobChars);
+            boolean more = rows.read(c.rs, maxRows, true);
+            r.setWarning(JdbcExecutor.truncationWarning(rows, c.maxLobChars));
+            r.setColumns(c.columns);
+            r.setRows(rows);
+            r.setRowsAffected(rows.size());
+            r.setSuccess(true);
+            if (more) {
+                c.lastUsed = System.currentTimeMillis();
+                put(token, c);
+                r.setCursor(token);
+                r.setHasMore(true);
+            } else {
+                c.closeExhausted();
+            }
+        } catch (SQLException | RuntimeException e) {
+            c.close(e);
+            throw e;
+        }
+        r.setExecutionTimeMs(System.currentTimeMillis() - start);
+        return r;
+    }
+
+    /** Close a cursor early. Returns false if it was unknown or already closed. */
+    public boolean close(String token) {
+        Cursor c;
+        synchronized (this) {
+            c = cursors.remove(token);
+        }
+        if (c == null) return false;
+        c.close();
+        return true;
+    }
+
+    /** Close all cursors and stop the sweeper. */
+    public void closeAll() {
+        sweeper.shutdownNow();
+        List<Cursor> all;
+        synchronized (this) {
+            all = new ArrayList<>(cursors.values());
+            cursors.clear();
+        }
+        for (Cursor c : all) c.close();
+    }
+
+    private void put(String token, Cursor c) {
+        List<Cursor> evicted = new ArrayList<>(2);
+        synchronized (this) {
+            if (c.connectionName != null) {
+                Cursor oldest = null;
+                int count = 0;
+                for (Cursor other : cursors.values()) {
+                    if (!c.connectionName.equals(other.connectionName)) continue;
+                    if (oldest == null) oldest = other;
+                    count++;
+                }
+                if (count >= c.connectionLimit) {
+                    cursors.values().remove(oldest);
+                    evicted.add(oldest);
+                }
+            }
+            if (cursors.size() >= maxOpen) {
+                Iterator<Cursor> it = cursors.values().iterator();
+                evicted.add(it.next());
+                it.remove();
+            }
+            cursors.put(token, c);
+        }
+        for (Cursor e : evicted) e.close();
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        List<Cursor> expired = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Cursor> it = cursors.values().iterator();
+            while (it.hasNext()) {
+                Cursor c = it.next();
+                if (c.lastUsed < cutoff) {
+                    expired.add(c);
+                    it.remove();
+                }
+            }
+        }
+        for (Cursor c : expired) c.close();
+    }
+}
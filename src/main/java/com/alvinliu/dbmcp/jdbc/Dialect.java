@@ -0,0 +1,98 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+/**
+ * What the executor needs to know about a database, read from {@link DatabaseMetaData} once per data source
+ * (see {@link JdbcPool#getDialect(String, Connection)}) so statements never ask the driver again. Immutable.
+ */
+public final class Dialect {
+
+    /** Used when nothing is known: no Oracle blocks, batches allowed, plain fetch size. */
+    public static final Dialect GENERIC = new Dialect("", "", 0, "", false, true, JdbcExecutor.EXPORT_FETCH_SIZE, false);
+
+    private final String productName;
+    private final String productVersion;
+    private final int majorVersion;
+    private final String driverName;
+    private final boolean oracle;
+    private final boolean batchUpdates;
+    private final int exportFetchSize;
+    private final boolean fetchNeedsTransaction;
+
+    private Dialect(String productName, String productVersion, int majorVersion, String driverName, boolean oracle,
+                    boolean batchUpdates, int exportFetchSize, boolean fetchNeedsTransaction) {
+        this.productName = productName;
+        this.productVersion = productVersion;
+        this.majorVersion = majorVersion;
+        this.driverName = driverName;
+        this.oracle = oracle;
+        this.batchUpdates = batchUpdates;
+        this.exportFetchSize = exportFetchSize;
+        this.fetchNeedsTransaction = fetchNeedsTransaction;
+    }
+
+    /** Read the descriptor from the connection's metadata; GENERIC if the driver cannot tell. */
+    public static Dialect detect(Connection conn) {
+        try {
+            DatabaseMetaData md = conn.getMetaData();
+            if (md == null) return GENERIC;
+            String product = nullToEmpty(md.getDatabaseProductName());
+            String driver = nullToEmpty(md.getDriverName());
+            String p = product.toUpperCase();
+            boolean batch;
+            try {
+                batch = md.supportsBatchUpdates();
+            } catch (SQLException | RuntimeException e) {
+                batch = true;
+            }
+            int major;
+            try {
+                major = md.getDatabaseMajorVersion();
+            } catch (SQLException | RuntimeException | AbstractMethodError e) {
+                major = 0;
+            }
+            // MySQL Connector/J buffers the whole result unless asked to stream row by row with MIN_VALUE;
+            // the PostgreSQL driver honours the fetch size only inside a transaction.
+            int fetch = driver.toUpperCase().contains("MYSQL") ? Integer.MIN_VALUE : JdbcExecutor.EXPORT_FETCH_SIZE;
+            return new Dialect(product, nullToEmpty(md.getDatabaseProductVersion()), major, driver,
+                p.contains("ORACLE"), batch, fetch, p.contains("POSTGRESQL"));
+        } catch (SQLException e) {
+            return GENERIC;
+        }
+    }
+
+    /** Best guess from the configured db_type when no connection can be opened (e.g. for script analysis). */
+    public static Dialect fromDbType(String dbType) {
+        String t = dbType != null ? dbType.trim().toLowerCase() : "";
+        boolean oracle = "oracle".equals(t) || "oceanbase_oracle".equals(t);
+        return oracle ? new Dialect("", "", 0, "", true, true, JdbcExecutor.EXPORT_FETCH_SIZE, false) : GENERIC;
+    }
+
+    private static String nullToEmpty(String s) {
+        return s != null ? s : "";
+    }
+
+    public String getProductName() { return productName; }
+
+    public String getProductVersion() { return productVersion; }
+
+    /** Database major version; 0 when unknown. */
+    public int getMajorVersion() { return majorVersion; }
+
+    public String getDriverName() { return driverName; }
+
+    /** Oracle: BEGIN/DECLARE anonymous blocks run via CallableStatement and end only at a "/" line in scripts. */
+    public boolean isOracle() { return oracle; }
+
+    /** Whether consecutive DML may be sent as one JDBC batch (DatabaseMetaData.supportsBatchUpdates). */
+    public boolean supportsBatchUpdates() { return batchUpdates; }
+
+    /** Fetch size that makes the driver stream an export instead of buffering the whole result. */
+    public int getExportFetchSize() { return exportFetchSize; }
+
+    /** Whether the driver streams with a fetch size only when auto-commit is off (PostgreSQL). */
+    public boolean isFetchNeedsTransaction() { return fetchNeedsTransaction; }
+}
@@ -0,0 +1,74 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-call options for {@link JdbcExecutor#execute(java.sql.Connection, String, ExecuteOptions)}.
+ * Defaults: no row cap, driver default fetch size, no cursors (rows past the cap are dropped), no batching,
+ * no bound parameters, 300 s query timeout.
+ */
+public class ExecuteOptions {
+    private int maxRows;
+    private int maxLobChars;
+    private int fetchSize;
+    private CursorRegistry cursors;
+    private String connectionName;
+    private int batchSize;
+    private List<Object> params;
+    private Map<Integer, Integer> outParams;
+    private Dialect dialect;
+    private Cancellation cancellation = new Cancellation();
+    private Progress progress = Progress.NONE;
+
+    /** Max rows returned inline per result set; 0 = unlimited. */
+    public int getMaxRows() { return maxRows; }
+    public void setMaxRows(int maxRows) { this.maxRows = Math.max(0, maxRows); }
+
+    /** Max chars of a LOB or long text value returned inline (binary: hex chars); longer ones are cut. 0 = unlimited. */
+    public int getMaxLobChars() { return maxLobChars; }
+    public void setMaxLobChars(int maxLobChars) { this.maxLobChars = Math.max(0, maxLobChars); }
+
+    /** JDBC fetch size hint; 0 = driver default (or max_rows + 1 when a cap is set). */
+    public int getFetchSize() { return fetchSize; }
+    public void setFetchSize(int fetchSize) { this.fetchSize = Math.max(0, fetchSize); }
+
+    /** Where to keep the last statement's ResultSet open when it has more rows than max_rows; null = do not keep. */
+    public CursorRegistry getCursors() { return cursors; }
+    public void setCursors(CursorRegistry cursors) { this.cursors = cursors; }
+
+    /** Pool the connection was borrowed from; cursors are limited per name. null = not counted per connection. */
+    public String getConnectionName() { return connectionName; }
+    public void setConnectionName(String connectionName) { this.connectionName = connectionName; }
+
+    /** Consecutive DML statements sent per JDBC batch (addBatch/executeBatch); 0 = run each statement on its own. */
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = Math.max(0, batchSize); }
+
+    /**
+     * Values bound to the ? placeholders in order through a PreparedStatement (String, Long, Double, BigDecimal,
+     * Boolean or null); null = run the SQL text as is. Only valid with a single statement.
+     */
+    public List<Object> getParams() { return params; }
+    public void setParams(List<Object> params) { this.params = params; }
+
+    /**
+     * OUT / INOUT placeholders of a callable statement: 1-based position to java.sql.Types code, registered with
+     * registerOutParameter and returned in the result's outParams. A params value at such a position is bound as
+     * the INOUT input unless it is null. null = none. Only valid with a single callable statement.
+     */
+    public Map<Integer, Integer> getOutParams() { return outParams; }
+    public void setOutParams(Map<Integer, Integer> outParams) { this.outParams = outParams; }
+
+    /** Database descriptor (usually cached by {@link JdbcPool}); null = read from the connection once per call. */
+    public Dialect getDialect() { return dialect; }
+    public void setDialect(Dialect dialect) { this.dialect = dialect; }
+
+    /** Cancels the call's statements (client cancel or timeout_ms); never null. */
+    public Cancellation getCancellation() { return cancellation; }
+    public void setCancellation(Cancellation cancellation) { this.cancellation = cancellation; }
+
+    /** Statements completed and rows touched, for progress notifications; {@link Progress#NONE} = not tracked. */
+    public Progress getProgress() { return progress; }
+    public void setProgress(Progress progress) { this.progress = progress; }
+}
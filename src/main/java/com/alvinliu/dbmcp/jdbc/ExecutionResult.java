@@ -1,24 +1,42 @@
 package com.alvinliu.dbmcp.jdbc;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Result of executing SQL (aligned with Go ExecutionResult for MCP response).
  */
 public class ExecutionResult {
     private List<String> columns;
-    private List<List<Object>> rows;
+    /** Rows read, typed per column; serialized as an array of row arrays. */
+    private RowSet rows;
     private long rowsAffected;
     private boolean success;
     private String statementType;
     private long executionTimeMs;
     private String warning;
+    /** True when more rows exist than were returned (max_rows reached). */
+    private boolean hasMore;
+    /** Token for fetch_more when the remaining rows are kept open server-side; null otherwise. */
+    private String cursor;
+    /**
+     * Batch mode only: one entry per statement, in order. Rows affected, -1 for a statement that returned a
+     * result set, -2 (SUCCESS_NO_INFO) when the driver gives no count, -3 (EXECUTE_FAILED) for failed or skipped.
+     */
+    private List<Long> updateCounts;
+    /** Callable statements only: result sets after the first (which is in columns / rows), in order; null when none. */
+    private List<ResultSetData> moreResults;
+    /**
+     * Callable statements with out_params only: OUT / INOUT values keyed by 1-based placeholder position ("2"),
+     * typed like row values; a cursor is a {@link ResultSetData}.
+     */
+    private Map<String, Object> outParams;
 
     public List<String> getColumns() { return columns; }
     public void setColumns(List<String> columns) { this.columns = columns; }
 
-    public List<List<Object>> getRows() { return rows; }
-    public void setRows(List<List<Object>> rows) { this.rows = rows; }
+    public RowSet getRows() { return rows; }
+    public void setRows(RowSet rows) { this.rows = rows; }
 
     public long getRowsAffected() { return rowsAffected; }
     public void setRowsAffected(long rowsAffected) { this.rowsAffected = rowsAffected; }
@@ -34,4 +52,36 @@ public class ExecutionResult {
 
     public String getWarning() { return warning; }
     public void setWarning(String warning) { this.warning = warning; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+
+    public List<Long> getUpdateCounts() { return updateCounts; }
+    public void setUpdateCounts(List<Long> updateCounts) { this.updateCounts = updateCounts; }
+
+    public List<ResultSetData> getMoreResults() { return moreResults; }
+    public void setMoreResults(List<ResultSetData> moreResults) { this.moreResults = moreResults; }
+
+    public Map<String, Object> getOutParams() { return outParams; }
+    public void setOutParams(Map<String, Object> outParams) { this.outParams = outParams; }
+
+    /** One extra result set of a callable statement, or a cursor OUT parameter: columns and up to max_rows rows. */
+    public static class ResultSetData {
+        private List<String> columns;
+        private RowSet rows;
+        /** True when the result set had more rows than max_rows; the rest are not kept. */
+        private boolean hasMore;
+
+        public List<String> getColumns() { return columns; }
+        public void setColumns(List<String> columns) { this.columns = columns; }
+
+        public RowSet getRows() { return rows; }
+        public void setRows(RowSet rows) { this.rows = rows; }
+
+        public boolean isHasMore() { return hasMore; }
+        public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+    }
 }
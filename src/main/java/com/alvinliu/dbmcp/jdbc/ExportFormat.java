@@ -0,0 +1,9 @@
+package com.alvinliu.dbmcp.jdbc;
+
+/**
+ * File format of a query export: CSV (query_to_csv_file), tab-separated text (query_to_text_file) or
+ * Arrow IPC (query_to_arrow_file).
+ */
+public enum ExportFormat {
+    CSV, TEXT, ARROW
+}
@@ -0,0 +1,55 @@
+package com.alvinliu.dbmcp.jdbc;
+
+/**
+ * Per-call options for query exports. Defaults: one connection, one output file, no compression, 300 s query timeout.
+ * <p>
+ * With a partition column and parallelism above 1 the query is split into key ranges exported on separate
+ * pooled connections at once (see {@link JdbcExecutor#executeToFile(JdbcExecutor.ConnectionSource, Dialect, String,
+ * java.nio.file.Path, ExportFormat, ExportOptions)}).
+ */
+public class ExportOptions {
+    private String partitionColumn;
+    private int parallelism = 1;
+    private boolean partFiles;
+    private Compression compression = Compression.NONE;
+    private int compressionLevel;
+    private int compressionBufferSize = 64 * 1024;
+    private Cancellation cancellation = new Cancellation();
+    private Progress progress = Progress.NONE;
+
+    /** Integer column of the query result used to split it into ranges; null = no partitioning. */
+    public String getPartitionColumn() { return partitionColumn; }
+    public void setPartitionColumn(String partitionColumn) { this.partitionColumn = partitionColumn; }
+
+    /** Number of ranges exported at once, each on its own connection. */
+    public int getParallelism() { return parallelism; }
+    public void setParallelism(int parallelism) { this.parallelism = Math.max(1, parallelism); }
+
+    /** Keep one file per range (name.part-000.ext, ...) instead of merging them into the target file. */
+    public boolean isPartFiles() { return partFiles; }
+    public void setPartFiles(boolean partFiles) { this.partFiles = partFiles; }
+
+    /** Compression of CSV / text output, applied while writing; never null. */
+    public Compression getCompression() { return compression; }
+    public void setCompression(Compression compression) { this.compression = compression; }
+
+    /** Compression level, 1 (fastest) up to the codec's maximum; 0 = the codec's default. */
+    public int getCompressionLevel() { return compressionLevel; }
+    public void setCompressionLevel(int compressionLevel) { this.compressionLevel = Math.max(0, compressionLevel); }
+
+    /** Bytes the compressor hands to the file at a time. */
+    public int getCompressionBufferSize() { return compressionBufferSize; }
+    public void setCompressionBufferSize(int compressionBufferSize) { this.compressionBufferSize = Math.max(512, compressionBufferSize); }
+
+    /** Cancels the export's statements (client cancel or timeout_ms); never null. */
+    public Cancellation getCancellation() { return cancellation; }
+    public void setCancellation(Cancellation cancellation) { this.cancellation = cancellation; }
+
+    /** Rows fetched and bytes written, for progress notifications; {@link Progress#NONE} = not tracked. */
+    public Progress getProgress() { return progress; }
+    public void setProgress(Progress progress) { this.progress = progress; }
+
+    public boolean isPartitioned() {
+        return partitionColumn != null && !partitionColumn.isBlank() && parallelism > 1;
+    }
+}
@@ -0,0 +1,32 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.util.List;
+
+/**
+ * Result of a file export (query_to_csv_file / query_to_text_file / query_to_arrow_file): rows and bytes written,
+ * and for compressed exports the text size before compression.
+ * Partitioned exports also report the number of ranges and, when part files are kept, their paths in order.
+ */
+public class ExportResult {
+    private long rowsWritten;
+    private long bytesWritten;
+    private long uncompressedBytes;
+    private int partitions = 1;
+    private List<String> files;
+
+    public long getRowsWritten() { return rowsWritten; }
+    public void setRowsWritten(long rowsWritten) { this.rowsWritten = rowsWritten; }
+
+    public long getBytesWritten() { return bytesWritten; }
+    public void setBytesWritten(long bytesWritten) { this.bytesWritten = bytesWritten; }
+
+    /** CSV / text bytes before compression (equal to bytes written when not compressed); 0 for Arrow. */
+    public long getUncompressedBytes() { return uncompressedBytes; }
+    public void setUncompressedBytes(long uncompressedBytes) { this.uncompressedBytes = uncompressedBytes; }
+
+    public int getPartitions() { return partitions; }
+    public void setPartitions(int partitions) { this.partitions = partitions; }
+
+    public List<String> getFiles() { return files; }
+    public void setFiles(List<String> files) { this.files = files; }
+}
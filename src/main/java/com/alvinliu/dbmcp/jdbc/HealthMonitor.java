@@ -0,0 +1,160 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background connection health checks, so list_connections answers from cached status instead of validating every
+ * connection on the request thread. Every connection is probed on its own worker, all in parallel: healthy ones
+ * once per interval, failing ones after a backoff that doubles from 2 s up to the max. A connection a tool call
+ * marked unavailable is re-probed within a second. A failed probe marks the connection unavailable but leaves a
+ * pool with borrowed connections open until {@link #CLOSE_AFTER_FAILURES} probes in a row failed, since a busy
+ * pool can miss the probe's short wait.
+ */
+public class HealthMonitor {
+    private static final long TICK_MS = 1000;
+    private static final long FIRST_RETRY_MS = 2000;
+    private static final int CLOSE_AFTER_FAILURES = 3;
+
+    private final JdbcPool pool;
+    private final long intervalMs;
+    private final long maxBackoffMs;
+    private final Map<String, Status> statuses = new LinkedHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService probes;
+
+    /** Last probe of one connection. Fields are written by the probe worker and read by tool calls. */
+    private static final class Status {
+        volatile Future<?> inFlight;
+        volatile boolean ok;
+        volatile long checkedAt;
+        volatile long probeMs;
+        volatile String error;
+        volatile int failures;
+        volatile long nextProbeAt;
+    }
+
+    public HealthMonitor(JdbcPool pool, long intervalMs, long maxBackoffMs) {
+        this.pool = pool;
+        this.intervalMs = Math.max(TICK_MS, intervalMs);
+        this.maxBackoffMs = Math.max(FIRST_RETRY_MS, maxBackoffMs);
+        for (String name : pool.getNames()) {
+            Status s = new Status();
+            s.ok = pool.isAvailable(name);
+            statuses.put(name, s);
+        }
+        AtomicInteger n = new AtomicInteger();
+        this.probes = Executors.newFixedThreadPool(Math.max(1, statuses.size()), r -> {
+            Thread t = new Thread(r, "db-mcp-health-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-mcp-health-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Probe every connection now, then keep probing on schedule. */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::tick, 0, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        statuses.forEach((name, s) -> {
+            Future<?> f = s.inFlight;
+            if (f != null && !f.isDone()) return;
+            if (s.ok && !pool.isAvailable(name)) s.nextProbeAt = now; // a tool call hit a connection error
+            if (now >= s.nextProbeAt) submit(name, s);
+        });
+    }
+
+    private synchronized Future<?> submit(String name, Status s) {
+        Future<?> f = s.inFlight;
+        if (f != null && !f.isDone()) return f;
+        f = probes.submit(() -> probe(name, s));
+        s.inFlight = f;
+        return f;
+    }
+
+    private void probe(String name, Status s) {
+        long start = System.currentTimeMillis();
+        String error;
+        try {
+            error = pool.probe(name, s.failures + 1 >= CLOSE_AFTER_FAILURES);
+        } catch (RuntimeException e) {
+            error = e.toString();
+        }
+        long end = System.currentTimeMillis();
+        s.probeMs = end - start;
+        s.checkedAt = end;
+        s.error = error;
+        s.ok = error == null;
+        if (error == null) {
+            s.failures = 0;
+            s.nextProbeAt = end + intervalMs;
+        } else {
+            int failures = ++s.failures;
+            long backoff = FIRST_RETRY_MS << Math.min(failures - 1, 20);
+            s.nextProbeAt = end + Math.min(backoff, maxBackoffMs);
+        }
+    }
+
+    /**
+     * Cached status of every connection in config order: name, available, db_type, version (database product and
+     * version, once known), checked_at (ISO-8601 time of the last probe, null before the first), probe_ms, and error
+     * when unavailable. With refresh, every connection is
+     * probed first (in parallel, joining probes already running, waiting at most waitMs).
+     */
+    public List<Map<String, Object>> snapshot(boolean refresh, long waitMs) {
+        if (refresh) {
+            List<Future<?>> pending = new ArrayList<>();
+            statuses.forEach((name, s) -> pending.add(submit(name, s)));
+            long deadline = System.currentTimeMillis() + waitMs;
+            for (Future<?> f : pending) await(f, deadline - System.currentTimeMillis());
+        }
+        List<Map<String, Object>> out = new ArrayList<>();
+        statuses.forEach((name, s) -> {
+            boolean available = pool.isAvailable(name);
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("name", name);
+            m.put("available", available);
+            m.put("db_type", pool.getDbTypeDisplayName(name));
+            Dialect d = pool.getCachedDialect(name);
+            if (d != null && !d.getProductName().isEmpty()) m.put("version", (d.getProductName() + " " + d.getProductVersion()).trim());
+            m.put("checked_at", s.checkedAt > 0 ? Instant.ofEpochMilli(s.checkedAt).toString() : null);
+            m.put("probe_ms", s.probeMs);
+            if (!available && s.error != null) m.put("error", s.error);
+            out.add(m);
+        });
+        return out;
+    }
+
+    private static void await(Future<?> f, long waitMs) {
+        try {
+            f.get(Math.max(0, waitMs), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ignored) {
+            // report whatever status is cached
+        }
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+        probes.shutdownNow();
+    }
+}
@@ -1,47 +1,138 @@
 package com.alvinliu.dbmcp.jdbc;
 
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
-import java.nio.charset.StandardCharsets;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Execute SQL via JDBC and return ExecutionResult. Splits by semicolon for multiple statements.
  */
 public final class JdbcExecutor {
 
+    /** Rows the driver is asked to fetch per round trip when streaming an export. */
+    static final int EXPORT_FETCH_SIZE = 1000;
+
+    /**
+     * Largest fetch size derived from max_rows when no fetch_size is given. Keeps max_rows + 1 from overflowing
+     * and keeps drivers that size buffers from the fetch size (Oracle) from allocating for a huge cap up front.
+     */
+    static final int MAX_DERIVED_FETCH_SIZE = 1000;
+
     public static ExecutionResult execute(Connection conn, String sql) {
-        ExecutionResult result = new ExecutionResult();
+        return execute(conn, sql, new ExecuteOptions());
+    }
+
+    /**
+     * Execute SQL with per-call options (row cap, fetch size, cursors). Only the last statement's result is
+     * returned; if it is cut off by max_rows and a cursor registry is given, the ResultSet and the connection are
+     * handed to the registry and the result carries a cursor token (the caller must then not close the connection).
+     */
+    public static ExecutionResult execute(Connection conn, String sql, ExecuteOptions options) {
         long start = System.currentTimeMillis();
         sql = sql.trim();
         if (sql.isEmpty()) {
+            ExecutionResult result = new ExecutionResult();
             result.setSuccess(false);
             result.setStatementType("UNKNOWN");
             result.setWarning("empty SQL");
             result.setExecutionTimeMs(System.currentTimeMillis() - start);
             return result;
         }
-        String[] statements;
-        if (isPlsqlDdl(sql)) {
-            statements = new String[] { sql };
-        } else if (isOracle(conn) && isOracleAnonymousBlock(sql)) {
-            sql = stripTrailingSlashLine(sql).trim();
-            statements = sql.isEmpty() ? new String[0] : new String[] { sql };
-        } else {
-            statements = splitStatements(sql);
+        List<String> statements = nonEmpty(statementsFor(dialect(conn, options), sql));
+        if ((options.getParams() != null || options.getOutParams() != null) && statements.size() > 1) {
+            ExecutionResult result = new ExecutionResult();
+            result.setSuccess(false);
+            result.setStatementType(inferStatementType(sql));
+            result.setWarning((options.getParams() != null ? "params" : "out_params") + " can only be bound to a single statement; got " + statements.size());
+            result.setExecutionTimeMs(System.currentTimeMillis() - start);
+            return result;
+        }
+        Iterator<String> it = statements.iterator();
+        ExecutionResult result;
+        try {
+            result = executeStatements(conn, () -> it.hasNext() ? it.next() : null, options, start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory source never throws
         }
+        if (result.getStatementType() == null) result.setStatementType(inferStatementType(sql));
+        return result;
+    }
+
+    /**
+     * Execute a script one statement at a time as the reader yields it (see {@link SqlScriptReader}); the whole
+     * script is never held in memory. Same result rules as {@link #execute(Connection, String, ExecuteOptions)}.
+     */
+    public static ExecutionResult execute(Connection conn, SqlScriptReader script, ExecuteOptions options) throws IOException {
+        dialect(conn, options);
+        ExecutionResult result = executeStatements(conn, script::next, options, System.currentTimeMillis());
+        if (result.getStatementType() == null) result.setStatementType("UNKNOWN");
+        return result;
+    }
+
+    /** The options' dialect; when the caller did not pass one it is read from the connection once and kept there. */
+    private static Dialect dialect(Connection conn, ExecuteOptions options) {
+        if (options.getDialect() == null) options.setDialect(Dialect.detect(conn));
+        return options.getDialect();
+    }
+
+    /** Pull-style statement supplier: next() returns null when there are no more statements. */
+    private interface StatementSource {
+        String next() throws IOException;
+    }
+
+    /**
+     * Run statements in order, grouping consecutive DML into batches when batch_size is set. Looks one statement
+     * ahead so only the last one may keep a cursor open. Returns the last statement's result (statement type
+     * null when there were no statements).
+     */
+    private static ExecutionResult executeStatements(Connection conn, StatementSource source, ExecuteOptions options,
+                                                     long start) throws IOException {
+        int batchSize = options.getBatchSize();
+        List<Long> updateCounts = batchSize > 0 ? new ArrayList<>() : null;
+        if (!options.getDialect().supportsBatchUpdates()) batchSize = 0; // still one update count per statement
         ExecutionResult last = null;
-        for (String stmt : statements) {
-            stmt = stmt.trim();
-            if (stmt.isEmpty()) continue;
-            last = executeOne(conn, stmt);
+        String stmt = source.next();
+        while (stmt != null) {
+            String following = source.next();
+            List<String> batch = null;
+            if (batchSize > 0 && isBatchable(stmt)) {
+                while (following != null && (batch == null ? 1 : batch.size()) < batchSize && isBatchable(following)) {
+                    if (batch == null) {
+                        batch = new ArrayList<>();
+                        batch.add(stmt);
+                    }
+                    batch.add(following);
+                    following = source.next();
+                }
+            }
+            if (batch != null) {
+                int from = updateCounts.size();
+                last = executeBatch(conn, batch, updateCounts, options.getCancellation());
+                long changed = 0;
+                for (int i = from; i < updateCounts.size(); i++) changed += Math.max(0, updateCounts.get(i));
+                options.getProgress().addStatements(batch.size(), changed);
+            } else {
+                last = executeOne(conn, stmt, options, following == null ? options.getCursors() : null);
+                if (updateCounts != null) updateCounts.add(updateCountOf(last));
+                options.getProgress().addStatements(1, last.getRows() != null ? last.getRows().size() : last.getRowsAffected());
+            }
             last.setExecutionTimeMs(System.currentTimeMillis() - start);
+            if (options.getCancellation().isCancelled()) break; // the rest would fail before starting anyway
+            stmt = following;
         }
+        ExecutionResult result = new ExecutionResult();
         if (last != null) {
             result.setColumns(last.getColumns());
             result.setRows(last.getRows());
@@ -49,23 +140,103 @@ public final class JdbcExecutor {
             result.setSuccess(last.isSuccess());
             result.setStatementType(last.getStatementType());
             result.setWarning(last.getWarning());
-            result.setExecutionTimeMs(last.getExecutionTimeMs());
+            result.setHasMore(last.isHasMore());
+            result.setCursor(last.getCursor());
+            result.setMoreResults(last.getMoreResults());
+            result.setOutParams(last.getOutParams());
+            result.setUpdateCounts(updateCounts);
         } else {
             result.setSuccess(true);
-            result.setStatementType(inferStatementType(sql));
         }
         result.setExecutionTimeMs(System.currentTimeMillis() - start);
         return result;
     }
 
-    /** True if the connection is to an Oracle database. */
-    private static boolean isOracle(Connection conn) {
-        try {
-            String product = conn.getMetaData() != null ? conn.getMetaData().getDatabaseProductName() : "";
-            return product != null && product.toUpperCase().contains("ORACLE");
+    /** True for plain DML that returns only an update count (no RETURNING clause, not a call). */
+    private static boolean isBatchable(String sql) {
+        switch (inferStatementType(sql)) {
+            case "INSERT":
+            case "UPDATE":
+            case "DELETE":
+            case "MERGE":
+                return !sql.toUpperCase().contains("RETURNING");
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Run DML statements as one JDBC batch (one round trip, or a few when the driver splits it). Appends one
+     * update count per statement to updateCounts; on failure the statements the driver did not report are
+     * counted as {@link Statement#EXECUTE_FAILED}. The result describes the last statement of the batch.
+     */
+    private static ExecutionResult executeBatch(Connection conn, List<String> statements, List<Long> updateCounts,
+                                               Cancellation cancellation) {
+        ExecutionResult r = new ExecutionResult();
+        r.setStatementType(inferStatementType(statements.get(statements.size() - 1)));
+        long[] counts = null;
+        try (Statement st = conn.createStatement()) {
+            cancellation.begin(st);
+            try {
+                for (String stmt : statements) st.addBatch(stmt);
+                counts = toLongs(st.executeBatch());
+            } finally {
+                cancellation.end(st);
+            }
+            r.setSuccess(true);
+        } catch (BatchUpdateException e) {
+            counts = e.getLargeUpdateCounts() != null ? e.getLargeUpdateCounts() : toLongs(e.getUpdateCounts());
+            r.setSuccess(false);
+            r.setWarning(cancellation.describe(e));
         } catch (SQLException e) {
-            return false;
+            r.setSuccess(false);
+            r.setWarning(cancellation.describe(e));
+        }
+        for (int i = 0; i < statements.size(); i++) {
+            updateCounts.add(counts != null && i < counts.length ? counts[i] : Statement.EXECUTE_FAILED);
         }
+        long lastCount = updateCounts.get(updateCounts.size() - 1);
+        r.setRowsAffected(r.isSuccess() && lastCount >= 0 ? lastCount : 0);
+        return r;
+    }
+
+    private static long[] toLongs(int[] counts) {
+        if (counts == null) return null;
+        long[] out = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) out[i] = counts[i];
+        return out;
+    }
+
+    /** Update count reported for a statement run on its own: rows affected, -1 for a result set, EXECUTE_FAILED on error. */
+    private static long updateCountOf(ExecutionResult r) {
+        if (!r.isSuccess()) return Statement.EXECUTE_FAILED;
+        return r.getColumns() != null ? -1 : r.getRowsAffected();
+    }
+
+    static List<String> nonEmpty(String[] statements) {
+        List<String> list = new ArrayList<>(statements.length);
+        for (String stmt : statements) {
+            stmt = stmt.trim();
+            if (!stmt.isEmpty()) list.add(stmt);
+        }
+        return list;
+    }
+
+    /**
+     * Statements to run for the given (trimmed) SQL: PL/SQL DDL and Oracle anonymous blocks run as one statement,
+     * everything else is split by {@link SqlScriptReader} (semicolons and "/" lines; on Oracle, later BEGIN/DECLARE
+     * blocks in the script end at their "/" line).
+     */
+    static String[] statementsFor(Dialect dialect, String sql) {
+        if (isPlsqlDdl(sql)) {
+            return new String[] { sql };
+        }
+        boolean oracle = dialect.isOracle();
+        if (oracle && isOracleAnonymousBlock(sql)) {
+            sql = stripTrailingSlashLine(sql).trim();
+            return sql.isEmpty() ? new String[0] : new String[] { sql };
+        }
+        return SqlScriptReader.split(sql, oracle);
     }
 
     /** True if SQL is an Oracle PL/SQL anonymous block (BEGIN...END or DECLARE...BEGIN...END). */
@@ -75,114 +246,245 @@ public final class JdbcExecutor {
         return u.startsWith("BEGIN") || u.startsWith("DECLARE");
     }
 
-    /** Remove trailing lines that are only "/" (SQL*Plus execute buffer command). */
-    private static String stripTrailingSlashLine(String s) {
+    /**
+     * Remove trailing lines that are only "/" (SQL*Plus execute buffer command), and trailing whitespace.
+     * One backward scan over the tail; the rest of the text is not copied until the final substring.
+     */
+    public static String stripTrailingSlashLine(String s) {
         if (s == null) return "";
+        int end = s.length();
         while (true) {
-            s = s.replaceAll("\\r?\\n$", "");
-            int last = s.lastIndexOf('\n');
-            if (last < 0) {
-                if (s.trim().equals("/")) return "";
-                return s;
-            }
-            String line = s.substring(last + 1);
-            if (line.trim().equals("/")) {
-                s = s.substring(0, last);
-                continue;
-            }
-            return s;
+            while (end > 0 && Character.isWhitespace(s.charAt(end - 1))) end--;
+            int lineStart = s.lastIndexOf('\n', end - 1) + 1;
+            if (!isSlashLine(s, lineStart, end)) return s.substring(0, end);
+            end = lineStart;
         }
     }
 
+    private static boolean isSlashLine(String s, int from, int to) {
+        boolean slash = false;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c == '/' && !slash) slash = true;
+            else if (!Character.isWhitespace(c)) return false;
+        }
+        return slash;
+    }
+
     /** True if SQL is PL/SQL DDL (CREATE FUNCTION/PROCEDURE/PACKAGE) and must be run as one statement. */
-    private static boolean isPlsqlDdl(String sql) {
+    static boolean isPlsqlDdl(String sql) {
         String u = sql.trim().toUpperCase();
         if (!u.startsWith("CREATE")) return false;
         return u.contains(" FUNCTION ") || u.contains(" PROCEDURE ") || u.contains(" PACKAGE ");
     }
 
     /**
-     * Split SQL by semicolon, but do not split on semicolons inside single-quoted strings
-     * (so PL/SQL blocks and DDL like CREATE FUNCTION work as one statement).
+     * Split SQL by semicolon, but do not split on semicolons inside quotes or comments
+     * (so PL/SQL blocks and DDL like CREATE FUNCTION work as one statement). See {@link SqlScriptReader}.
      */
-    private static String[] splitStatements(String sql) {
-        List<String> list = new ArrayList<>();
-        int start = 0;
-        int len = sql.length();
-        int i = 0;
-        while (start < len) {
-            boolean inSingle = false;
-            int semi = -1;
-            for (i = start; i < len; i++) {
-                char c = sql.charAt(i);
-                if (c == '\'') {
-                    if (inSingle && i + 1 < len && sql.charAt(i + 1) == '\'') {
-                        i++; // skip escaped quote
-                    } else {
-                        inSingle = !inSingle;
-                    }
-                } else if (!inSingle && c == ';') {
-                    semi = i;
-                    break;
-                }
-            }
-            if (semi < 0) {
-                list.add(sql.substring(start).trim());
-                break;
-            }
-            list.add(sql.substring(start, semi).trim());
-            start = semi + 1;
-        }
-        return list.toArray(new String[0]);
+    static String[] splitStatements(String sql) {
+        return SqlScriptReader.split(sql, false);
     }
 
-    private static ExecutionResult executeOne(Connection conn, String sql) {
+    private static ExecutionResult executeOne(Connection conn, String sql, ExecuteOptions options, CursorRegistry cursors) {
         ExecutionResult r = new ExecutionResult();
         r.setStatementType(inferStatementType(sql));
         String trimmed = sql != null ? sql.trim() : "";
         try {
             if (isCallable(trimmed)) {
-                executeCallable(conn, trimmed, r);
-            } else if (isOracle(conn) && isOracleAnonymousBlock(trimmed)) {
-                executeOracleAnonymousBlock(conn, trimmed, r);
+                executeCallable(conn, trimmed, r, options);
+            } else if (options.getDialect().isOracle() && isOracleAnonymousBlock(trimmed)) {
+                executeOracleAnonymousBlock(conn, trimmed, r, options);
+            } else if (options.getOutParams() != null) {
+                throw new SQLException("out_params needs a JDBC call statement ({ call proc(?, ?) } or { ? = call func(?) })"
+                    + " or, on Oracle, an anonymous block");
             } else {
-                try (Statement st = conn.createStatement()) {
-                    st.setQueryTimeout(300);
-                    boolean isResultSet = st.execute(sql);
+                PreparedStatement ps = options.getParams() != null ? conn.prepareStatement(sql) : null;
+                Statement st = ps != null ? ps : conn.createStatement();
+                boolean handedOff = false;
+                boolean streaming = false;
+                Throwable failure = null;
+                try {
+                    options.getCancellation().begin(st);
+                    boolean keepCursor = cursors != null && isQuery(trimmed);
+                    streaming = applyFetchSize(conn, st, options, keepCursor);
+                    boolean isResultSet;
+                    if (ps != null) {
+                        bind(ps, options.getParams());
+                        isResultSet = ps.execute();
+                    } else {
+                        isResultSet = st.execute(sql);
+                    }
                     if (isResultSet) {
-                        try (ResultSet rs = st.getResultSet()) {
-                            ResultSetMetaData meta = rs.getMetaData();
-                            int cols = meta.getColumnCount();
-                            List<String> columnNames = new ArrayList<>();
-                            for (int i = 1; i <= cols; i++) {
-                                columnNames.add(meta.getColumnLabel(i));
-                            }
-                            r.setColumns(columnNames);
-                            List<List<Object>> rows = new ArrayList<>();
-                            while (rs.next()) {
-                                List<Object> row = new ArrayList<>();
-                                for (int i = 1; i <= cols; i++) {
-                                    Object v = rs.getObject(i);
-                                    row.add(v instanceof Clob ? clobToString((Clob) v) : v);
-                                }
-                                rows.add(row);
+                        ResultSet rs = st.getResultSet();
+                        try {
+                            boolean more = readResultSet(rs, r, options);
+                            if (more && cursors != null) {
+                                r.setCursor(cursors.open(options.getConnectionName(), conn, st, rs, r.getColumns(),
+                                    r.getStatementType(), options.getMaxLobChars(), streaming,
+                                    streamsRows(options, keepCursor)));
+                                handedOff = true;
                             }
-                            r.setRows(rows);
-                            r.setRowsAffected(rows.size());
+                        } finally {
+                            if (!handedOff) rs.close();
                         }
                     } else {
                         r.setRowsAffected(st.getUpdateCount() >= 0 ? st.getUpdateCount() : 0);
                     }
                     r.setSuccess(true);
+                } catch (Throwable e) {
+                    failure = e;
+                    throw e;
+                } finally {
+                    options.getCancellation().end(st);
+                    if (!handedOff) {
+                        try {
+                            st.close();
+                        } finally {
+                            if (streaming) endStreaming(conn, failure);
+                        }
+                    }
                 }
             }
         } catch (SQLException e) {
             r.setSuccess(false);
-            r.setWarning(e.getMessage());
+            r.setWarning(options.getCancellation().describe(e));
         }
         return r;
     }
 
+    /**
+     * Bind JSON values to the ? placeholders: whole numbers as long, fractions as exact decimals, null as a NULL of
+     * the placeholder's type (see {@link Binder}).
+     */
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        if (params == null) return;
+        Binder binder = new Binder(ps);
+        for (int i = 0; i < params.size(); i++) binder.bind(i + 1, params.get(i));
+    }
+
+    /**
+     * Register the OUT placeholders and bind params to the others; a non-null value at an OUT position is its
+     * INOUT input.
+     */
+    private static void bindCall(CallableStatement cs, List<Object> params, Map<Integer, Integer> outParams) throws SQLException {
+        if (outParams != null) {
+            for (Map.Entry<Integer, Integer> e : outParams.entrySet()) cs.registerOutParameter(e.getKey(), e.getValue());
+        }
+        if (params == null) return;
+        Binder binder = new Binder(cs);
+        for (int i = 0; i < params.size(); i++) {
+            Object v = params.get(i);
+            if (v == null && outParams != null && outParams.containsKey(i + 1)) continue;
+            binder.bind(i + 1, v);
+        }
+    }
+
+    /**
+     * Binds JSON values to one statement. NULL is bound with the placeholder's type from ParameterMetaData, read
+     * once and only when a null is bound, or as VARCHAR where the driver cannot tell: some drivers (Oracle among
+     * them) reject setNull with Types.NULL as an invalid column type.
+     */
+    private static final class Binder {
+        private final PreparedStatement ps;
+        private ParameterMetaData meta;
+        private boolean metaRead;
+
+        Binder(PreparedStatement ps) {
+            this.ps = ps;
+        }
+
+        void bind(int index, Object v) throws SQLException {
+            if (v == null) {
+                ps.setNull(index, nullType(index));
+            } else if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+                ps.setLong(index, ((Number) v).longValue());
+            } else if (v instanceof BigDecimal) {
+                ps.setBigDecimal(index, (BigDecimal) v);
+            } else if (v instanceof Double || v instanceof Float) {
+                ps.setBigDecimal(index, BigDecimal.valueOf(((Number) v).doubleValue()));
+            } else if (v instanceof Boolean) {
+                ps.setBoolean(index, (Boolean) v);
+            } else {
+                ps.setString(index, v.toString());
+            }
+        }
+
+        private int nullType(int index) {
+            if (!metaRead) {
+                metaRead = true;
+                try {
+                    meta = ps.getParameterMetaData();
+                } catch (SQLException | RuntimeException | AbstractMethodError e) {
+                    meta = null; // not supported by this driver
+                }
+            }
+            if (meta != null) {
+                try {
+                    int type = meta.getParameterType(index);
+                    if (type != Types.NULL) return type;
+                } catch (SQLException | RuntimeException e) {
+                    // unknown for this placeholder
+                }
+            }
+            return Types.VARCHAR;
+        }
+    }
+
+    /**
+     * Fetch size for a result read up to max_rows: fetch_size when given, else max_rows + 1 (max_rows capped at
+     * {@link #MAX_DERIVED_FETCH_SIZE}) so a first page of that size is one round trip. When the rest of a query
+     * may be kept as a fetch_more cursor, the dialect's export streaming rules apply too (see
+     * {@link #beginStreaming}): MySQL streams row by row, and where the driver streams only inside a transaction
+     * (PostgreSQL) auto-commit is turned off. Otherwise those drivers load the whole result, and the
+     * cursor would hold it and its connection until it is closed. Returns true when auto-commit was turned off;
+     * the caller or the cursor then ends the transaction with {@link #endStreaming}.
+     */
+    private static boolean applyFetchSize(Connection conn, Statement st, ExecuteOptions options, boolean keepCursor)
+            throws SQLException {
+        Dialect dialect = options.getDialect();
+        boolean cursor = keepCursor && options.getMaxRows() > 0;
+        if (streamsRows(options, keepCursor)) {
+            st.setFetchSize(dialect.getExportFetchSize()); // Integer.MIN_VALUE: MySQL row-by-row streaming
+        } else if (options.getFetchSize() > 0) {
+            st.setFetchSize(options.getFetchSize());
+        } else if (options.getMaxRows() > 0) {
+            st.setFetchSize(Math.min(options.getMaxRows(), MAX_DERIVED_FETCH_SIZE) + 1);
+        }
+        if (!cursor || !dialect.isFetchNeedsTransaction() || !conn.getAutoCommit()) return false;
+        conn.setAutoCommit(false);
+        return true;
+    }
+
+    /** Whether applyFetchSize makes the driver stream row by row (MySQL), reading the rest of the result on close. */
+    private static boolean streamsRows(ExecuteOptions options, boolean keepCursor) {
+        return keepCursor && options.getMaxRows() > 0 && options.getDialect().getExportFetchSize() < 0;
+    }
+
+    /**
+     * Read columns and up to max_rows rows (0 = all) into the result, LOBs cut at max_lob_chars. Returns true if
+     * more rows remain; the ResultSet is then positioned on the first unread row.
+     */
+    private static boolean readResultSet(ResultSet rs, ExecutionResult r, ExecuteOptions options) throws SQLException {
+        ExecutionResult.ResultSetData data = readResultSetData(rs, options);
+        r.setColumns(data.getColumns());
+        r.setRows(data.getRows());
+        r.setWarning(truncationWarning(data.getRows(), options.getMaxLobChars()));
+        r.setRowsAffected(data.getRows().size());
+        r.setHasMore(data.isHasMore());
+        return data.isHasMore();
+    }
+
+    /** Warning for values cut at the LOB limit; null when none were. */
+    static String truncationWarning(RowSet rows, int maxLobChars) {
+        return truncationWarning(rows.getTruncatedValues(), maxLobChars);
+    }
+
+    private static String truncationWarning(int n, int maxLobChars) {
+        if (n == 0) return null;
+        return n + " value(s) longer than max_lob_chars (" + maxLobChars + ") were truncated; use query_to_text_file or query_to_csv_file for full values";
+    }
+
     /**
      * True if SQL uses JDBC call escape syntax for stored procedures/functions, e.g.
      * "{ call proc_name() }" or "{ ? = call func_name(?) }".
@@ -200,77 +502,93 @@ public final class JdbcExecutor {
      * Execute a JDBC callable statement and populate the given result.
      * This path is used for vendor-neutral stored procedure/function calls.
      */
-    private static void executeCallable(Connection conn, String sql, ExecutionResult r) throws SQLException {
+    private static void executeCallable(Connection conn, String sql, ExecutionResult r, ExecuteOptions options) throws SQLException {
         r.setStatementType("CALL");
-        try (CallableStatement cs = conn.prepareCall(sql)) {
-            cs.setQueryTimeout(300);
-            boolean isResultSet = cs.execute();
-            if (isResultSet) {
-                try (ResultSet rs = cs.getResultSet()) {
-                    ResultSetMetaData meta = rs.getMetaData();
-                    int cols = meta.getColumnCount();
-                    List<String> columnNames = new ArrayList<>();
-                    for (int i = 1; i <= cols; i++) {
-                        columnNames.add(meta.getColumnLabel(i));
-                    }
-                    r.setColumns(columnNames);
-                    List<List<Object>> rows = new ArrayList<>();
-                    while (rs.next()) {
-                        List<Object> row = new ArrayList<>();
-                        for (int i = 1; i <= cols; i++) {
-                            Object v = rs.getObject(i);
-                            row.add(v instanceof Clob ? clobToString((Clob) v) : v);
-                        }
-                        rows.add(row);
-                    }
-                    r.setRows(rows);
-                    r.setRowsAffected(rows.size());
-                }
-            } else {
-                r.setRowsAffected(cs.getUpdateCount() >= 0 ? cs.getUpdateCount() : 0);
-            }
-            r.setSuccess(true);
-        }
+        runCall(conn, sql, r, options);
     }
 
     /**
      * Execute an Oracle PL/SQL anonymous block via CallableStatement.
      * Only used when db is Oracle and SQL starts with BEGIN or DECLARE.
      */
-    private static void executeOracleAnonymousBlock(Connection conn, String sql, ExecutionResult r) throws SQLException {
+    private static void executeOracleAnonymousBlock(Connection conn, String sql, ExecutionResult r, ExecuteOptions options) throws SQLException {
         r.setStatementType("PLSQL_BLOCK");
+        runCall(conn, sql, r, options);
+    }
+
+    /**
+     * Run a callable statement and read everything one execution returns: each result set in order through the
+     * RowSet pipeline, each capped at max_rows (the first into columns / rows, the others into moreResults), then
+     * the out_params values, which some drivers (SQL Server) only deliver once every result has been read. Without
+     * result sets, rowsAffected is the sum of the update counts.
+     */
+    private static void runCall(Connection conn, String sql, ExecutionResult r, ExecuteOptions options) throws SQLException {
         try (CallableStatement cs = conn.prepareCall(sql)) {
-            cs.setQueryTimeout(300);
-            boolean isResultSet = cs.execute();
-            if (isResultSet) {
-                try (ResultSet rs = cs.getResultSet()) {
-                    ResultSetMetaData meta = rs.getMetaData();
-                    int cols = meta.getColumnCount();
-                    List<String> columnNames = new ArrayList<>();
-                    for (int i = 1; i <= cols; i++) {
-                        columnNames.add(meta.getColumnLabel(i));
-                    }
-                    r.setColumns(columnNames);
-                    List<List<Object>> rows = new ArrayList<>();
-                    while (rs.next()) {
-                        List<Object> row = new ArrayList<>();
-                        for (int i = 1; i <= cols; i++) {
-                            Object v = rs.getObject(i);
-                            row.add(v instanceof Clob ? clobToString((Clob) v) : v);
+            options.getCancellation().begin(cs);
+            try {
+                applyFetchSize(conn, cs, options, false);
+                bindCall(cs, options.getParams(), options.getOutParams());
+                boolean isResultSet = cs.execute();
+                List<ExecutionResult.ResultSetData> sets = new ArrayList<>();
+                long updated = 0;
+                int truncated = 0;
+                while (true) {
+                    if (isResultSet) {
+                        try (ResultSet rs = cs.getResultSet()) {
+                            ExecutionResult.ResultSetData data = readResultSetData(rs, options);
+                            truncated += data.getRows().getTruncatedValues();
+                            sets.add(data);
                         }
-                        rows.add(row);
+                    } else {
+                        int count = cs.getUpdateCount();
+                        if (count < 0) break;
+                        updated += count;
                     }
-                    r.setRows(rows);
-                    r.setRowsAffected(rows.size());
+                    options.getCancellation().check();
+                    isResultSet = cs.getMoreResults();
                 }
-            } else {
-                r.setRowsAffected(cs.getUpdateCount() >= 0 ? cs.getUpdateCount() : 0);
+                if (sets.isEmpty()) {
+                    r.setRowsAffected(updated);
+                } else {
+                    ExecutionResult.ResultSetData first = sets.get(0);
+                    r.setColumns(first.getColumns());
+                    r.setRows(first.getRows());
+                    r.setHasMore(first.isHasMore());
+                    r.setRowsAffected(first.getRows().size());
+                    if (sets.size() > 1) r.setMoreResults(new ArrayList<>(sets.subList(1, sets.size())));
+                }
+                if (options.getOutParams() != null) {
+                    OutParams out = new OutParams(options);
+                    r.setOutParams(out.read(cs, options.getOutParams()));
+                    truncated += out.getTruncatedValues();
+                }
+                r.setWarning(truncationWarning(truncated, options.getMaxLobChars()));
+                r.setSuccess(true);
+            } finally {
+                options.getCancellation().end(cs);
             }
-            r.setSuccess(true);
         }
     }
 
-    private static String clobToString(Clob clob) throws SQLException {
+    /**
+     * Columns and up to max_rows rows (0 = all) of one result set, LOBs cut at max_lob_chars. When hasMore is set
+     * the ResultSet is positioned on the first unread row.
+     */
+    static ExecutionResult.ResultSetData readResultSetData(ResultSet rs, ExecuteOptions options) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        List<String> columnNames = new ArrayList<>();
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            columnNames.add(meta.getColumnLabel(i));
+        }
+        RowSet rows = new RowSet(meta, options.getMaxLobChars());
+        ExecutionResult.ResultSetData data = new ExecutionResult.ResultSetData();
+        data.setColumns(columnNames);
+        data.setHasMore(rows.read(rs, options.getMaxRows(), false));
+        data.setRows(rows);
+        return data;
+    }
+
+    static String clobToString(Clob clob) throws SQLException {
         if (clob == null) return null;
         try (Reader r = clob.getCharacterStream()) {
             if (r == null) return null;
@@ -285,79 +603,413 @@ public final class JdbcExecutor {
     }
 
     /**
-     * Execute SQL and write the result to a file as CSV (header + rows). Uses UTF-8.
-     * Returns the number of rows written. For non–result-set statements writes "Rows affected: N".
+     * Execute SQL and write the last statement's result to a file as CSV (header + rows). Uses UTF-8.
+     * Rows are streamed from the ResultSet to the file as they are read, so memory use does not grow with row count.
+     * For non–result-set statements writes "Rows affected: N".
+     */
+    public static ExportResult executeToCsvFile(Connection conn, String sql, Path filePath) throws SQLException, IOException {
+        return executeToFile(conn, sql, filePath, ExportFormat.CSV);
+    }
+
+    /**
+     * Execute SQL and write the result to a file as plain text: no header, columns tab-separated per row.
+     * No extra newlines added between rows; only newlines present in the cell data are written (e.g. CLOB with line breaks).
+     * CLOB columns are read in full and written as text. Uses UTF-8. Rows are streamed as they are read.
+     */
+    public static ExportResult executeToTextFile(Connection conn, String sql, Path filePath) throws SQLException, IOException {
+        return executeToFile(conn, sql, filePath, ExportFormat.TEXT);
+    }
+
+    /**
+     * Execute SQL and write the result to an Apache Arrow IPC file with typed columns (see {@link ArrowFileWriter}).
+     * Rows are streamed in record batches. Results of callable statements / anonymous blocks are written as text
+     * columns; statements without a result set write a single rows_affected row.
+     */
+    public static ExportResult executeToArrowFile(Connection conn, String sql, Path filePath) throws SQLException, IOException {
+        return executeToFile(conn, sql, filePath, ExportFormat.ARROW);
+    }
+
+    /** Source of pooled connections for exports that need more than one (e.g. a bound JdbcPool::getConnection). */
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection get() throws SQLException;
+    }
+
+    /**
+     * Export with options: when partitioned (see {@link ExportOptions#isPartitioned()}) the query is split into
+     * key ranges exported on separate connections at once ({@link PartitionedExport}); otherwise one connection
+     * is borrowed and the export runs as in {@link #executeToFile(Connection, Dialect, String, Path, ExportFormat, ExportOptions)}.
+     */
+    public static ExportResult executeToFile(ConnectionSource source, Dialect dialect, String sql, Path filePath,
+                                             ExportFormat format, ExportOptions options) throws SQLException, IOException {
+        if (options != null && options.isPartitioned()) {
+            return PartitionedExport.run(source, dialect, sql, filePath, format, options);
+        }
+        try (Connection conn = source.get()) {
+            return executeToFile(conn, dialect, sql, filePath, format, options != null ? options : new ExportOptions());
+        }
+    }
+
+    /** Same as {@link #executeToFile(Connection, Dialect, String, Path, ExportFormat, ExportOptions)} with defaults. */
+    public static ExportResult executeToFile(Connection conn, String sql, Path filePath, ExportFormat format) throws SQLException, IOException {
+        return executeToFile(conn, Dialect.detect(conn), sql, filePath, format, new ExportOptions());
+    }
+
+    /**
+     * Run all statements but the last (results discarded, same as {@link #execute}), then stream the last
+     * statement's result to the file. Callable statements and Oracle anonymous blocks are executed via
+     * executeOne and written from the materialized result. Partitioning in exportOptions is ignored here; its
+     * cancellation, progress and compression are used.
      */
-    public static long executeToCsvFile(Connection conn, String sql, Path filePath) throws SQLException, IOException {
-        ExecutionResult r = execute(conn, sql);
-        if (!r.isSuccess()) {
-            throw new SQLException(r.getWarning() != null ? r.getWarning() : "Execution failed");
-        }
-        long rowsWritten;
-        try (BufferedWriter w = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
-            if (r.getColumns() != null && r.getRows() != null) {
-                w.write(csvEscapeRow(r.getColumns()));
-                w.newLine();
-                for (List<Object> row : r.getRows()) {
-                    List<String> cells = new ArrayList<>();
-                    for (Object o : row) cells.add(o == null ? "" : o.toString());
-                    w.write(csvEscapeRow(cells));
-                    w.newLine();
+    public static ExportResult executeToFile(Connection conn, Dialect dialect, String sql, Path filePath, ExportFormat format,
+                                             ExportOptions exportOptions) throws SQLException, IOException {
+        sql = sql.trim();
+        if (sql.isEmpty()) {
+            throw new SQLException("empty SQL");
+        }
+        List<String> statements = nonEmpty(statementsFor(dialect, sql));
+        Cancellation cancellation = exportOptions.getCancellation();
+        Progress progress = exportOptions.getProgress();
+        ExecuteOptions options = new ExecuteOptions();
+        options.setDialect(dialect);
+        options.setCancellation(cancellation);
+        for (int i = 0; i < statements.size() - 1; i++) {
+            executeOne(conn, statements.get(i), options, null);
+            cancellation.check();
+        }
+        String last = statements.isEmpty() ? null : statements.get(statements.size() - 1);
+        if (last == null) {
+            return exportRowsAffected(filePath, format, 0, exportOptions);
+        }
+        if (isCallable(last) || (dialect.isOracle() && isOracleAnonymousBlock(last))) {
+            ExecutionResult r = executeOne(conn, last, options, null);
+            if (!r.isSuccess()) {
+                throw new SQLException(r.getWarning() != null ? r.getWarning() : "Execution failed");
+            }
+            if (r.getColumns() == null || r.getRows() == null) {
+                return exportRowsAffected(filePath, format, r.getRowsAffected(), exportOptions);
+            }
+            if (format == ExportFormat.ARROW) {
+                return writeBinaryFile(filePath, progress, out -> ArrowFileWriter.writeRows(out, r.getColumns(), r.getRows()));
+            }
+            return writeFile(filePath, exportOptions, w -> writeResult(w, r, format == ExportFormat.CSV));
+        }
+        boolean streaming = false;
+        Throwable failure = null;
+        try (Statement st = conn.createStatement()) {
+            cancellation.begin(st);
+            try {
+                streaming = beginStreaming(conn, st, dialect);
+                boolean isResultSet = st.execute(last);
+                if (!isResultSet) {
+                    return exportRowsAffected(filePath, format, st.getUpdateCount() >= 0 ? st.getUpdateCount() : 0, exportOptions);
+                }
+                try (ResultSet rs = st.getResultSet()) {
+                    if (format == ExportFormat.ARROW) {
+                        return writeBinaryFile(filePath, progress, out -> ArrowFileWriter.writeResultSet(out, rs, progress));
+                    }
+                    return writeFile(filePath, exportOptions, w -> writeResultSet(w, rs, format == ExportFormat.CSV, format == ExportFormat.CSV, progress));
                 }
-                rowsWritten = r.getRows().size();
+            } finally {
+                cancellation.end(st);
+            }
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (streaming) endStreaming(conn, failure);
+        }
+    }
+
+    /**
+     * Make st stream its result: the dialect's export fetch size and, where the driver streams only inside a
+     * transaction, auto-commit off. Returns true when auto-commit was turned off; the caller then ends the
+     * transaction with {@link #endStreaming} once the result is read.
+     */
+    static boolean beginStreaming(Connection conn, Statement st, Dialect dialect) throws SQLException {
+        st.setFetchSize(dialect.getExportFetchSize());
+        if (!dialect.isFetchNeedsTransaction() || !conn.getAutoCommit()) return false;
+        conn.setAutoCommit(false);
+        return true;
+    }
+
+    /**
+     * End the transaction beginStreaming started: commit after success, roll back after failure (null = success),
+     * then turn auto-commit back on. Errors here are added to failure as suppressed, so the caller still throws
+     * the original; without a failure the first one is thrown.
+     */
+    static void endStreaming(Connection conn, Throwable failure) throws SQLException {
+        SQLException error = null;
+        try {
+            if (failure == null) {
+                conn.commit();
             } else {
-                w.write("Rows affected: " + r.getRowsAffected());
-                w.newLine();
-                rowsWritten = r.getRowsAffected();
+                conn.rollback();
             }
+        } catch (SQLException e) {
+            error = e;
         }
-        return rowsWritten;
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            if (error == null) error = e;
+            else error.addSuppressed(e);
+        }
+        if (error == null) return;
+        if (failure != null) failure.addSuppressed(error);
+        else throw error;
+    }
+
+    private static ExportResult exportRowsAffected(Path filePath, ExportFormat format, long affected, ExportOptions options)
+            throws SQLException, IOException {
+        ExportResult result = format == ExportFormat.ARROW
+            ? writeBinaryFile(filePath, Progress.NONE, out -> {
+                ArrowFileWriter.writeRowsAffected(out, affected);
+                return 0;
+            })
+            : writeFile(filePath, options, w -> {
+                writeRowsAffected(w, affected);
+                return 0;
+            });
+        result.setRowsWritten(affected);
+        return result;
+    }
+
+    @FunctionalInterface
+    interface FileBody {
+        /** Write the file content; returns the number of rows written. */
+        long write(TextFileWriter w) throws SQLException, IOException;
+    }
+
+    @FunctionalInterface
+    interface BinaryFileBody {
+        /** Write the file content; returns the number of rows written. */
+        long write(OutputStream out) throws SQLException, IOException;
     }
 
     /**
-     * Execute SQL and write the result to a file as plain text: no header, columns tab-separated per row.
-     * No extra newlines added between rows; only newlines present in the cell data are written (e.g. CLOB with line breaks).
-     * CLOB columns are read in full and written as text. Uses UTF-8. Returns the number of rows written.
+     * Create/overwrite the file as UTF-8 (compressed as the options say), run the body, and return rows and bytes
+     * written (file bytes also go to the options' progress). The body writes a sibling temp file that replaces
+     * filePath only once it is complete, so a failed export leaves any earlier file as it was.
+     */
+    static ExportResult writeFile(Path filePath, ExportOptions options, FileBody body) throws SQLException, IOException {
+        Path tmp = tempPath(filePath);
+        boolean ok = false;
+        try {
+            ExportResult result = new ExportResult();
+            TextFileWriter w = new TextFileWriter(tmp, options.getProgress(), options.getCompression(),
+                options.getCompressionLevel(), options.getCompressionBufferSize());
+            try (w) {
+                result.setRowsWritten(body.write(w));
+            }
+            result.setBytesWritten(w.getCount());
+            result.setUncompressedBytes(w.getUncompressedCount());
+            moveIntoPlace(tmp, filePath);
+            ok = true;
+            return result;
+        } finally {
+            if (!ok) deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * Create/overwrite a binary file through a buffered stream, run the body, and return rows and bytes written.
+     * Written through a temp file like {@link #writeFile}.
      */
-    public static long executeToTextFile(Connection conn, String sql, Path filePath) throws SQLException, IOException {
-        ExecutionResult r = execute(conn, sql);
-        if (!r.isSuccess()) {
-            throw new SQLException(r.getWarning() != null ? r.getWarning() : "Execution failed");
-        }
-        long rowsWritten;
-        try (BufferedWriter w = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
-            if (r.getColumns() != null && r.getRows() != null) {
-                for (List<Object> row : r.getRows()) {
-                    for (int i = 0; i < row.size(); i++) {
-                        if (i > 0) w.write('\t');
-                        Object o = row.get(i);
-                        if (o != null) w.write(o.toString());
+    static ExportResult writeBinaryFile(Path filePath, Progress progress, BinaryFileBody body) throws SQLException, IOException {
+        Path tmp = tempPath(filePath);
+        boolean ok = false;
+        try {
+            CountingOutputStream counter = new CountingOutputStream(Files.newOutputStream(tmp), progress);
+            ExportResult result = new ExportResult();
+            try (OutputStream out = new BufferedOutputStream(counter, 64 * 1024)) {
+                result.setRowsWritten(body.write(out));
+            }
+            result.setBytesWritten(counter.getCount());
+            moveIntoPlace(tmp, filePath);
+            ok = true;
+            return result;
+        } finally {
+            if (!ok) deleteQuietly(tmp);
+        }
+    }
+
+    /** name.tmp next to the target, so the final move stays on one file system. */
+    static Path tempPath(Path filePath) {
+        return filePath.resolveSibling(filePath.getFileName() + ".tmp");
+    }
+
+    /** Replace target with the finished temp file, atomically where the file system allows. */
+    static void moveIntoPlace(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void writeRowsAffected(TextFileWriter w, long rowsAffected) throws IOException {
+        w.write("Rows affected: ");
+        w.writeLong(rowsAffected);
+        w.newLine();
+    }
+
+    /**
+     * Write rows one by one straight from the ResultSet (CSV header first if asked), adding them to progress in
+     * chunks. CLOB/BLOB and long text or binary columns are copied from the driver's stream in small chunks (binary
+     * as hex), so a large value is never held in memory; integer columns are read with getLong and formatted
+     * without a String. Returns the number of rows written.
+     */
+    static long writeResultSet(TextFileWriter w, ResultSet rs, boolean csv, boolean header, Progress progress)
+            throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int cols = meta.getColumnCount();
+        if (csv && header) {
+            for (int i = 1; i <= cols; i++) {
+                if (i > 1) w.write(',');
+                w.writeCsv(meta.getColumnLabel(i));
+            }
+            w.newLine();
+        }
+        int[] kinds = new int[cols];
+        for (int i = 1; i <= cols; i++) kinds[i - 1] = cellKind(meta, i);
+        long rows = 0;
+        while (rs.next()) {
+            for (int i = 1; i <= cols; i++) {
+                if (i > 1) w.write(csv ? ',' : '\t');
+                switch (kinds[i - 1]) {
+                    case CELL_LONG: {
+                        long v = rs.getLong(i);
+                        if (!rs.wasNull()) w.writeLong(v);
+                        break;
                     }
-                    // do not add newline between rows; only data's own newlines appear
+                    case CELL_CHARS:
+                        Lobs.copyChars(rs.getCharacterStream(i), w, csv);
+                        break;
+                    case CELL_BYTES:
+                        Lobs.copyHex(rs.getBinaryStream(i), w);
+                        break;
+                    default:
+                        writeCell(w, rs.getObject(i), csv);
                 }
-                rowsWritten = r.getRows().size();
-            } else {
-                w.write("Rows affected: " + r.getRowsAffected());
-                w.newLine();
-                rowsWritten = r.getRowsAffected();
             }
+            if (csv) w.newLine(); // text: no newline between rows; only data's own newlines appear
+            if ((++rows & (Progress.ROW_CHUNK - 1)) == 0) progress.addRows(Progress.ROW_CHUNK);
         }
-        return rowsWritten;
+        progress.addRows(rows & (Progress.ROW_CHUNK - 1));
+        return rows;
     }
 
-    /** CSV standard: quote field if it contains comma, double-quote, newline, or CR; escape " as "". */
-    private static String csvEscapeRow(List<String> cells) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < cells.size(); i++) {
-            if (i > 0) sb.append(',');
-            String s = cells.get(i) == null ? "" : cells.get(i);
-            if (s.contains(",") || s.contains("\"") || s.contains("\n") || s.contains("\r")) {
-                sb.append('"').append(s.replace("\"", "\"\"")).append('"');
-            } else {
-                sb.append(s);
+    /** Write an already materialized result (callable / anonymous block). Returns the number of rows written. */
+    private static long writeResult(TextFileWriter w, ExecutionResult r, boolean csv) throws IOException {
+        if (r.getColumns() == null || r.getRows() == null) {
+            writeRowsAffected(w, r.getRowsAffected());
+            return r.getRowsAffected();
+        }
+        if (csv) {
+            List<String> columns = r.getColumns();
+            for (int c = 0; c < columns.size(); c++) {
+                if (c > 0) w.write(',');
+                if (columns.get(c) != null) w.writeCsv(columns.get(c));
+            }
+            w.newLine();
+        }
+        RowSet rows = r.getRows();
+        int cols = rows.getColumnCount();
+        for (int i = 0; i < rows.size(); i++) {
+            for (int c = 0; c < cols; c++) {
+                if (c > 0) w.write(csv ? ',' : '\t');
+                if (rows.isNull(i, c)) continue;
+                if (rows.getKind(c) == RowSet.Kind.LONG) {
+                    w.writeLong(rows.getLong(i, c));
+                } else {
+                    String s = rows.get(i, c).toString();
+                    if (csv) w.writeCsv(s);
+                    else w.write(s);
+                }
             }
+            if (csv) w.newLine(); // text: no newline between rows; only data's own newlines appear
         }
-        return sb.toString();
+        return rows.size();
+    }
+
+    private static final int CELL_OBJECT = 0;
+    private static final int CELL_LONG = 1;
+    private static final int CELL_CHARS = 2;
+    private static final int CELL_BYTES = 3;
+
+    /** How an export reads a column: getLong, a character stream, a binary stream, or getObject. */
+    private static int cellKind(ResultSetMetaData meta, int i) throws SQLException {
+        switch (meta.getColumnType(i)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return CELL_LONG;
+            case Types.BIGINT:
+                // BIGINT UNSIGNED (MySQL) can exceed a long
+                return isSigned(meta, i) ? CELL_LONG : CELL_OBJECT;
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+                return CELL_CHARS;
+            case Types.BLOB:
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                return CELL_BYTES;
+            default:
+                return CELL_OBJECT;
+        }
+    }
+
+    private static boolean isSigned(ResultSetMetaData meta, int i) {
+        try {
+            return meta.isSigned(i);
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    /** One getObject cell; LOBs the driver hands back for other column types are streamed too. */
+    private static void writeCell(TextFileWriter w, Object v, boolean csv) throws SQLException, IOException {
+        if (v == null) return;
+        if (v instanceof Clob) {
+            Clob c = (Clob) v;
+            try {
+                Lobs.copyChars(c.getCharacterStream(), w, csv);
+            } finally {
+                Lobs.free(c);
+            }
+        } else if (v instanceof Blob) {
+            Blob b = (Blob) v;
+            try {
+                Lobs.copyHex(b.getBinaryStream(), w);
+            } finally {
+                Lobs.free(b);
+            }
+        } else if (v instanceof byte[]) {
+            w.write(Lobs.hex((byte[]) v));
+        } else {
+            String s = v.toString();
+            if (csv) w.writeCsv(s);
+            else w.write(s);
+        }
+    }
+
+    /**
+     * SELECT or WITH: only these may be streamed for a cursor inside a transaction (statements such as VACUUM or
+     * CREATE INDEX CONCURRENTLY cannot run in one).
+     */
+    private static boolean isQuery(String sql) {
+        return sql.regionMatches(true, 0, "SELECT", 0, 6) || sql.regionMatches(true, 0, "WITH", 0, 4);
     }
 
     private static String inferStatementType(String sql) {
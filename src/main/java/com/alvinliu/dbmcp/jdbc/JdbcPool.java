@@ -3,9 +3,11 @@ package com.alvinliu.dbmcp.jdbc;
 import com.alibaba.druid.pool.DruidDataSource;
 import com.alvinliu.dbmcp.config.Config;
 import com.alvinliu.dbmcp.config.ConnectionEntry;
+import com.alvinliu.dbmcp.core.AnalysisCache;
 import com.alvinliu.dbmcp.core.PluginRegistry;
 import com.alvinliu.dbmcp.core.SqlAnalyzer;
 import com.alvinliu.dbmcp.core.SqlFormatter;
+import com.alvinliu.dbmcp.core.druid.DruidSqlAnalyzer;
 
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -17,11 +19,19 @@ import java.util.concurrent.ConcurrentHashMap;
  * Callers must close connections obtained from {@link #getConnection(String)} (e.g. try-with-resources).
  */
 public class JdbcPool {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+    /** Longest a health check waits to borrow a connection from an open pool. */
+    private static final long PROBE_WAIT_MS = 5_000;
+
     private final List<ConnectionEntry> configs;
     private final Map<String, DruidDataSource> dataSources = new ConcurrentHashMap<>();
     private final Map<String, Boolean> available = new ConcurrentHashMap<>();
+    /** Dialect per connection, read once from the first borrowed connection; dropped when the pool is. */
+    private final Map<String, Dialect> dialects = new ConcurrentHashMap<>();
     private final Map<String, SqlAnalyzer> analyzers = new ConcurrentHashMap<>();
     private final Map<String, SqlFormatter> formatters = new ConcurrentHashMap<>();
+    /** One analyzer per dialect (lowercase db_type), shared by that dialect's connections. */
+    private final Map<String, SqlAnalyzer> analyzersByDialect = new ConcurrentHashMap<>();
 
     public JdbcPool(Config config) {
         this.configs = config.getConnections();
@@ -31,10 +41,13 @@ public class JdbcPool {
         var review = config.getReview();
         var wholeText = review != null ? review.getWholeTextMatch() : null;
         var commandMatch = review != null ? review.getCommandMatch() : null;
+        int cacheEntries = config.getServer().getAnalyzerCacheEntries();
+        // Connections of the same dialect share one analyzer (and its result cache).
         for (ConnectionEntry e : this.configs) {
             if (e.getName() == null || e.getName().isBlank()) continue;
             String dbType = (e.getDbType() != null && !e.getDbType().isBlank()) ? e.getDbType().trim() : "mysql";
-            analyzers.put(e.getName(), PluginRegistry.getAnalyzer(dbType, wholeText, commandMatch));
+            analyzers.put(e.getName(), analyzersByDialect.computeIfAbsent(dbType.toLowerCase(),
+                k -> PluginRegistry.getAnalyzer(dbType, wholeText, commandMatch, cacheEntries)));
             formatters.put(e.getName(), PluginRegistry.getFormatter(dbType));
             if (e.getUrl() == null || e.getUrl().isBlank()) continue;
             try {
@@ -56,11 +69,34 @@ public class JdbcPool {
         ds.setUrl(e.getUrl());
         ds.setUsername(e.getUser() != null ? e.getUser() : "");
         ds.setPassword(e.getPassword() != null ? e.getPassword() : "");
-        ds.setInitialSize(1);
-        ds.setMaxActive(20);
-        ds.setMinIdle(0);
-        ds.setMaxWait(10_000);
-        // validation query is DB-specific (e.g. Oracle: SELECT 1 FROM DUAL); skip to avoid driver errors
+        // Druid refuses to init when min_idle or initial_size exceed max_active, when min idle time exceeds max idle
+        // time, or when keep-alive does not outlast an eviction run; reconcile instead of leaving the pool unavailable.
+        int maxActive = e.getMaxActive();
+        int minIdle = Math.min(e.getMinIdle(), maxActive);
+        int initialSize = e.isPrewarm() ? Math.max(e.getInitialSize(), minIdle) : e.getInitialSize();
+        ds.setInitialSize(Math.min(initialSize, maxActive));
+        ds.setMaxActive(maxActive);
+        ds.setMinIdle(minIdle);
+        ds.setMaxWait(e.getMaxWaitMs());
+        ds.setValidationQuery(validationQuery(e));
+        ds.setValidationQueryTimeout(VALIDATION_TIMEOUT_SECONDS);
+        ds.setTestWhileIdle(e.isTestWhileIdle());
+        ds.setTestOnBorrow(e.isTestOnBorrow());
+        ds.setTestOnReturn(false);
+        ds.setTimeBetweenEvictionRunsMillis(e.getEvictionIntervalMs());
+        ds.setMaxEvictableIdleTimeMillis(Math.max(ds.getMaxEvictableIdleTimeMillis(), e.getMinEvictableIdleMs() + 1L));
+        ds.setMinEvictableIdleTimeMillis(e.getMinEvictableIdleMs());
+        ds.setKeepAlive(e.isKeepAlive());
+        ds.setKeepAliveBetweenTimeMillis(Math.max(e.getKeepAliveIntervalMs(), e.getEvictionIntervalMs() + 1));
+        if (e.isRewriteBatchedStatements()) {
+            String prop = batchRewriteProperty(e.getDbType());
+            if (prop != null) ds.addConnectionProperty(prop, "true");
+        }
+        // Parameterized statements (execute_sql params) reuse the driver's prepared statement / server cursor.
+        if (e.getPreparedStatementCacheSize() > 0) {
+            ds.setPoolPreparedStatements(true);
+            ds.setMaxPoolPreparedStatementPerConnectionSize(e.getPreparedStatementCacheSize());
+        }
         try {
             ds.init();
         } catch (Exception ex) {
@@ -70,6 +106,122 @@ public class JdbcPool {
         return ds;
     }
 
+    /**
+     * validation_query from config, else a dialect default from db_type (or the JDBC URL when db_type is omitted):
+     * FROM DUAL on Oracle, SYSIBM.SYSDUMMY1 on DB2, VALUES 1 on Derby, SELECT 1 elsewhere.
+     */
+    private static String validationQuery(ConnectionEntry e) {
+        if (e.getValidationQuery() != null && !e.getValidationQuery().isBlank()) return e.getValidationQuery();
+        String t = e.getDbType() != null && !e.getDbType().isBlank() ? e.getDbType().trim().toLowerCase() : urlSubprotocol(e.getUrl());
+        switch (t) {
+            case "oracle":
+            case "oceanbase_oracle":
+                return "SELECT 1 FROM DUAL";
+            case "db2":
+                return "SELECT 1 FROM SYSIBM.SYSDUMMY1";
+            case "derby":
+                return "VALUES 1";
+            case "hsql":
+            case "hsqldb":
+                return "SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS";
+            case "informix":
+                return "SELECT 1 FROM systables WHERE tabid = 1";
+            default:
+                return "SELECT 1";
+        }
+    }
+
+    /** "oracle" for jdbc:oracle:thin:..., "" when the URL is not a JDBC URL. */
+    private static String urlSubprotocol(String url) {
+        if (url == null || !url.startsWith("jdbc:")) return "";
+        int end = url.indexOf(':', 5);
+        return end > 5 ? url.substring(5, end).toLowerCase() : "";
+    }
+
+    /** Driver property that rewrites JDBC batches into multi-row statements, or null if the dialect has none. */
+    private static String batchRewriteProperty(String dbType) {
+        String t = dbType != null && !dbType.isBlank() ? dbType.trim().toLowerCase() : "mysql";
+        switch (t) {
+            case "mysql":
+            case "mariadb":
+                return "rewriteBatchedStatements";
+            case "postgresql":
+                return "reWriteBatchedInserts";
+            default:
+                return null;
+        }
+    }
+
+    /** Analysis caches by dialect (only dialects whose analyzer caches results). */
+    public Map<String, AnalysisCache> getAnalyzerCaches() {
+        Map<String, AnalysisCache> out = new TreeMap<>();
+        analyzersByDialect.forEach((dialect, a) -> {
+            if (a instanceof DruidSqlAnalyzer && ((DruidSqlAnalyzer) a).getCache() != null) {
+                out.put(dialect, ((DruidSqlAnalyzer) a).getCache());
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Pool usage per open data source: {active connections, idle pooled connections, threads waiting to borrow}.
+     * Connections without a pool (unavailable or never opened) are absent.
+     */
+    public Map<String, int[]> getPoolCounts() {
+        Map<String, int[]> out = new TreeMap<>();
+        dataSources.forEach((name, ds) ->
+            out.put(name, new int[] { ds.getActiveCount(), ds.getPoolingCount(), ds.getWaitThreadCount() }));
+        return out;
+    }
+
+    /** Prepared statement cache per open data source: {hits, misses} since the pool was created. */
+    public Map<String, long[]> getPreparedStatementCacheCounts() {
+        Map<String, long[]> out = new TreeMap<>();
+        dataSources.forEach((name, ds) -> {
+            if (ds.isPoolPreparedStatements()) {
+                out.put(name, new long[] { ds.getCachedPreparedStatementHitCount(), ds.getCachedPreparedStatementMissCount() });
+            }
+        });
+        return out;
+    }
+
+    /** Pool size limit for the connection (bounds parallel export workers). */
+    public int getMaxActive(String connectionName) {
+        DruidDataSource ds = dataSources.get(connectionName);
+        if (ds != null) return ds.getMaxActive();
+        ConnectionEntry e = configs.stream().filter(c -> c.getName() != null && c.getName().equals(connectionName)).findFirst().orElse(null);
+        return e != null ? e.getMaxActive() : 1;
+    }
+
+    /** Dialect already read for the connection, or null; never touches the database. */
+    public Dialect getCachedDialect(String connectionName) {
+        return dialects.get(connectionName);
+    }
+
+    /** Cached dialect of the connection; on first use it is read from conn (a connection borrowed from this pool). */
+    public Dialect getDialect(String connectionName, Connection conn) {
+        Dialect d = dialects.get(connectionName);
+        if (d != null) return d;
+        d = Dialect.detect(conn);
+        Dialect prev = dialects.putIfAbsent(connectionName, d);
+        return prev != null ? prev : d;
+    }
+
+    /**
+     * Cached dialect of the connection, borrowing a connection to read it on first use. When the database cannot be
+     * reached the configured db_type decides (not cached).
+     */
+    public Dialect getDialect(String connectionName) {
+        Dialect d = dialects.get(connectionName);
+        if (d != null) return d;
+        try (Connection conn = getConnection(connectionName)) {
+            return getDialect(connectionName, conn);
+        } catch (SQLException e) {
+            ConnectionEntry c = configs.stream().filter(x -> x.getName() != null && x.getName().equals(connectionName)).findFirst().orElse(null);
+            return Dialect.fromDbType(c != null ? c.getDbType() : null);
+        }
+    }
+
     public SqlAnalyzer getAnalyzer(String connectionName) {
         return analyzers.getOrDefault(connectionName, PluginRegistry.getAnalyzer("mysql",
             Collections.emptyList(), Collections.emptyList()));
@@ -81,7 +233,7 @@ public class JdbcPool {
 
     /** Error message when connection is unavailable: for AI client to show to end user. */
     public static final String MSG_CONNECTION_UNAVAILABLE =
-        "Database connection unavailable. Please ask the user to check the database connection; after it is available, use the list_connections tool to re-validate connectivity.";
+        "Database connection unavailable. Please ask the user to check the database connection; after it is available, use the list_connections tool with refresh=true to re-validate connectivity.";
 
     /**
      * Borrow a connection from the pool. Caller must close it (e.g. try-with-resources).
@@ -93,12 +245,18 @@ public class JdbcPool {
         }
         DruidDataSource ds = dataSources.get(name);
         if (ds != null) return ds.getConnection();
-        ConnectionEntry entry = configs.stream().filter(e -> name.equals(e.getName())).findFirst().orElse(null);
-        if (entry == null) throw new SQLException("unknown connection: " + name);
-        DruidDataSource newDs = createDataSource(entry);
-        dataSources.put(name, newDs);
-        available.put(name, true);
-        return newDs.getConnection();
+        // Concurrent tool calls may race here; create the pool once.
+        synchronized (this) {
+            ds = dataSources.get(name);
+            if (ds == null) {
+                ConnectionEntry entry = configs.stream().filter(e -> name.equals(e.getName())).findFirst().orElse(null);
+                if (entry == null) throw new SQLException("unknown connection: " + name);
+                ds = createDataSource(entry);
+                dataSources.put(name, ds);
+                available.put(name, true);
+            }
+        }
+        return ds.getConnection();
     }
 
     public List<String> getNames() {
@@ -110,15 +268,16 @@ public class JdbcPool {
     }
 
     /**
-     * List all configured connections with current availability. Each call re-checks every connection
-     * (getConnection + isValid). Failed or initially-unopened connections are retried (re-create pool if missing).
+     * List all configured connections with current availability. Each call re-checks every connection on the calling
+     * thread, one after another (see {@link #probe(String)}); {@link HealthMonitor} serves the same list from
+     * background checks instead.
      */
     public List<Map<String, Object>> listConnectionsWithStatus() {
         List<Map<String, Object>> out = new ArrayList<>();
         for (ConnectionEntry e : configs) {
             String name = e.getName();
             if (name == null || name.isBlank()) continue;
-            boolean ok = checkConnection(name, e);
+            boolean ok = probe(name) == null;
             Map<String, Object> m = new LinkedHashMap<>();
             m.put("name", name);
             m.put("available", ok);
@@ -128,31 +287,68 @@ public class JdbcPool {
         return out;
     }
 
-    /** Re-check one connection; retry creating pool if missing or failed. Returns true if available. */
-    private boolean checkConnection(String name, ConnectionEntry e) {
-        if (e.getUrl() == null || e.getUrl().isBlank()) return false;
+    /** Display name of the connection's db_type (as listed by list_connections). */
+    public String getDbTypeDisplayName(String connectionName) {
+        ConnectionEntry e = configs.stream().filter(c -> connectionName != null && connectionName.equals(c.getName())).findFirst().orElse(null);
+        return com.alvinliu.dbmcp.core.druid.DbTypes.displayName(e != null ? e.getDbType() : null);
+    }
+
+    /** Last known availability: true once the pool opened or a check passed, false after a failure or when never opened. */
+    public boolean isAvailable(String name) {
+        return Boolean.TRUE.equals(available.get(name));
+    }
+
+    /** {@link #probe(String, boolean)} that closes the pool on failure, as list_connections always has. */
+    String probe(String name) {
+        return probe(name, true);
+    }
+
+    /**
+     * Re-check one connection: open its pool if missing (or after a failure), otherwise borrow a connection and
+     * validate it. Returns null when available, else why not; availability is updated either way. A pool whose
+     * connections are all borrowed counts as available (it is busy, not down) and is left alone. On failure the
+     * pool is closed (ending the queries, cursors and exports running on it) only with closeOnFailure or when
+     * none of its connections are borrowed; otherwise new calls fail fast until a later probe passes.
+     */
+    String probe(String name, boolean closeOnFailure) {
+        ConnectionEntry e = configs.stream().filter(c -> name.equals(c.getName())).findFirst().orElse(null);
+        if (e == null) return "unknown connection: " + name;
+        if (e.getUrl() == null || e.getUrl().isBlank()) {
+            available.put(name, false);
+            return "no url configured";
+        }
         DruidDataSource ds = dataSources.get(name);
         if (ds == null) {
             try {
                 ds = createDataSource(e);
-                dataSources.put(name, ds);
-                available.put(name, true);
-                return true;
             } catch (Exception ex) {
                 available.put(name, false);
-                return false;
+                return ex.getMessage() != null ? ex.getMessage() : ex.toString();
             }
+            // A tool call may have opened the pool meanwhile; keep that one.
+            DruidDataSource prev = dataSources.putIfAbsent(name, ds);
+            if (prev != null) ds.close();
+            available.put(name, true);
+            return null;
         }
-        try (Connection c = ds.getConnection()) {
-            boolean valid = c != null && c.isValid(2);
-            if (valid) available.put(name, true);
-            return valid;
+        if (ds.getActiveCount() >= ds.getMaxActive()) return null;
+        String failure;
+        try (Connection c = ds.getConnection(PROBE_WAIT_MS)) {
+            if (c.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                available.put(name, true);
+                getDialect(name, c);
+                return null;
+            }
+            failure = "connection is not valid";
         } catch (SQLException ex) {
-            available.put(name, false);
+            failure = ex.getMessage() != null ? ex.getMessage() : ex.toString();
+        }
+        available.put(name, false);
+        if ((closeOnFailure || ds.getActiveCount() == 0) && dataSources.remove(name, ds)) {
+            dialects.remove(name);
             try { ds.close(); } catch (Exception ignored) {}
-            dataSources.remove(name);
-            return false;
         }
+        return failure;
     }
 
     /**
@@ -172,6 +368,7 @@ public class JdbcPool {
      * so subsequent getConnection(name) fast-fails until list_connections re-checks.
      */
     public void markUnavailable(String name) {
+        dialects.remove(name); // the database may come back upgraded or replaced
         DruidDataSource ds = dataSources.remove(name);
         if (ds != null) {
             try { ds.close(); } catch (Exception ignored) {}
@@ -207,5 +404,6 @@ public class JdbcPool {
         }
         dataSources.clear();
         available.clear();
+        dialects.clear();
     }
 }
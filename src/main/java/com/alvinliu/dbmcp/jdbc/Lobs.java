@@ -0,0 +1,126 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+
+/**
+ * Streaming reads of large values (CLOB, BLOB, long text and binary columns): copied to an export in small
+ * chunks, or read up to a limit for inline results, so a value is never held whole unless it is small.
+ */
+final class Lobs {
+    private static final int CHUNK = 8192;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Lobs() {}
+
+    /** Up to max chars of r (all when max is 0), then closes r. Null for a null reader. */
+    static String readChars(Reader r, long max) throws SQLException {
+        if (r == null) return null;
+        try (Reader in = r) {
+            StringBuilder sb = new StringBuilder();
+            char[] buf = new char[CHUNK];
+            int n;
+            while ((max <= 0 || sb.length() < max)
+                    && (n = in.read(buf, 0, max <= 0 ? buf.length : (int) Math.min(buf.length, max - sb.length()))) >= 0) {
+                sb.append(buf, 0, n);
+            }
+            return sb.toString();
+        } catch (IOException e) {
+            throw new SQLException("Failed to read character data", e);
+        }
+    }
+
+    /** Up to max bytes of in (all when max is 0), then closes in. Null for a null stream. */
+    static byte[] readBytes(InputStream in, long max) throws SQLException {
+        if (in == null) return null;
+        try (InputStream s = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[CHUNK];
+            int n;
+            while ((max <= 0 || out.size() < max)
+                    && (n = s.read(buf, 0, max <= 0 ? buf.length : (int) Math.min(buf.length, max - out.size()))) >= 0) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new SQLException("Failed to read binary data", e);
+        }
+    }
+
+    /**
+     * Copy r to w chunk by chunk, then close r; nothing is written for a null reader. For CSV the value is always
+     * quoted with " doubled, since whether it needs quoting is not known until its end.
+     */
+    static void copyChars(Reader r, Writer w, boolean csv) throws IOException {
+        if (r == null) return;
+        try (Reader in = r) {
+            if (csv) w.write('"');
+            char[] buf = new char[CHUNK];
+            int n;
+            while ((n = in.read(buf)) >= 0) {
+                if (!csv) {
+                    w.write(buf, 0, n);
+                    continue;
+                }
+                int start = 0;
+                for (int i = 0; i < n; i++) {
+                    if (buf[i] != '"') continue;
+                    w.write(buf, start, i + 1 - start);
+                    w.write('"');
+                    start = i + 1;
+                }
+                w.write(buf, start, n - start);
+            }
+            if (csv) w.write('"');
+        }
+    }
+
+    /** Copy in to w as lowercase hex chunk by chunk, then close in; nothing is written for a null stream. */
+    static void copyHex(InputStream in, Writer w) throws IOException {
+        if (in == null) return;
+        try (InputStream s = in) {
+            byte[] buf = new byte[CHUNK];
+            char[] out = new char[CHUNK * 2];
+            int n;
+            while ((n = s.read(buf)) >= 0) {
+                for (int i = 0; i < n; i++) {
+                    out[2 * i] = HEX[(buf[i] >> 4) & 0xF];
+                    out[2 * i + 1] = HEX[buf[i] & 0xF];
+                }
+                w.write(out, 0, 2 * n);
+            }
+        }
+    }
+
+    static String hex(byte[] b) {
+        char[] out = new char[b.length * 2];
+        for (int i = 0; i < b.length; i++) {
+            out[2 * i] = HEX[(b[i] >> 4) & 0xF];
+            out[2 * i + 1] = HEX[b[i] & 0xF];
+        }
+        return new String(out);
+    }
+
+    /** Release the locator (temporary LOBs on Oracle); drivers without free() are fine. */
+    static void free(Clob c) {
+        try {
+            c.free();
+        } catch (SQLException | RuntimeException | AbstractMethodError ignored) {
+            // released with the result set
+        }
+    }
+
+    static void free(Blob b) {
+        try {
+            b.free();
+        } catch (SQLException | RuntimeException | AbstractMethodError ignored) {
+            // released with the result set
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the OUT / INOUT values of a callable statement with the JSON types rows have (see {@link RowSet}):
+ * integers and decimals as numbers, booleans, dates and times as text, binary as hex. CLOB / BLOB values are cut at
+ * max_lob_chars like row values; cursors (REF_CURSOR, or a ResultSet from getObject) are read through the same
+ * RowSet pipeline as query results, up to max_rows.
+ */
+final class OutParams {
+    private final ExecuteOptions options;
+    private int truncated;
+
+    OutParams(ExecuteOptions options) {
+        this.options = options;
+    }
+
+    /** Values of the declared positions, in position order, keyed by position. */
+    Map<String, Object> read(CallableStatement cs, Map<Integer, Integer> declared) throws SQLException {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Integer> e : new TreeMap<>(declared).entrySet()) {
+            out.put(String.valueOf(e.getKey()), value(cs, e.getKey(), e.getValue()));
+        }
+        return out;
+    }
+
+    /** Values cut at max_lob_chars, including those in cursor rows. */
+    int getTruncatedValues() { return truncated; }
+
+    private Object value(CallableStatement cs, int index, int sqlType) throws SQLException {
+        Object v;
+        if (sqlType == Types.REF_CURSOR) {
+            try {
+                v = cs.getObject(index, ResultSet.class);
+            } catch (SQLException e) {
+                v = cs.getObject(index); // drivers before JDBC 4.2 hand the cursor out as a plain object
+            }
+        } else {
+            v = cs.getObject(index);
+        }
+        if (v == null) return null;
+        if (v instanceof ResultSet) {
+            try (ResultSet rs = (ResultSet) v) {
+                ExecutionResult.ResultSetData data = JdbcExecutor.readResultSetData(rs, options);
+                truncated += data.getRows().getTruncatedValues();
+                return data;
+            }
+        }
+        if (v instanceof Boolean || v instanceof Long || v instanceof BigDecimal) return v;
+        if (v instanceof Integer || v instanceof Short || v instanceof Byte) return ((Number) v).longValue();
+        if (v instanceof BigInteger) return new BigDecimal((BigInteger) v);
+        if (v instanceof Double || v instanceof Float) {
+            double d = ((Number) v).doubleValue();
+            // JSON has no NaN or Infinity
+            return Double.isFinite(d) ? v : v.toString();
+        }
+        if (v instanceof Clob) return clob((Clob) v);
+        if (v instanceof Blob) return blob((Blob) v);
+        if (v instanceof byte[]) return Lobs.hex((byte[]) v);
+        return v.toString();
+    }
+
+    private String clob(Clob c) throws SQLException {
+        int limit = options.getMaxLobChars();
+        try {
+            long length = c.length();
+            if (limit <= 0 || length <= limit) return Lobs.readChars(c.getCharacterStream(), 0);
+            truncated++;
+            return Lobs.readChars(c.getCharacterStream(), limit) + "...[truncated: " + length + " chars]";
+        } finally {
+            Lobs.free(c);
+        }
+    }
+
+    private String blob(Blob b) throws SQLException {
+        int limit = options.getMaxLobChars();
+        int max = limit / 2;
+        try {
+            long length = b.length();
+            if (limit <= 0 || length <= max) return Lobs.hex(Lobs.readBytes(b.getBinaryStream(), 0));
+            truncated++;
+            return Lobs.hex(Lobs.readBytes(b.getBinaryStream(), max)) + "...[truncated: " + length + " bytes]";
+        } finally {
+            Lobs.free(b);
+        }
+    }
+}
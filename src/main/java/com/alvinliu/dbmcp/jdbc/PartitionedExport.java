@@ -0,0 +1,312 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Range-partitioned export: split one SELECT into key ranges on an integer column (from MIN/MAX of the column
+ * over the query), export every range on its own pooled connection at once, then keep the ranges as ordered part
+ * files or join them into the target file.
+ * <p>
+ * Range i is {@code SELECT * FROM (sql) p WHERE col >= lo AND col < hi}; the first range also takes NULL keys and
+ * the first and last ranges are open-ended, so rows outside the MIN/MAX seen at planning time are still exported.
+ * Rows are ordered by range, not by any ORDER BY inside the query. Ranges are equal in key width, not in row count.
+ * <p>
+ * Ranges are not one consistent read: each runs on its own connection and transaction, started at slightly
+ * different times (and after the MIN/MAX query). When the data changes during the export, a row whose key moves
+ * between ranges, or that is inserted or deleted meanwhile, can be missing or written twice, and a merged file
+ * does not show it. A single unpartitioned export reads one statement's view.
+ * <p>
+ * When one range fails, the statements of the others are cancelled, and the export returns only after every
+ * range has stopped, so no worker still holds a connection or writes a part file.
+ */
+final class PartitionedExport {
+
+    /** Plain or qualified identifier, or one quoted identifier ("x", `x`, [x]). */
+    private static final Pattern COLUMN = Pattern.compile(
+        "[A-Za-z_][A-Za-z0-9_$#]*(\\.[A-Za-z_][A-Za-z0-9_$#]*)?|\"[^\"]+\"|`[^`]+`|\\[[^\\]]+]");
+    private static final String ALIAS = "dbmcp_part";
+
+    private PartitionedExport() {}
+
+    static ExportResult run(JdbcExecutor.ConnectionSource source, Dialect dialect, String sql, Path filePath,
+                            ExportFormat format, ExportOptions options) throws SQLException, IOException {
+        String column = options.getPartitionColumn().trim();
+        if (!COLUMN.matcher(column).matches()) {
+            throw new SQLException("partition_column must be a column name: " + column);
+        }
+        String query;
+        List<String> ranges;
+        try (Connection conn = source.get()) {
+            List<String> statements = JdbcExecutor.nonEmpty(JdbcExecutor.statementsFor(dialect, sql.trim()));
+            query = statements.size() == 1 ? statements.get(0) : null;
+            String head = query != null ? query.toUpperCase(Locale.ROOT) : "";
+            if (!head.startsWith("SELECT") && !head.startsWith("WITH")) {
+                throw new SQLException("partition_column requires a single SELECT statement");
+            }
+            ranges = ranges(conn, query, column, options.getParallelism(), options.getCancellation());
+        }
+
+        int n = ranges.size();
+        List<Path> parts = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) parts.add(partPath(filePath, i, options.isPartFiles()));
+        List<ExportResult> partResults = new ArrayList<>(n);
+        List<ArrowFileWriter.Layout> layouts = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) layouts.add(null);
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(n, r -> {
+            Thread t = new Thread(r, "db-mcp-export-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Cancellation rangeCancellation = options.getCancellation().child();
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        boolean ok = false;
+        try {
+            List<Future<ExportResult>> futures = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int index = i;
+                String partSql = "SELECT * FROM (" + query + ") " + ALIAS + " WHERE " + ranges.get(i);
+                boolean header = options.isPartFiles() || i == 0;
+                futures.add(workers.submit(() -> {
+                    try {
+                        return exportPart(source, dialect, partSql, parts.get(index), format, header, layouts, index,
+                            rangeCancellation, options);
+                    } catch (Throwable e) {
+                        if (firstFailure.compareAndSet(null, e)) rangeCancellation.cancel("Export stopped: another range failed");
+                        throw e;
+                    }
+                }));
+            }
+            partResults.addAll(awaitAll(futures, firstFailure, rangeCancellation));
+            ExportResult result = options.isPartFiles() ? summarize(parts, partResults) : merge(filePath, parts, layouts, partResults, format);
+            result.setPartitions(n);
+            ok = true;
+            return result;
+        } finally {
+            stop(workers);
+            if (!ok || !options.isPartFiles()) {
+                for (Path p : parts) JdbcExecutor.deleteQuietly(p);
+            }
+        }
+    }
+
+    /**
+     * WHERE conditions for up to parallelism ranges of equal key width between MIN and MAX of the column.
+     * An empty result or a single key gives one range.
+     */
+    private static List<String> ranges(Connection conn, String query, String column, int parallelism,
+                                       Cancellation cancellation) throws SQLException {
+        BigDecimal min;
+        BigDecimal max;
+        try (Statement st = conn.createStatement()) {
+            cancellation.begin(st);
+            try (ResultSet rs = st.executeQuery("SELECT MIN(" + column + "), MAX(" + column + ") FROM (" + query + ") " + ALIAS)) {
+                rs.next();
+                min = rs.getBigDecimal(1);
+                max = rs.getBigDecimal(2);
+            } finally {
+                cancellation.end(st);
+            }
+        } catch (SQLException e) {
+            cancellation.check();
+            throw new SQLException("partition_column " + column + ": cannot read MIN/MAX (" + e.getMessage() + ")", e);
+        }
+        List<String> ranges = new ArrayList<>();
+        if (min == null || max == null) {
+            ranges.add("1=1");
+            return ranges;
+        }
+        if (!isIntegral(min) || !isIntegral(max)) {
+            throw new SQLException("partition_column must hold integer values: " + column);
+        }
+        BigInteger lo = min.toBigIntegerExact();
+        BigInteger span = max.toBigIntegerExact().subtract(lo).add(BigInteger.ONE);
+        int n = span.min(BigInteger.valueOf(parallelism)).intValue();
+        if (n <= 1) {
+            ranges.add("1=1");
+            return ranges;
+        }
+        BigInteger[] bounds = new BigInteger[n];
+        for (int i = 0; i < n; i++) {
+            bounds[i] = lo.add(span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(n)));
+        }
+        for (int i = 0; i < n; i++) {
+            if (i == 0) {
+                ranges.add("(" + column + " < " + bounds[1] + " OR " + column + " IS NULL)");
+            } else if (i == n - 1) {
+                ranges.add(column + " >= " + bounds[i]);
+            } else {
+                ranges.add(column + " >= " + bounds[i] + " AND " + column + " < " + bounds[i + 1]);
+            }
+        }
+        return ranges;
+    }
+
+    private static boolean isIntegral(BigDecimal v) {
+        return v.signum() == 0 || v.stripTrailingZeros().scale() <= 0;
+    }
+
+    private static ExportResult exportPart(JdbcExecutor.ConnectionSource source, Dialect dialect, String partSql, Path path,
+                                           ExportFormat format, boolean header, List<ArrowFileWriter.Layout> layouts, int index,
+                                           Cancellation cancellation, ExportOptions options) throws SQLException, IOException {
+        Progress progress = options.getProgress();
+        try (Connection conn = source.get()) {
+            boolean streaming = false;
+            Throwable failure = null;
+            try (Statement st = conn.createStatement()) {
+                cancellation.begin(st);
+                streaming = JdbcExecutor.beginStreaming(conn, st, dialect);
+                try (ResultSet rs = st.executeQuery(partSql)) {
+                    if (format == ExportFormat.ARROW) {
+                        return JdbcExecutor.writeBinaryFile(path, progress, out -> {
+                            ArrowFileWriter.Layout layout = ArrowFileWriter.writeResultSetPart(out, rs, progress);
+                            layouts.set(index, layout);
+                            return layout.getRows();
+                        });
+                    }
+                    return JdbcExecutor.writeFile(path, options, w -> JdbcExecutor.writeResultSet(w, rs, format == ExportFormat.CSV, header, progress));
+                } finally {
+                    cancellation.end(st);
+                }
+            } catch (Throwable e) {
+                failure = e;
+                throw e;
+            } finally {
+                if (streaming) JdbcExecutor.endStreaming(conn, failure);
+            }
+        }
+    }
+
+    /**
+     * Wait for every range, then rethrow the first failure if any: the ranges still running when it happened were
+     * cancelled and fail after it, so theirs are not the cause.
+     */
+    private static List<ExportResult> awaitAll(List<Future<ExportResult>> futures, AtomicReference<Throwable> firstFailure,
+                                               Cancellation rangeCancellation) throws SQLException, IOException {
+        List<ExportResult> results = new ArrayList<>(futures.size());
+        for (Future<ExportResult> f : futures) {
+            try {
+                results.add(f.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rangeCancellation.cancel("Export interrupted");
+                throw new SQLException("export interrupted", e);
+            } catch (ExecutionException e) {
+                // recorded in firstFailure; keep waiting for the others
+            }
+        }
+        Throwable cause = firstFailure.get();
+        if (cause == null) return results;
+        if (cause instanceof SQLException) throw (SQLException) cause;
+        if (cause instanceof IOException) throw (IOException) cause;
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        throw new SQLException(cause);
+    }
+
+    /**
+     * Interrupt the workers and wait until they end. A cancelled range stops when its driver gives up the query,
+     * at the latest at its query timeout.
+     */
+    private static void stop(ExecutorService workers) {
+        workers.shutdownNow();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                // still ending its statement
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExportResult summarize(List<Path> parts, List<ExportResult> partResults) {
+        ExportResult result = new ExportResult();
+        List<String> files = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            result.setRowsWritten(result.getRowsWritten() + partResults.get(i).getRowsWritten());
+            result.setBytesWritten(result.getBytesWritten() + partResults.get(i).getBytesWritten());
+            result.setUncompressedBytes(result.getUncompressedBytes() + partResults.get(i).getUncompressedBytes());
+            files.add(parts.get(i).toString());
+        }
+        result.setFiles(files);
+        return result;
+    }
+
+    /**
+     * Join the part files into filePath in range order (byte copy; Arrow batches are re-indexed, not re-encoded;
+     * compressed parts stay valid as one stream of several gzip members / zstd frames). Written through a temp
+     * file that replaces filePath once complete.
+     */
+    private static ExportResult merge(Path filePath, List<Path> parts, List<ArrowFileWriter.Layout> layouts,
+                                      List<ExportResult> partResults, ExportFormat format) throws IOException {
+        Path tmp = JdbcExecutor.tempPath(filePath);
+        boolean ok = false;
+        try {
+            ExportResult result = join(tmp, parts, layouts, partResults, format);
+            JdbcExecutor.moveIntoPlace(tmp, filePath);
+            ok = true;
+            return result;
+        } finally {
+            if (!ok) JdbcExecutor.deleteQuietly(tmp);
+        }
+    }
+
+    private static ExportResult join(Path filePath, List<Path> parts, List<ArrowFileWriter.Layout> layouts,
+                                     List<ExportResult> partResults, ExportFormat format) throws IOException {
+        ExportResult result = new ExportResult();
+        try (FileChannel target = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (format == ExportFormat.ARROW) {
+                ArrowFileWriter.merge(parts, layouts, target);
+            } else {
+                for (Path part : parts) {
+                    try (FileChannel src = FileChannel.open(part, StandardOpenOption.READ)) {
+                        ArrowFileWriter.transfer(src, 0, src.size(), target);
+                    }
+                }
+            }
+            result.setBytesWritten(target.size());
+        }
+        for (ExportResult r : partResults) {
+            result.setRowsWritten(result.getRowsWritten() + r.getRowsWritten());
+            result.setUncompressedBytes(result.getUncompressedBytes() + r.getUncompressedBytes());
+        }
+        return result;
+    }
+
+    /**
+     * name.ext -> name.part-000.ext (name.csv.gz -> name.part-000.csv.gz) when kept; otherwise a temporary
+     * name.ext.part-000.tmp next to the target.
+     */
+    private static Path partPath(Path filePath, int index, boolean keep) {
+        String name = filePath.getFileName().toString();
+        String suffix = String.format(".part-%03d", index);
+        if (!keep) return filePath.resolveSibling(name + suffix + ".tmp");
+        int dot = name.lastIndexOf('.');
+        if (dot > 0 && (name.endsWith(".gz") || name.endsWith(".zst")) && name.lastIndexOf('.', dot - 1) > 0) {
+            dot = name.lastIndexOf('.', dot - 1);
+        }
+        return dot > 0
+            ? filePath.resolveSibling(name.substring(0, dot) + suffix + name.substring(dot))
+            : filePath.resolveSibling(name + suffix);
+    }
+}
@@ -0,0 +1,77 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running totals of one long tool call: rows fetched, bytes written, statements completed. The listener is told
+ * each time rows or statements cross the next multiple of their interval. Row loops count locally and add in
+ * chunks of {@link #ROW_CHUNK}, so tracking costs them a counter compare per row; the listener runs on the
+ * worker thread and must only hand off. Thread-safe: partitioned export workers share one instance.
+ */
+public final class Progress {
+    /** No listener: every method is a no-op. */
+    public static final Progress NONE = new Progress(null, 0, 0);
+    /** Rows a row loop accumulates before adding them here. */
+    static final int ROW_CHUNK = 1024;
+
+    /** Told when an interval is crossed; read the totals from the progress passed in. */
+    public interface Listener {
+        void onProgress(Progress progress);
+    }
+
+    private final Listener listener;
+    private final long rowInterval;
+    private final long statementInterval;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong statements = new AtomicLong();
+    private volatile long nextRows;
+    private volatile long nextStatements;
+
+    /** Report every rowInterval rows and every statementInterval statements; 0 = never on that count. */
+    public Progress(Listener listener, long rowInterval, long statementInterval) {
+        this.listener = listener;
+        this.rowInterval = Math.max(0, rowInterval);
+        this.statementInterval = Math.max(0, statementInterval);
+        this.nextRows = rowInterval > 0 ? rowInterval : Long.MAX_VALUE;
+        this.nextStatements = statementInterval > 0 ? statementInterval : Long.MAX_VALUE;
+    }
+
+    void addRows(long n) {
+        if (listener == null || n <= 0) return;
+        long total = rows.addAndGet(n);
+        if (total < nextRows) return;
+        synchronized (this) {
+            if (total < nextRows) return;
+            nextRows = (total / rowInterval + 1) * rowInterval;
+        }
+        listener.onProgress(this);
+    }
+
+    void addBytes(long n) {
+        if (listener != null) bytes.addAndGet(n);
+    }
+
+    /** {@code count} more statements finished, having returned or changed rowsAffected rows in all. */
+    void addStatements(long count, long rowsAffected) {
+        if (listener == null) return;
+        if (rowsAffected > 0) rows.addAndGet(rowsAffected);
+        long total = statements.addAndGet(count);
+        if (total < nextStatements) return;
+        synchronized (this) {
+            if (total < nextStatements) return;
+            nextStatements = (total / statementInterval + 1) * statementInterval;
+        }
+        listener.onProgress(this);
+    }
+
+    public long getRows() { return rows.get(); }
+
+    public long getBytes() { return bytes.get(); }
+
+    public long getStatements() { return statements.get(); }
+
+    /** Time since tracking started (the rate is rows * 1000 / elapsed). */
+    public long getElapsedMs() { return (System.nanoTime() - startNanos) / 1_000_000; }
+}
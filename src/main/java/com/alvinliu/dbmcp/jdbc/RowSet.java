@@ -0,0 +1,415 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+
+/**
+ * Rows of one result set held column by column, typed once from {@link ResultSetMetaData}: integers in a long[],
+ * floating point in a float[] or double[], booleans in a boolean[], DECIMAL as BigDecimal and everything else as
+ * text. Values are read with the matching getter (getLong, getDouble, getString, ...), so numbers are not boxed and
+ * no list is built per row, and a column has the same value type whatever the driver: dates and times are their
+ * JDBC escape text (2024-01-31, 12:00:00, 2024-01-31 12:00:00.0), binary is hex, other types their string form.
+ * LOBs may be capped (see {@link #RowSet(ResultSetMetaData, int)}). Not thread-safe.
+ */
+public final class RowSet {
+
+    /** How a column's values are stored and read back. */
+    public enum Kind { LONG, FLOAT, DOUBLE, BOOLEAN, DECIMAL, TEXT }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Column[] columns;
+    private int size;
+    private int capacity;
+
+    /** No rows yet; one column per result set column, typed from its metadata. LOB values are read whole. */
+    public RowSet(ResultSetMetaData meta) throws SQLException {
+        this(meta, 0);
+    }
+
+    /**
+     * As {@link #RowSet(ResultSetMetaData)}, but CLOB, BLOB and long text or binary values are read as streams
+     * and cut after maxLobChars characters (hex characters for binary); 0 = no limit.
+     */
+    public RowSet(ResultSetMetaData meta, int maxLobChars) throws SQLException {
+        int cols = meta.getColumnCount();
+        columns = new Column[cols];
+        for (int i = 0; i < cols; i++) columns[i] = columnFor(meta, i + 1, Math.max(0, maxLobChars));
+    }
+
+    /**
+     * Read up to maxRows rows (0 = all) from rs. When onRow is true rs is already positioned on an unread row.
+     * Returns true if the cap was reached and another row is waiting (rs is left on it).
+     */
+    public boolean read(ResultSet rs, int maxRows, boolean onRow) throws SQLException {
+        boolean hasRow = onRow || rs.next();
+        int read = 0;
+        while (hasRow) {
+            if (maxRows > 0 && read >= maxRows) return true;
+            if (size == capacity) grow();
+            for (int i = 0; i < columns.length; i++) columns[i].read(rs, i + 1, size);
+            size++;
+            read++;
+            hasRow = rs.next();
+        }
+        return false;
+    }
+
+    private void grow() {
+        capacity = capacity == 0 ? INITIAL_CAPACITY : capacity * 2;
+        for (Column c : columns) c.grow(capacity);
+    }
+
+    public int size() { return size; }
+
+    public int getColumnCount() { return columns.length; }
+
+    public Kind getKind(int col) { return columns[col].kind; }
+
+    public boolean isNull(int row, int col) { return columns[col].nulls[row]; }
+
+    /** LONG columns; 0 for null. */
+    public long getLong(int row, int col) { return ((LongColumn) columns[col]).values[row]; }
+
+    /** FLOAT columns; 0 for null. */
+    public float getFloat(int row, int col) { return ((FloatColumn) columns[col]).values[row]; }
+
+    /** DOUBLE columns; 0 for null. */
+    public double getDouble(int row, int col) { return ((DoubleColumn) columns[col]).values[row]; }
+
+    /** BOOLEAN columns; false for null. */
+    public boolean getBoolean(int row, int col) { return ((BoolColumn) columns[col]).values[row]; }
+
+    /** Values cut at the LOB limit so far. */
+    public int getTruncatedValues() {
+        int n = 0;
+        for (Column c : columns) {
+            if (c instanceof TextColumn) n += ((TextColumn) c).truncated;
+        }
+        return n;
+    }
+
+    /** Any column, boxed: Long, Float, Double, Boolean, BigDecimal or String; null for SQL NULL. */
+    public Object get(int row, int col) {
+        Column c = columns[col];
+        return c.nulls[row] ? null : c.get(row);
+    }
+
+    private static Column columnFor(ResultSetMetaData meta, int i, int limit) throws SQLException {
+        boolean signed;
+        try {
+            signed = meta.isSigned(i);
+        } catch (SQLException e) {
+            signed = true;
+        }
+        int precision;
+        try {
+            precision = meta.getPrecision(i);
+        } catch (SQLException | RuntimeException e) {
+            precision = 0;
+        }
+        // Declared longer than the limit (TEXT, LONGTEXT, bytea, ...): stream so an oversized value is never read whole.
+        boolean longChars = limit > 0 && precision > limit;
+        boolean longBytes = limit > 0 && precision > limit / 2;
+        switch (meta.getColumnType(i)) {
+            case Types.BOOLEAN:
+                return new BoolColumn();
+            case Types.BIT:
+                return precision > 1 ? new TextColumn(TextColumn.BYTES, limit) : new BoolColumn();
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return new LongColumn();
+            case Types.BIGINT:
+                return signed ? new LongColumn() : new DecimalColumn();
+            case Types.REAL:
+                return new FloatColumn();
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return new DoubleColumn();
+            case Types.DECIMAL:
+            case Types.NUMERIC: {
+                // Oracle reports integer columns as NUMBER(p,0); they fit a long up to 18 digits.
+                return precision >= 1 && precision <= 18 && meta.getScale(i) == 0 ? new LongColumn() : new DecimalColumn();
+            }
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return new TextColumn(longChars ? TextColumn.CHAR_STREAM : TextColumn.STRING, limit);
+            case Types.CLOB:
+            case Types.NCLOB:
+                return new TextColumn(TextColumn.CLOB, limit);
+            case Types.DATE:
+                return new TextColumn(TextColumn.DATE, limit);
+            case Types.TIME:
+                return new TextColumn(TextColumn.TIME, limit);
+            case Types.TIMESTAMP:
+                return new TextColumn(TextColumn.TIMESTAMP, limit);
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                return new TextColumn(longBytes ? TextColumn.BYTE_STREAM : TextColumn.BYTES, limit);
+            case Types.BLOB:
+                return new TextColumn(TextColumn.BLOB, limit);
+            case Types.TIME_WITH_TIMEZONE:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return new TextColumn(TextColumn.STRING, limit);
+            default:
+                return new TextColumn(TextColumn.OBJECT, limit);
+        }
+    }
+
+    private abstract static class Column {
+        final Kind kind;
+        boolean[] nulls = new boolean[0];
+
+        Column(Kind kind) {
+            this.kind = kind;
+        }
+
+        /** Read column index of the current row of rs into row. */
+        abstract void read(ResultSet rs, int index, int row) throws SQLException;
+
+        abstract Object get(int row);
+
+        void grow(int capacity) {
+            nulls = Arrays.copyOf(nulls, capacity);
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        long[] values = new long[0];
+
+        LongColumn() { super(Kind.LONG); }
+
+        @Override void read(ResultSet rs, int index, int row) throws SQLException {
+            values[row] = rs.getLong(index);
+            nulls[row] = rs.wasNull();
+        }
+
+        @Override Object get(int row) { return values[row]; }
+
+        @Override void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private static final class FloatColumn extends Column {
+        float[] values = new float[0];
+
+        FloatColumn() { super(Kind.FLOAT); }
+
+        @Override void read(ResultSet rs, int index, int row) throws SQLException {
+            values[row] = rs.getFloat(index);
+            nulls[row] = rs.wasNull();
+        }
+
+        @Override Object get(int row) { return values[row]; }
+
+        @Override void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        double[] values = new double[0];
+
+        DoubleColumn() { super(Kind.DOUBLE); }
+
+        @Override void read(ResultSet rs, int index, int row) throws SQLException {
+            values[row] = rs.getDouble(index);
+            nulls[row] = rs.wasNull();
+        }
+
+        @Override Object get(int row) { return values[row]; }
+
+        @Override void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private static final class BoolColumn extends Column {
+        boolean[] values = new boolean[0];
+
+        BoolColumn() { super(Kind.BOOLEAN); }
+
+        @Override void read(ResultSet rs, int index, int row) throws SQLException {
+            values[row] = rs.getBoolean(index);
+            nulls[row] = rs.wasNull();
+        }
+
+        @Override Object get(int row) { return values[row]; }
+
+        @Override void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    /** Shared by DECIMAL (BigDecimal values) and TEXT (String values). */
+    private abstract static class RefColumn extends Column {
+        Object[] values = new Object[0];
+
+        RefColumn(Kind kind) { super(kind); }
+
+        void set(int row, Object v) {
+            values[row] = v;
+            nulls[row] = v == null;
+        }
+
+        @Override Object get(int row) { return values[row]; }
+
+        @Override void grow(int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private static final class DecimalColumn extends RefColumn {
+        DecimalColumn() { super(Kind.DECIMAL); }
+
+        @Override void read(ResultSet rs, int index, int row) throws SQLException {
+            set(row, rs.getBigDecimal(index));
+        }
+    }
+
+    /**
+     * Text values. CLOB and BLOB values, and values of text or binary columns declared longer than the limit, are
+     * streamed and cut at the limit with a "...[truncated]" marker (binary counts two hex chars per byte).
+     */
+    private static final class TextColumn extends RefColumn {
+        static final int STRING = 0;
+        static final int CLOB = 1;
+        static final int DATE = 2;
+        static final int TIME = 3;
+        static final int TIMESTAMP = 4;
+        static final int BYTES = 5;
+        static final int OBJECT = 6;
+        static final int CHAR_STREAM = 7;
+        static final int BLOB = 8;
+        static final int BYTE_STREAM = 9;
+
+        final int source;
+        /** Max chars of a value; 0 = no limit. */
+        final int limit;
+        int truncated;
+
+        TextColumn(int source, int limit) {
+            super(Kind.TEXT);
+            this.source = source;
+            this.limit = limit;
+        }
+
+        @Override void read(ResultSet rs, int index, int row) throws SQLException {
+            switch (source) {
+                case CLOB:
+                    set(row, clob(rs.getClob(index)));
+                    return;
+                case CHAR_STREAM: {
+                    String s = Lobs.readChars(rs.getCharacterStream(index), limit > 0 ? limit + 1L : 0);
+                    set(row, s != null && limit > 0 && s.length() > limit ? truncate(s.substring(0, limit), -1, "chars") : s);
+                    return;
+                }
+                case BLOB:
+                    set(row, blob(rs.getBlob(index)));
+                    return;
+                case BYTE_STREAM: {
+                    int max = limit / 2;
+                    byte[] b = Lobs.readBytes(rs.getBinaryStream(index), limit > 0 ? max + 1L : 0);
+                    if (b == null) set(row, null);
+                    else if (limit > 0 && b.length > max) set(row, truncate(Lobs.hex(Arrays.copyOf(b, max)), -1, "bytes"));
+                    else set(row, Lobs.hex(b));
+                    return;
+                }
+                case DATE: {
+                    Date d = rs.getDate(index);
+                    set(row, d != null ? d.toString() : null);
+                    return;
+                }
+                case TIME: {
+                    Time t = rs.getTime(index);
+                    set(row, t != null ? t.toString() : null);
+                    return;
+                }
+                case TIMESTAMP: {
+                    Timestamp t = rs.getTimestamp(index);
+                    set(row, t != null ? t.toString() : null);
+                    return;
+                }
+                case BYTES: {
+                    byte[] b = rs.getBytes(index);
+                    set(row, b != null ? Lobs.hex(b) : null);
+                    return;
+                }
+                case OBJECT: {
+                    // LOBs and binary by their Java type; anything else (vendor types such as TIMESTAMPTZ, STRUCT,
+                    // ARRAY, JSON) as the driver's own text, since their toString() is often just the class name.
+                    Object o = rs.getObject(index);
+                    if (o == null) set(row, null);
+                    else if (o instanceof Clob) set(row, clob((Clob) o));
+                    else if (o instanceof Blob) set(row, blob((Blob) o));
+                    else if (o instanceof byte[]) set(row, Lobs.hex((byte[]) o));
+                    else set(row, objectText(rs, index, o));
+                    return;
+                }
+                default:
+                    set(row, rs.getString(index));
+            }
+        }
+
+        /** getString of a value already read with getObject; its toString() when the driver cannot convert it. */
+        private static String objectText(ResultSet rs, int index, Object o) {
+            if (o instanceof String) return (String) o;
+            try {
+                String s = rs.getString(index);
+                if (s != null) return s;
+            } catch (SQLException | RuntimeException e) {
+                // e.g. "Invalid column type" for a STRUCT
+            }
+            return o.toString();
+        }
+
+        private String clob(Clob c) throws SQLException {
+            if (c == null) return null;
+            try {
+                long length = c.length();
+                if (limit <= 0 || length <= limit) return Lobs.readChars(c.getCharacterStream(), 0);
+                return truncate(Lobs.readChars(c.getCharacterStream(), limit), length, "chars");
+            } finally {
+                Lobs.free(c);
+            }
+        }
+
+        private String blob(Blob b) throws SQLException {
+            if (b == null) return null;
+            try {
+                long length = b.length();
+                int max = limit / 2;
+                if (limit <= 0 || length <= max) return Lobs.hex(Lobs.readBytes(b.getBinaryStream(), 0));
+                return truncate(Lobs.hex(Lobs.readBytes(b.getBinaryStream(), max)), length, "bytes");
+            } finally {
+                Lobs.free(b);
+            }
+        }
+
+        /** The preview with a marker giving the full size in unit when known (total >= 0). */
+        private String truncate(String preview, long total, String unit) {
+            truncated++;
+            return preview + (total >= 0 ? "...[truncated: " + total + " " + unit + "]" : "...[truncated]");
+        }
+    }
+}
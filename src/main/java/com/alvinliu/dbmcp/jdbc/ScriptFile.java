@@ -0,0 +1,104 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A large script opened once for both passes of execute_sql_file: the review pass and the execution pass read
+ * the same open channel from position 0, and {@link #checkUnchanged()} refuses to run when the file's size or
+ * modification time differ from when it was opened. The first full pass also computes the SHA-256 of the
+ * content for the audit log. Not thread-safe.
+ */
+public final class ScriptFile implements Closeable {
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private final FileTime modified;
+    private MessageDigest digest;
+    private String sha256;
+
+    private ScriptFile(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+        this.modified = Files.getLastModifiedTime(path);
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JRE has SHA-256
+        }
+    }
+
+    public static ScriptFile open(Path path) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new ScriptFile(path, ch);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /** Size in bytes when opened. */
+    public long getSize() { return size; }
+
+    /** Hex SHA-256 of the content, once one reader has been read to the end; null before. */
+    public String getSha256() { return sha256; }
+
+    /** Statements from the start of the file. Closing the reader leaves the file open. */
+    public SqlScriptReader reader(boolean oracle) throws IOException {
+        channel.position(0);
+        if (digest != null) digest.reset(); // an earlier pass stopped before the end
+        return SqlScriptReader.open(new Pass(), oracle);
+    }
+
+    /** Throws IOException when the file's size or modification time changed since it was opened. */
+    public void checkUnchanged() throws IOException {
+        if (Files.size(path) != size || channel.size() != size || !Files.getLastModifiedTime(path).equals(modified)) {
+            throw new IOException("File changed after it was reviewed; run execute_sql_file again: " + path);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** One read pass over the shared channel, hashing the bytes the first time the whole file is read. */
+    private final class Pass implements ReadableByteChannel {
+        private boolean open = true;
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) throw new IOException("Script reader closed");
+            int start = dst.position();
+            int n = channel.read(dst);
+            if (digest != null) {
+                if (n > 0) {
+                    ByteBuffer read = dst.duplicate();
+                    read.limit(start + n).position(start);
+                    digest.update(read);
+                } else if (n < 0) {
+                    sha256 = Lobs.hex(digest.digest());
+                    digest = null;
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() { return open && channel.isOpen(); }
+
+        @Override
+        public void close() { open = false; }
+    }
+}
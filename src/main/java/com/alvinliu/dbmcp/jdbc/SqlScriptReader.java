@@ -0,0 +1,257 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming SQL script splitter: reads a script in chunks and yields one statement at a time, so scripts of any
+ * size can be analyzed and executed without holding the whole text in memory.
+ * <p>
+ * Statements end at a top-level semicolon or at a line holding only "/" (SQL*Plus). Semicolons inside
+ * '...' and "..." quotes, -- line comments and block comments do not split. PL/SQL units
+ * (CREATE FUNCTION/PROCEDURE/PACKAGE, and on Oracle BEGIN/DECLARE blocks) end only at a "/" line or at end of
+ * input. Quote, comment and line state is kept across chunk boundaries. Comment-only statements are skipped.
+ * Not thread-safe.
+ */
+public final class SqlScriptReader implements Closeable {
+
+    private static final int CHUNK_CHARS = 64 * 1024;
+
+    private static final int NORMAL = 0;
+    private static final int SINGLE_QUOTE = 1;
+    private static final int DOUBLE_QUOTE = 2;
+    private static final int LINE_COMMENT = 3;
+    private static final int BLOCK_COMMENT = 4;
+
+    private final Reader in;
+    private final boolean oracle;
+    private final char[] buf = new char[CHUNK_CHARS];
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    private final StringBuilder cur = new StringBuilder();
+    private int state = NORMAL;
+    /** Start of the current line within cur, and whether that line holds only whitespace and "/" so far. */
+    private int lineStart;
+    private boolean lineOnlySlash = true;
+    private int slashesOnLine;
+    /** Whether cur holds anything besides whitespace and comments. */
+    private boolean hasCode;
+    /** Decided at the first top-level semicolon: 0 = undecided, 1 = PL/SQL unit, -1 = plain statement. */
+    private int block;
+    private long statementCount;
+
+    /** @param oracle treat BEGIN/DECLARE blocks as PL/SQL units (Oracle); elsewhere BEGIN; is a plain statement */
+    public SqlScriptReader(Reader in, boolean oracle) {
+        this.in = in;
+        this.oracle = oracle;
+    }
+
+    /** UTF-8 script file read through a buffered FileChannel. */
+    public static SqlScriptReader open(Path path, boolean oracle) throws IOException {
+        return open(FileChannel.open(path, StandardOpenOption.READ), oracle);
+    }
+
+    /** UTF-8 script read from the channel's current position; closing the reader closes the channel. */
+    static SqlScriptReader open(ReadableByteChannel ch, boolean oracle) {
+        return new SqlScriptReader(Channels.newReader(ch, StandardCharsets.UTF_8.newDecoder(), CHUNK_CHARS), oracle);
+    }
+
+    /** Split in-memory SQL with the same rules. */
+    public static String[] split(String sql, boolean oracle) {
+        List<String> list = new ArrayList<>();
+        try (SqlScriptReader r = new SqlScriptReader(new StringReader(sql), oracle)) {
+            String s;
+            while ((s = r.next()) != null) list.add(s);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return list.toArray(new String[0]);
+    }
+
+    /** Next statement (trimmed, without its terminator), or null at end of input. */
+    public String next() throws IOException {
+        while (true) {
+            if (pos >= limit) {
+                if (eof || !fill()) {
+                    eof = true;
+                    if (lineOnlySlash && slashesOnLine == 1 && state == NORMAL) cur.setLength(lineStart);
+                    String last = take();
+                    if (last != null) return last;
+                    return null;
+                }
+            }
+            char c = buf[pos++];
+            String done = accept(c);
+            if (done != null) return done;
+        }
+    }
+
+    /** Statements returned so far. */
+    public long getStatementCount() {
+        return statementCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    /** Feed one char; returns a finished statement or null. Lookahead pairs (--, slash-star, '', "") use peek(). */
+    private String accept(char c) throws IOException {
+        switch (state) {
+            case SINGLE_QUOTE:
+                cur.append(c);
+                if (c == '\'') {
+                    if (peek() == '\'') cur.append(buf[pos++]);
+                    else state = NORMAL;
+                }
+                trackLine(c);
+                return null;
+            case DOUBLE_QUOTE:
+                cur.append(c);
+                if (c == '"') state = NORMAL;
+                trackLine(c);
+                return null;
+            case LINE_COMMENT:
+                cur.append(c);
+                if (c == '\n') {
+                    state = NORMAL;
+                    newLine();
+                }
+                return null;
+            case BLOCK_COMMENT:
+                cur.append(c);
+                if (c == '*' && peek() == '/') {
+                    cur.append(buf[pos++]);
+                    state = NORMAL;
+                }
+                trackLine(c);
+                return null;
+            default:
+                break;
+        }
+        if (c == '\n') {
+            if (lineOnlySlash && slashesOnLine == 1) {
+                cur.setLength(lineStart);
+                String s = take();
+                newLine();
+                if (s != null) return s;
+                return null;
+            }
+            cur.append(c);
+            newLine();
+            return null;
+        }
+        if (c == ';' && block <= 0) {
+            if (block == 0) block = isBlockStart() ? 1 : -1;
+            if (block < 0) {
+                String s = take();
+                if (s != null) return s;
+                return null;
+            }
+        }
+        if (c == '-' && peek() == '-') {
+            cur.append(c).append(buf[pos++]);
+            state = LINE_COMMENT;
+            lineOnlySlash = false;
+            return null;
+        }
+        if (c == '/' && peek() == '*') {
+            cur.append(c).append(buf[pos++]);
+            state = BLOCK_COMMENT;
+            lineOnlySlash = false;
+            return null;
+        }
+        cur.append(c);
+        if (c == '\'') state = SINGLE_QUOTE;
+        else if (c == '"') state = DOUBLE_QUOTE;
+        if (!Character.isWhitespace(c) && c != '/') hasCode = true;
+        trackLine(c);
+        return null;
+    }
+
+    /** Next char without consuming it (refills the buffer when needed); 0 at end of input. */
+    private char peek() throws IOException {
+        if (pos >= limit && (eof || !fill())) {
+            eof = true;
+            return 0;
+        }
+        return buf[pos];
+    }
+
+    private void trackLine(char c) {
+        if (c == '/' && state == NORMAL) {
+            slashesOnLine++;
+        } else if (!Character.isWhitespace(c)) {
+            lineOnlySlash = false;
+        }
+        if (c == '\n') newLine();
+    }
+
+    private void newLine() {
+        lineStart = cur.length();
+        lineOnlySlash = true;
+        slashesOnLine = 0;
+    }
+
+    /** Current statement if it holds code; resets per-statement state either way. */
+    private String take() {
+        String s = hasCode ? cur.toString().trim() : null;
+        cur.setLength(0);
+        lineStart = 0;
+        lineOnlySlash = true;
+        slashesOnLine = 0;
+        hasCode = false;
+        block = 0;
+        state = NORMAL;
+        if (s == null || s.isEmpty()) return null;
+        statementCount++;
+        return s;
+    }
+
+    /** PL/SQL unit check on the statement text up to its first top-level semicolon. */
+    private boolean isBlockStart() {
+        String u = stripLeadingComments(cur).replaceAll("\\s+", " ").toUpperCase();
+        if (JdbcExecutor.isPlsqlDdl(u)) return true;
+        return oracle && (u.startsWith("BEGIN") || u.startsWith("DECLARE"));
+    }
+
+    private static String stripLeadingComments(CharSequence s) {
+        int i = 0;
+        int n = s.length();
+        while (i < n) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < n && s.charAt(i + 1) == '-') {
+                while (i < n && s.charAt(i) != '\n') i++;
+            } else if (c == '/' && i + 1 < n && s.charAt(i + 1) == '*') {
+                int end = s.toString().indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+            } else {
+                break;
+            }
+        }
+        return s.subSequence(i, n).toString();
+    }
+}
@@ -0,0 +1,216 @@
+package com.alvinliu.dbmcp.jdbc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * UTF-8 writer for CSV and text exports. Chars are copied into one reusable char buffer, encoded into one reusable
+ * byte buffer and written with {@link FileChannel#write}, with no per-row String, List or StringBuilder on the
+ * way. Integers are formatted straight into the char buffer, and CSV cells are escaped in one pass. With
+ * {@link Compression} the encoded bytes go through the compressor instead, so only compressed bytes reach the file.
+ * Counts the bytes written to the file and adds them to the call's {@link Progress}. Not thread-safe.
+ */
+final class TextFileWriter extends Writer {
+    private static final int CHAR_BUFFER = 32 * 1024;
+    private static final int BYTE_BUFFER = 128 * 1024;
+    private static final String NEWLINE = System.lineSeparator();
+
+    private final FileChannel channel;
+    private final Progress progress;
+    /** Compressing stream over the channel; null when writing plain text straight to the channel. */
+    private final OutputStream compressor;
+    private final CountingOutputStream fileBytes;
+    private final char[] buf = new char[CHAR_BUFFER];
+    private final CharBuffer chars = CharBuffer.wrap(buf);
+    // Heap, not direct: the UTF-8 encoder's fast (intrinsic ASCII) path needs array-backed buffers on both sides,
+    // and into a direct buffer it falls back to a put per char. The channel copies to its own direct buffer.
+    private final ByteBuffer bytes = ByteBuffer.allocate(BYTE_BUFFER);
+    // Lone surrogates become '?', as OutputStreamWriter does.
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private int len;
+    private long count;
+    private boolean closed;
+
+    /** Create or truncate the file. */
+    TextFileWriter(Path path, Progress progress) throws IOException {
+        this(path, progress, Compression.NONE, 0, 0);
+    }
+
+    /** Create or truncate the file, compressed at level (0 = default) through a bufferSize buffer. */
+    TextFileWriter(Path path, Progress progress, Compression compression, int level, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        this.progress = progress;
+        if (compression == Compression.NONE) {
+            this.fileBytes = null;
+            this.compressor = null;
+            return;
+        }
+        try {
+            this.fileBytes = new CountingOutputStream(Channels.newOutputStream(channel), progress);
+            this.compressor = compression.wrap(fileBytes, level, bufferSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (len == buf.length) encode(false);
+        buf[len++] = (char) c;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int n) throws IOException {
+        while (n > 0) {
+            if (len == buf.length) encode(false);
+            int k = Math.min(n, buf.length - len);
+            System.arraycopy(cbuf, off, buf, len, k);
+            len += k;
+            off += k;
+            n -= k;
+        }
+    }
+
+    @Override
+    public void write(String s, int off, int n) throws IOException {
+        while (n > 0) {
+            if (len == buf.length) encode(false);
+            int k = Math.min(n, buf.length - len);
+            s.getChars(off, off + k, buf, len);
+            len += k;
+            off += k;
+            n -= k;
+        }
+    }
+
+    void newLine() throws IOException {
+        write(NEWLINE);
+    }
+
+    /** Decimal digits of v, written in place. */
+    void writeLong(long v) throws IOException {
+        if (v == Long.MIN_VALUE) {
+            write(Long.toString(v));
+            return;
+        }
+        if (buf.length - len < 20) encode(false);
+        if (v < 0) {
+            buf[len++] = '-';
+            v = -v;
+        }
+        int digits = 1;
+        for (long t = v; t >= 10; t /= 10) digits++;
+        int end = len + digits;
+        for (int p = end - 1; p >= len; p--) {
+            buf[p] = (char) ('0' + v % 10);
+            v /= 10;
+        }
+        len = end;
+    }
+
+    /**
+     * One CSV field: quoted, with " doubled, when it contains a comma, double quote, CR or LF; otherwise as is.
+     * Chars before the first such char are scanned once and the rest are copied as they are scanned.
+     */
+    void writeCsv(String s) throws IOException {
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                writeQuoted(s, i);
+                return;
+            }
+        }
+        write(s, 0, n);
+    }
+
+    private void writeQuoted(String s, int from) throws IOException {
+        write('"');
+        int start = 0;
+        for (int i = from; i < s.length(); i++) {
+            if (s.charAt(i) != '"') continue;
+            write(s, start, i + 1 - start);
+            write('"');
+            start = i + 1;
+        }
+        write(s, start, s.length() - start);
+        write('"');
+    }
+
+    /** Bytes written to the file so far (compressed bytes when compressing). */
+    long getCount() { return compressor != null ? fileBytes.getCount() : count; }
+
+    /** Text bytes written so far, before compression. */
+    long getUncompressedCount() { return count; }
+
+    /** Encode the buffered chars and write all encoded bytes to the file. */
+    @Override
+    public void flush() throws IOException {
+        encode(false);
+        drain();
+        if (compressor != null) compressor.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            encode(true);
+            while (encoder.flush(bytes) == CoderResult.OVERFLOW) drain();
+            drain();
+            if (compressor != null) compressor.close();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Encode the buffered chars into the byte buffer, writing it out whenever it fills. A high surrogate at the
+     * end stays buffered until its pair arrives (or the end of input).
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        chars.limit(len).position(0);
+        while (true) {
+            CoderResult r = encoder.encode(chars, bytes, endOfInput);
+            if (r.isOverflow()) {
+                drain();
+            } else if (r.isUnderflow()) {
+                break;
+            } else {
+                r.throwException();
+            }
+        }
+        int left = chars.remaining();
+        if (left > 0) System.arraycopy(buf, chars.position(), buf, 0, left);
+        len = left;
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        int n = bytes.remaining();
+        if (compressor != null) {
+            compressor.write(bytes.array(), 0, n);
+        } else {
+            while (bytes.hasRemaining()) channel.write(bytes);
+            progress.addBytes(n);
+        }
+        bytes.clear();
+        count += n;
+    }
+}
@@ -0,0 +1,265 @@
+package com.alvinliu.dbmcp.mcp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MCP streamable HTTP transport on one endpoint, {@code /mcp}: many clients share one server, with its warm
+ * connection pools, analyzer caches and health checks, instead of each starting its own JVM over stdio.
+ * <ul>
+ * <li>POST one JSON-RPC message. initialize opens a session and returns it in the Mcp-Session-Id header; every
+ * later request must send that header (400 without it, 404 once the session is gone).</li>
+ * <li>tools/call is answered with an SSE stream: progress notifications, then the response. Other requests are
+ * answered with one JSON body; notifications (e.g. notifications/cancelled) get 202 and no body.</li>
+ * <li>DELETE ends the session and cancels its running calls. GET (a server-initiated stream) is not offered: 405.</li>
+ * </ul>
+ * Requests with an Origin header other than localhost or a configured origin are refused (DNS rebinding);
+ * binding to a non-loopback address exposes the databases to anyone who can reach the port.
+ */
+public final class HttpTransport {
+    static final String PATH = "/mcp";
+    private static final String SESSION_HEADER = "Mcp-Session-Id";
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+
+    private final McpServer server;
+    private final HttpServer http;
+    private final Set<String> allowedOrigins;
+    private final long sessionIdleNanos;
+    private final Map<String, McpServer.Session> sessions = new ConcurrentHashMap<>();
+    private final ExecutorService handlers;
+    private final ScheduledExecutorService sweeper =
+        Executors.newSingleThreadScheduledExecutor(McpServer.daemonThreads("db-mcp-http-sweep-"));
+
+    public HttpTransport(McpServer server, String host, int port, List<String> allowedOrigins,
+                         int sessionIdleTimeoutSeconds) throws IOException {
+        this.server = server;
+        this.allowedOrigins = new HashSet<>(allowedOrigins);
+        this.sessionIdleNanos = TimeUnit.SECONDS.toNanos(sessionIdleTimeoutSeconds);
+        this.http = HttpServer.create(new InetSocketAddress(host, port), 0);
+        // Each tools/call holds its handler thread until the response is written, so handlers are not pooled tightly.
+        ExecutorService virtual = McpServer.newVirtualThreadExecutor();
+        this.handlers = virtual != null ? virtual : Executors.newCachedThreadPool(McpServer.daemonThreads("db-mcp-http-"));
+        http.setExecutor(handlers);
+        http.createContext(PATH, this::handle);
+    }
+
+    public void start() {
+        http.start();
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** Stop accepting requests and cancel the calls of every session; close the server afterwards. */
+    public void stop() {
+        http.stop(1);
+        sweeper.shutdownNow();
+        for (McpServer.Session s : sessions.values()) server.endSession(s);
+        sessions.clear();
+        handlers.shutdown();
+    }
+
+    /** Endpoint URL, with the port actually bound (http_port 0 picks a free one). */
+    public String getUrl() {
+        InetSocketAddress a = http.getAddress();
+        String host = a.getHostString().contains(":") ? "[" + a.getHostString() + "]" : a.getHostString();
+        return "http://" + host + ":" + a.getPort() + PATH;
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try {
+            if (!originAllowed(ex.getRequestHeaders().getFirst("Origin"))) {
+                reply(ex, 403, "Origin not allowed");
+            } else if ("POST".equals(ex.getRequestMethod())) {
+                post(ex);
+            } else if ("DELETE".equals(ex.getRequestMethod())) {
+                delete(ex);
+            } else {
+                ex.getResponseHeaders().set("Allow", "POST, DELETE");
+                reply(ex, 405, "Use POST to send messages");
+            }
+        } finally {
+            ex.close();
+        }
+    }
+
+    private void post(HttpExchange ex) throws IOException {
+        long parseStart = System.nanoTime();
+        String body = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        if (body.trim().startsWith("[")) {
+            replyError(ex, 400, -32600, "Batch requests are not supported");
+            return;
+        }
+        Map<String, Object> msg = McpServer.parse(body);
+        if (msg == null) {
+            replyError(ex, 400, -32700, "Parse error");
+            return;
+        }
+        Object method = msg.get("method");
+        McpServer.Session session;
+        if ("initialize".equals(method)) {
+            session = new McpServer.Session(UUID.randomUUID().toString());
+            sessions.put(session.id, session);
+            ex.getResponseHeaders().set(SESSION_HEADER, session.id);
+        } else {
+            String id = ex.getRequestHeaders().getFirst(SESSION_HEADER);
+            if (id == null) {
+                replyError(ex, 400, -32600, "Missing " + SESSION_HEADER + " header; send initialize first");
+                return;
+            }
+            session = sessions.get(id);
+            if (session == null) {
+                replyError(ex, 404, -32600, "Unknown or expired session; send initialize again");
+                return;
+            }
+            session.touch();
+        }
+
+        if (method == null || msg.get("id") == null) {
+            // notification, or a response to a server request (none are sent): accepted, nothing to return
+            server.dispatch(msg, parseStart, new McpServer.Channel(session, server.newWriter(Writer.nullWriter())));
+            ex.sendResponseHeaders(202, -1);
+        } else if ("tools/call".equals(method)) {
+            ex.getResponseHeaders().set("Content-Type", "text/event-stream");
+            ex.getResponseHeaders().set("Cache-Control", "no-cache");
+            ex.sendResponseHeaders(200, 0);
+            try (Writer out = new SseWriter(new BufferedWriter(new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8)))) {
+                await(server.dispatch(msg, parseStart, new McpServer.Channel(session, server.newWriter(out))));
+            }
+        } else {
+            StringWriter buf = new StringWriter();
+            server.dispatch(msg, parseStart, new McpServer.Channel(session, server.newWriter(buf)));
+            ex.getResponseHeaders().set("Content-Type", "application/json");
+            send(ex, 200, buf.toString());
+        }
+    }
+
+    private void delete(HttpExchange ex) throws IOException {
+        String id = ex.getRequestHeaders().getFirst(SESSION_HEADER);
+        McpServer.Session session = id != null ? sessions.remove(id) : null;
+        if (session == null) {
+            reply(ex, id == null ? 400 : 404, id == null ? "Missing " + SESSION_HEADER + " header" : "Unknown session");
+            return;
+        }
+        server.endSession(session);
+        ex.sendResponseHeaders(204, -1);
+    }
+
+    /** Wait for a tool call; its response (or none, if the client cancelled it) is already written when this returns. */
+    private static void await(Future<?> call) {
+        if (call == null) return;
+        try {
+            call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            // runToolsCall answers its own failures
+        }
+    }
+
+    /** No Origin (non-browser client), a loopback origin, or one listed in http_allowed_origins. */
+    private boolean originAllowed(String origin) {
+        if (origin == null || allowedOrigins.contains(origin)) return true;
+        try {
+            String host = URI.create(origin).getHost();
+            return "localhost".equals(host) || "127.0.0.1".equals(host) || "[::1]".equals(host);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /** Drop sessions unused for the idle timeout and running nothing (clients that left without DELETE). */
+    private void sweep() {
+        long now = System.nanoTime();
+        sessions.values().removeIf(s -> s.isIdle() && now - s.lastUsedNanos > sessionIdleNanos);
+    }
+
+    private void replyError(HttpExchange ex, int status, int code, String message) throws IOException {
+        StringWriter buf = new StringWriter();
+        server.newWriter(buf).writeError(null, code, message, null);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        send(ex, status, buf.toString());
+    }
+
+    private static void reply(HttpExchange ex, int status, String text) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        send(ex, status, text);
+    }
+
+    private static void send(HttpExchange ex, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length == 0) return;
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Frames the newline-terminated messages {@link JsonRpcWriter} writes as SSE "message" events. JSON never
+     * contains a raw newline, so each newline ends exactly one message.
+     */
+    static final class SseWriter extends Writer {
+        private final Writer out;
+        private boolean inEvent;
+
+        SseWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            int end = off + len;
+            int start = off;
+            for (int i = off; i < end; i++) {
+                if (cbuf[i] != '\n') continue;
+                writeData(cbuf, start, i - start);
+                if (!inEvent) out.write("event: message\ndata: ");
+                out.write("\n\n");
+                inEvent = false;
+                start = i + 1;
+            }
+            writeData(cbuf, start, end - start);
+        }
+
+        private void writeData(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) return;
+            if (!inEvent) {
+                out.write("event: message\ndata: ");
+                inEvent = true;
+            }
+            out.write(cbuf, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
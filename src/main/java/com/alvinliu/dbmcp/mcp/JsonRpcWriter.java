@@ -0,0 +1,236 @@
+package com.alvinliu.dbmcp.mcp;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes JSON-RPC messages, one per line, straight into the output buffer with Gson's {@link JsonWriter}.
+ * Tool results are MCP text content whose value is itself JSON: the payload is serialized through
+ * {@link JsonStringWriter} directly into that string value, so it is escaped once, on the fly, and never exists
+ * as a String, an escaped copy, or a line copy. Each message is written under this object's lock.
+ * I/O errors are swallowed (client gone), as PrintWriter did.
+ */
+final class JsonRpcWriter {
+    /** Per-message timing: serialize = building the message into the buffer (including any writes forced by a
+     * full buffer), write = the final flush to the client. Called on the writing thread, under the lock. */
+    interface WriteTimer {
+        void record(long serializeNanos, long writeNanos);
+    }
+
+    private final Writer out;
+    private final Gson gson;
+    private final WriteTimer timer;
+    /** Start of the message being written (guarded by this). */
+    private long startNanos;
+
+    JsonRpcWriter(Writer out, Gson gson) {
+        this(out, gson, null);
+    }
+
+    JsonRpcWriter(Writer out, Gson gson, WriteTimer timer) {
+        this.out = out;
+        this.gson = gson;
+        this.timer = timer;
+    }
+
+    synchronized void writeResult(Object id, Object result) {
+        try {
+            JsonWriter jw = begin(id);
+            jw.name("result");
+            writeValue(jw, result);
+            end(jw);
+        } catch (IOException ignored) {
+            // client gone
+        }
+    }
+
+    synchronized void writeError(Object id, int code, String message, Object data) {
+        try {
+            JsonWriter jw = begin(id);
+            jw.name("error").beginObject();
+            jw.name("code").value(code);
+            jw.name("message").value(message);
+            if (data != null) {
+                jw.name("data");
+                writeValue(jw, data);
+            }
+            jw.endObject();
+            end(jw);
+        } catch (IOException ignored) {
+            // client gone
+        }
+    }
+
+    /**
+     * Tool result with one text content item. When text is a String it is written as is; otherwise the object is
+     * serialized as JSON into the text value.
+     */
+    synchronized void writeToolResult(Object id, Object text, boolean isError) {
+        try {
+            JsonWriter jw = begin(id);
+            jw.name("result").beginObject();
+            jw.name("content").beginArray().beginObject();
+            jw.name("type").value("text");
+            jw.name("text");
+            boolean failed = false;
+            if (text instanceof String) {
+                jw.value((String) text);
+            } else {
+                failed = !writeJsonAsString(jw, text);
+            }
+            jw.endObject().endArray();
+            if (isError || failed) jw.name("isError").value(true);
+            jw.endObject();
+            end(jw);
+        } catch (IOException ignored) {
+            // client gone
+        }
+    }
+
+    /** Notification (no id), e.g. notifications/progress. */
+    synchronized void writeNotification(String method, Object params) {
+        try {
+            startNanos = System.nanoTime();
+            JsonWriter jw = new JsonWriter(out);
+            jw.setSerializeNulls(true);
+            jw.beginObject();
+            jw.name("jsonrpc").value("2.0");
+            jw.name("method").value(method);
+            jw.name("params");
+            writeValue(jw, params);
+            end(jw);
+        } catch (IOException ignored) {
+            // client gone
+        }
+    }
+
+    private JsonWriter begin(Object id) throws IOException {
+        startNanos = System.nanoTime();
+        JsonWriter jw = new JsonWriter(out);
+        jw.setSerializeNulls(true);
+        jw.beginObject();
+        jw.name("jsonrpc").value("2.0");
+        jw.name("id");
+        writeValue(jw, id);
+        return jw;
+    }
+
+    private void end(JsonWriter jw) throws IOException {
+        jw.endObject();
+        out.write('\n');
+        long flushStart = System.nanoTime();
+        out.flush();
+        if (timer != null) timer.record(flushStart - startNanos, System.nanoTime() - flushStart);
+    }
+
+    private void writeValue(JsonWriter jw, Object value) {
+        if (value == null) {
+            try { jw.nullValue(); } catch (IOException e) { throw new IllegalStateException(e); }
+            return;
+        }
+        gson.toJson(value, value.getClass(), jw);
+    }
+
+    /**
+     * Write payload as JSON inside a JSON string value. The opening quote goes through the outer writer (so its
+     * separators stay right), then the payload is serialized through an escaping writer straight into the output.
+     * If serialization fails part way, the text is closed with a marker and false is returned so the caller can
+     * flag the result as an error; the message stays well-formed either way.
+     */
+    private boolean writeJsonAsString(JsonWriter jw, Object payload) throws IOException {
+        jw.jsonValue("\"");
+        JsonStringWriter escaper = new JsonStringWriter(out);
+        boolean ok = true;
+        try {
+            JsonWriter inner = gson.newJsonWriter(escaper);
+            gson.toJson(payload, payload.getClass(), inner);
+            inner.flush();
+        } catch (RuntimeException e) {
+            escaper.write("\n[result serialization failed: " + e.getMessage() + "]");
+            ok = false;
+        }
+        out.write('"');
+        return ok;
+    }
+
+    /** Writer that escapes everything written to it as JSON string content (without the surrounding quotes). */
+    static final class JsonStringWriter extends Writer {
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+        private final Writer out;
+
+        JsonStringWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            int end = off + len;
+            int run = off;
+            for (int i = off; i < end; i++) {
+                char c = cbuf[i];
+                if (!needsEscape(c)) continue;
+                if (i > run) out.write(cbuf, run, i - run);
+                writeEscaped(c);
+                run = i + 1;
+            }
+            if (end > run) out.write(cbuf, run, end - run);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            int end = off + len;
+            int run = off;
+            for (int i = off; i < end; i++) {
+                char c = str.charAt(i);
+                if (!needsEscape(c)) continue;
+                if (i > run) out.write(str, run, i - run);
+                writeEscaped(c);
+                run = i + 1;
+            }
+            if (end > run) out.write(str, run, end - run);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            char ch = (char) c;
+            if (!needsEscape(ch)) {
+                out.write(ch);
+            } else {
+                writeEscaped(ch);
+            }
+        }
+
+        /** Quote, backslash, control chars, and U+2028/U+2029 (not valid unescaped in JavaScript strings). */
+        private static boolean needsEscape(char c) {
+            return c < 0x20 || c == '"' || c == '\\' || c == 0x2028 || c == 0x2029;
+        }
+
+        private void writeEscaped(char c) throws IOException {
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                case '\b': out.write("\\b"); break;
+                case '\f': out.write("\\f"); break;
+                default:
+                    out.write("\\u");
+                    out.write(HEX[(c >> 12) & 0xF]);
+                    out.write(HEX[(c >> 8) & 0xF]);
+                    out.write(HEX[(c >> 4) & 0xF]);
+                    out.write(HEX[c & 0xF]);
+            }
+        }
+
+        /** Flushing is left to the outer message; closing must not close the shared output. */
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() { }
+    }
+}
@@ -2,17 +2,33 @@ package com.alvinliu.dbmcp.mcp;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.ToNumberPolicy;
 import com.google.gson.reflect.TypeToken;
 import com.alvinliu.dbmcp.audit.Auditor;
 import com.alvinliu.dbmcp.config.Config;
+import com.alvinliu.dbmcp.config.LoggingConfig;
 import com.alvinliu.dbmcp.confirm.ConfirmRequest;
 import com.alvinliu.dbmcp.confirm.Confirmer;
 import com.alvinliu.dbmcp.core.AnalysisResult;
 import com.alvinliu.dbmcp.core.SqlAnalyzer;
 import com.alvinliu.dbmcp.core.SqlFormatter;
+import com.alvinliu.dbmcp.jdbc.Cancellation;
+import com.alvinliu.dbmcp.jdbc.Compression;
+import com.alvinliu.dbmcp.jdbc.CursorRegistry;
+import com.alvinliu.dbmcp.jdbc.ExecuteOptions;
 import com.alvinliu.dbmcp.jdbc.ExecutionResult;
+import com.alvinliu.dbmcp.jdbc.ExportFormat;
+import com.alvinliu.dbmcp.jdbc.ExportOptions;
+import com.alvinliu.dbmcp.jdbc.HealthMonitor;
+import com.alvinliu.dbmcp.jdbc.ExportResult;
 import com.alvinliu.dbmcp.jdbc.JdbcExecutor;
 import com.alvinliu.dbmcp.jdbc.JdbcPool;
+import com.alvinliu.dbmcp.jdbc.Progress;
+import com.alvinliu.dbmcp.jdbc.RowSet;
+import com.alvinliu.dbmcp.jdbc.ScriptFile;
+import com.alvinliu.dbmcp.jdbc.SqlScriptReader;
+import com.alvinliu.dbmcp.metrics.Histogram;
+import com.alvinliu.dbmcp.metrics.MetricsRegistry;
 
 import java.io.*;
 import java.lang.reflect.Type;
@@ -21,85 +37,348 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
+import java.sql.JDBCType;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * MCP server: JSON-RPC 2.0 over stdio. Tools: list_connections, execute_sql, execute_sql_file, query_to_csv_file, query_to_text_file.
+ * MCP server: JSON-RPC 2.0 over stdio, or over streamable HTTP for many sessions at once (see {@link HttpTransport}).
+ * Tools: list_connections, execute_sql, execute_sql_file, fetch_more, query_to_csv_file, query_to_text_file,
+ * query_to_arrow_file, server_metrics.
  * Supports require_confirm_for_ddl, danger_keywords confirmation, audit log, verbose stderr (same as Go version).
+ * tools/call requests run concurrently (bounded by server.max_concurrent_calls); responses carry the request id
+ * and are streamed one whole line at a time by {@link JsonRpcWriter}.
  */
 public class McpServer {
     private static final String PROTOCOL_VERSION = "2024-11-05";
+    /** Versions answered as requested; streamable HTTP clients ask for 2025-03-26 or later. Others get PROTOCOL_VERSION. */
+    private static final Set<String> PROTOCOL_VERSIONS = Set.of(PROTOCOL_VERSION, "2025-03-26", "2025-06-18");
     private static final int ERR_CODE_USER_REJECTED = -32000;
-    private static final Gson GSON = new GsonBuilder().serializeNulls().create();
+    private static final int ERR_CODE_INTERNAL = -32603;
+    /**
+     * Numbers in requests parse as Long when integral so JSON-RPC ids (and integer args) round-trip unchanged.
+     * Result rows are written from their typed columns by {@link RowSetTypeAdapter}.
+     */
+    private static final Gson GSON = new GsonBuilder().serializeNulls().disableHtmlEscaping()
+        .setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE)
+        .registerTypeAdapter(RowSet.class, new RowSetTypeAdapter()).create();
+    /** How long run() waits for in-flight tool calls after stdin closes before closing the pools. */
+    private static final long SHUTDOWN_WAIT_MINUTES = 5;
+    /** execute_sql_file reads files up to this size whole; larger ones are streamed statement by statement. */
+    private static final long STREAM_FILE_THRESHOLD_BYTES = 16L << 20;
+    /** Max chars of flagged statements shown in the review dialog for a streamed file. */
+    private static final int PREVIEW_CHARS = 64 * 1024;
     private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
+    private static final Set<String> TOOL_NAMES = Set.of("list_connections", "execute_sql", "execute_sql_file",
+        "fetch_more", "query_to_csv_file", "query_to_text_file", "query_to_arrow_file", "server_metrics");
+    private static final int DEFAULT_EXPORT_PARALLELISM = 4;
+    private static final int MAX_EXPORT_PARALLELISM = 16;
+    /** Longest list_connections with refresh=true waits for the probes. */
+    private static final long REFRESH_WAIT_MS = 30_000;
+    private static final String PHASE_METRIC = "db_mcp_tool_phase_seconds";
+    private static final String PHASE_HELP = "Tool call time by phase: queue, parse, analyze, confirm, borrow, execute, serialize, write.";
+    /** Tool being handled on this thread (for phase metrics recorded from shared helpers and the writer). */
+    private static final ThreadLocal<String> CURRENT_TOOL = new ThreadLocal<>();
+    private static final String CANCELLED_BY_CLIENT = "Query cancelled by client";
+    /** Argument descriptions shared by the query_to_*_file tools. */
+    private static final String PARTITION_COLUMN_DESC = "Integer column of the result to split the export on. With parallelism > 1"
+        + " the query is split into key ranges (from MIN/MAX) exported on separate connections at once. Requires a single"
+        + " SELECT. Each range is read in its own transaction, started at slightly different times: rows inserted, deleted"
+        + " or moved between ranges while the export runs can be missed or written twice. Use it on data that is not"
+        + " changing, or export without it for one consistent read.";
+    private static final String PARALLELISM_DESC = "Number of ranges / connections used with partition_column (default 4,"
+        + " capped at 16 and the pool size).";
+    private static final String PARTITION_OUTPUT_DESC = "With partition_column: 'merged' (default) joins the ranges into"
+        + " file_path in range order; 'parts' keeps one file per range (name.part-000.ext, ...).";
+    private static final String COMPRESSION_DESC = "'none' (default), 'gzip', or 'zstd' (needs zstd-jni on the server"
+        + " classpath). The file is compressed while it is written; name it .gz / .zst. The result then also has"
+        + " uncompressed_bytes.";
+    private static final String COMPRESSION_LEVEL_DESC = "1 (fastest) to 9 for gzip (default 6) or 22 for zstd (default 3).";
+    /** Progress reporter of the tool call on this thread; null when the client passed no progressToken. */
+    private static final ThreadLocal<ProgressReporter> CURRENT_PROGRESS = new ThreadLocal<>();
+    /** Session and response writer of the request handled on this thread; unset means stdio. */
+    private static final ThreadLocal<Channel> CURRENT_CHANNEL = new ThreadLocal<>();
 
     private final Config config;
     private final JdbcPool pool;
     private final Auditor auditor;
     private final Confirmer confirmer;
+    private final CursorRegistry cursors;
+    /** Background connection checks behind list_connections; null when health_check_interval_seconds is 0. */
+    private final HealthMonitor health;
+    /** stdin and the stdio session; null when the server only serves {@link HttpTransport}. */
     private final BufferedReader reader;
-    private final PrintWriter writer;
+    private final Channel stdio;
+    private final ExecutorService callExecutor;
+    /** Bounds concurrent tool calls when running on virtual threads (the executor itself is unbounded); null otherwise. */
+    private final Semaphore callSlots;
+    /** Fires timeout_ms cancellations. */
+    private final ScheduledThreadPoolExecutor timers;
+    /** Sends progress notifications, so tool calls never wait on the client to read them. */
+    private final ExecutorService notifier = Executors.newSingleThreadExecutor(daemonThreads("db-mcp-notify-"));
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final Path metricsFile;
     private volatile String lastVerboseMsg;
     private volatile long lastVerboseAt;
 
     public McpServer(Config config, JdbcPool pool, InputStream in, OutputStream out) {
+        this(config, pool, new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)),
+            new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+
+    /** Server without stdio: requests come from a transport through {@link #dispatch}; stop it with {@link #close()}. */
+    public McpServer(Config config, JdbcPool pool) {
+        this(config, pool, (BufferedReader) null, (Writer) null);
+    }
+
+    private McpServer(Config config, JdbcPool pool, BufferedReader in, Writer out) {
         this.config = config;
         this.pool = pool;
         this.confirmer = new Confirmer();
+        // Half of each pool at most, so cursors idling until their timeout never starve the other tool calls
+        this.cursors = new CursorRegistry(config.getServer().getCursorIdleTimeoutSeconds() * 1000L,
+            config.getServer().getMaxOpenCursors(), name -> pool.getMaxActive(name) / 2);
+        int healthInterval = config.getServer().getHealthCheckIntervalSeconds();
+        this.health = healthInterval > 0
+            ? new HealthMonitor(pool, healthInterval * 1000L, config.getServer().getHealthCheckMaxBackoffSeconds() * 1000L)
+            : null;
+        if (health != null) health.start();
         Auditor a = null;
-        if (config.getLogging() != null && config.getLogging().isAuditLog()) {
-            String logFile = config.getLogging().getLogFile();
+        LoggingConfig logging = config.getLogging();
+        if (logging != null && logging.isAuditLog()) {
+            String logFile = logging.getLogFile();
             if (logFile == null || logFile.isBlank()) logFile = "audit.log";
-            if (config.getConfigPath() != null && !Paths.get(logFile).isAbsolute()) {
-                Path configPath = Paths.get(config.getConfigPath());
-                if (configPath.getParent() != null) {
-                    logFile = configPath.getParent().resolve(logFile).toString();
-                }
-            }
+            logFile = resolveAgainstConfig(config, logFile).toString();
             try {
-                a = new Auditor(logFile);
+                a = new Auditor(logFile, Auditor.Durability.parse(logging.getAuditDurability()),
+                    logging.getAuditFlushIntervalMs(), logging.getAuditQueueCapacity());
             } catch (IOException e) {
                 // Audit log initialization failed; skip audit logging but do not write to stderr/stdout.
             }
         }
         this.auditor = a;
-        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
-        this.writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), true);
+        this.reader = in;
+        this.stdio = out != null ? new Channel(new Session("stdio"), newWriter(out)) : null;
+        registerMetrics();
+        String mf = config.getServer().getMetricsFile();
+        this.metricsFile = mf.isBlank() ? null : resolveAgainstConfig(config, mf.trim());
+        if (metricsFile != null) metrics.startFileDump(metricsFile, config.getServer().getMetricsDumpIntervalSeconds());
+        int maxCalls = config.getServer().getMaxConcurrentCalls();
+        ExecutorService virtual = newVirtualThreadExecutor();
+        if (virtual != null) {
+            this.callExecutor = virtual;
+            this.callSlots = new Semaphore(maxCalls);
+        } else {
+            this.callExecutor = Executors.newFixedThreadPool(maxCalls, daemonThreads("db-mcp-call-"));
+            this.callSlots = null;
+        }
+        this.timers = new ScheduledThreadPoolExecutor(1, daemonThreads("db-mcp-timeout-"));
+        timers.setRemoveOnCancelPolicy(true);
+    }
+
+    /** Relative paths in config (log file, metrics file) are relative to the config file's directory. */
+    private static Path resolveAgainstConfig(Config config, String file) {
+        Path p = Paths.get(file);
+        if (config.getConfigPath() != null && !p.isAbsolute()) {
+            Path configPath = Paths.get(config.getConfigPath());
+            if (configPath.getParent() != null) return configPath.getParent().resolve(p);
+        }
+        return p;
+    }
+
+    /** Gauges and counters read at exposition time: pool usage per connection, analyzer cache per dialect. */
+    private void registerMetrics() {
+        if (auditor != null) {
+            metrics.gauge("db_mcp_audit_queue_depth", "Audit log entries queued and not yet written.",
+                () -> Map.of("", auditor.getQueueDepth()));
+        }
+        metrics.gauge("db_mcp_connection_up", "1 if the connection passed its last check, else 0.", () -> {
+            Map<String, Integer> out = new LinkedHashMap<>();
+            for (String name : pool.getNames()) out.put(MetricsRegistry.labels("connection", name), pool.isAvailable(name) ? 1 : 0);
+            return out;
+        });
+        metrics.gauge("db_mcp_pool_active_connections", "Connections borrowed from the pool.", () -> poolSamples(0));
+        metrics.gauge("db_mcp_pool_idle_connections", "Idle connections held by the pool.", () -> poolSamples(1));
+        metrics.gauge("db_mcp_pool_waiting_threads", "Threads waiting to borrow a connection.", () -> poolSamples(2));
+        metrics.counter("db_mcp_ps_cache_hits_total", "Prepared statements served from the per-connection cache.", () -> psCacheSamples(0));
+        metrics.counter("db_mcp_ps_cache_misses_total", "Prepared statements created because the cache had none.", () -> psCacheSamples(1));
+        metrics.counter("db_mcp_analyzer_cache_hits_total", "SQL analyses served from the cache.", () -> {
+            Map<String, Long> out = new LinkedHashMap<>();
+            pool.getAnalyzerCaches().forEach((d, c) -> out.put(MetricsRegistry.labels("dialect", d), c.getHits()));
+            return out;
+        });
+        metrics.counter("db_mcp_analyzer_cache_misses_total", "SQL analyses computed (cache miss or not cacheable).", () -> {
+            Map<String, Long> out = new LinkedHashMap<>();
+            pool.getAnalyzerCaches().forEach((d, c) -> out.put(MetricsRegistry.labels("dialect", d), c.getMisses()));
+            return out;
+        });
+        metrics.gauge("db_mcp_analyzer_cache_hit_ratio", "Analyzer cache hits / lookups since start.", () -> {
+            Map<String, Double> out = new LinkedHashMap<>();
+            pool.getAnalyzerCaches().forEach((d, c) -> {
+                long lookups = c.getHits() + c.getMisses();
+                out.put(MetricsRegistry.labels("dialect", d), lookups == 0 ? 0.0 : (double) c.getHits() / lookups);
+            });
+            return out;
+        });
     }
 
+    private Map<String, Long> psCacheSamples(int index) {
+        Map<String, Long> out = new LinkedHashMap<>();
+        pool.getPreparedStatementCacheCounts().forEach((name, counts) -> out.put(MetricsRegistry.labels("connection", name), counts[index]));
+        return out;
+    }
+
+    private Map<String, Integer> poolSamples(int index) {
+        Map<String, Integer> out = new LinkedHashMap<>();
+        pool.getPoolCounts().forEach((name, counts) -> out.put(MetricsRegistry.labels("connection", name), counts[index]));
+        return out;
+    }
+
+    private Histogram phaseHistogram(String tool, String phase) {
+        return metrics.histogram(PHASE_METRIC, PHASE_HELP, "tool", tool, "phase", phase);
+    }
+
+    /** Record the time since startNanos as a phase of the tool running on this thread; returns now. */
+    private long phase(String phase, long startNanos) {
+        String tool = CURRENT_TOOL.get();
+        if (tool == null) return System.nanoTime();
+        return phaseHistogram(tool, phase).since(startNanos);
+    }
+
+    /** JSON-RPC writer onto out that records serialize/write phase times of the tool call writing. */
+    JsonRpcWriter newWriter(Writer out) {
+        return new JsonRpcWriter(out, GSON, (serializeNanos, writeNanos) -> {
+            String tool = CURRENT_TOOL.get();
+            if (tool == null) return;
+            phaseHistogram(tool, "serialize").observeNanos(serializeNanos);
+            phaseHistogram(tool, "write").observeNanos(writeNanos);
+        });
+    }
+
+    /** Virtual-thread-per-task executor on JDK 21+ (looked up reflectively; the build targets JDK 11), else null. */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Read requests from stdin until EOF. tools/call runs on the call executor so slow queries, exports and
+     * confirmation dialogs do not block other requests; everything else is answered inline on this thread.
+     */
     public void run() throws IOException {
+        if (reader == null) throw new IllegalStateException("server has no stdio");
         try {
             String line;
             while ((line = reader.readLine()) != null) {
                 handleRequest(line);
             }
         } finally {
-            pool.close();
-            if (auditor != null) {
-                try { auditor.close(); } catch (IOException ignored) {}
-            }
+            close();
         }
     }
 
-    private void handleRequest(String line) {
-        Map<String, Object> req;
+    /**
+     * Stop taking tool calls, wait for the running ones (up to {@link #SHUTDOWN_WAIT_MINUTES}), then close cursors,
+     * pools, metrics and the audit log. Called by run() at end of input; transports call it on shutdown.
+     */
+    public void close() {
+        callExecutor.shutdown();
         try {
-            req = GSON.fromJson(line, MAP_TYPE);
-        } catch (Exception e) {
-            sendError(null, -32700, "Parse error", null);
+            callExecutor.awaitTermination(SHUTDOWN_WAIT_MINUTES, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        timers.shutdownNow();
+        notifier.shutdownNow();
+        cursors.closeAll();
+        if (health != null) health.close();
+        metrics.close();
+        if (metricsFile != null) metrics.dumpTo(metricsFile);
+        pool.close();
+        if (auditor != null) {
+            try { auditor.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    void handleRequest(String line) {
+        long parseStart = System.nanoTime();
+        Map<String, Object> req = parse(line);
+        if (req == null) {
+            stdio.writer.writeError(null, -32700, "Parse error", null);
             return;
         }
+        dispatch(req, parseStart, stdio);
+    }
+
+    /** One JSON-RPC message as a map; null if it is not a JSON object. */
+    static Map<String, Object> parse(String json) {
+        try {
+            return GSON.fromJson(json, MAP_TYPE);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Handle one message parsed at parseStart, answering on channel. tools/call is queued on the call executor and
+     * its future returned (the response is written when it completes); everything else is answered before this
+     * returns, and null is returned.
+     */
+    Future<?> dispatch(Map<String, Object> req, long parseStart, Channel channel) {
+        Channel previous = CURRENT_CHANNEL.get();
+        CURRENT_CHANNEL.set(channel);
+        try {
+            return dispatch(req, parseStart);
+        } finally {
+            if (previous != null) CURRENT_CHANNEL.set(previous);
+            else CURRENT_CHANNEL.remove();
+        }
+    }
+
+    private Future<?> dispatch(Map<String, Object> req, long parseStart) {
+        Channel channel = channel();
         String method = (String) req.get("method");
         Object id = req.get("id");
         if ("initialize".equals(method)) {
-            handleInitialize(id);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> params = (Map<String, Object>) req.get("params");
+            handleInitialize(id, params);
         } else if ("initialized".equals(method) || "notifications/initialized".equals(method)) {
         } else if ("tools/list".equals(method)) {
             handleToolsList(id);
         } else if ("tools/call".equals(method)) {
             @SuppressWarnings("unchecked")
             Map<String, Object> params = (Map<String, Object>) req.get("params");
-            handleToolsCall(id, params);
+            long received = System.nanoTime();
+            long parseNanos = received - parseStart;
+            return callExecutor.submit(() -> runToolsCall(id, params, parseNanos, received, channel));
+        } else if ("notifications/cancelled".equals(method)) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> params = (Map<String, Object>) req.get("params");
+            handleCancelled(params);
         } else if ("ping".equals(method)) {
             sendResult(id, Map.of("status", "ok"));
         } else {
@@ -107,11 +386,78 @@ public class McpServer {
                 sendError(id, -32601, "Method not found: " + method, null);
             }
         }
+        return null;
+    }
+
+    /** The channel of the request on this thread. */
+    private Channel channel() {
+        Channel c = CURRENT_CHANNEL.get();
+        return c != null ? c : stdio;
+    }
+
+    /** Cancel every call still running in session (its client went away); their responses are dropped. */
+    void endSession(Session session) {
+        for (Map.Entry<Object, Cancellation> e : session.calls.entrySet()) {
+            session.abandoned.add(e.getKey());
+            e.getValue().cancel(CANCELLED_BY_CLIENT + ": session closed");
+        }
     }
 
-    private void handleInitialize(Object id) {
+    /**
+     * One client's view of the server: its tool calls in progress by JSON-RPC id, so notifications/cancelled can
+     * stop their statements, and the ids it cancelled, whose responses are dropped. Ids are only unique per session.
+     */
+    static final class Session {
+        final String id;
+        final Map<Object, Cancellation> calls = new ConcurrentHashMap<>();
+        final Set<Object> abandoned = ConcurrentHashMap.newKeySet();
+        volatile long lastUsedNanos = System.nanoTime();
+
+        Session(String id) {
+            this.id = id;
+        }
+
+        void touch() {
+            lastUsedNanos = System.nanoTime();
+        }
+
+        boolean isIdle() {
+            return calls.isEmpty();
+        }
+    }
+
+    /** Where one request's response goes: the session it belongs to and the writer that reaches its client. */
+    static final class Channel {
+        final Session session;
+        final JsonRpcWriter writer;
+
+        Channel(Session session, JsonRpcWriter writer) {
+            this.session = session;
+            this.writer = writer;
+        }
+    }
+
+    /**
+     * The client gave up on a request: cancel its running statements (the connection goes back to the pool as soon
+     * as the driver stops) and send no response for it, as MCP asks. Unknown or finished ids are ignored.
+     */
+    private void handleCancelled(Map<String, Object> params) {
+        Session session = channel().session;
+        Map<Object, Cancellation> calls = session.calls;
+        Set<Object> abandoned = session.abandoned;
+        Object requestId = params != null ? params.get("requestId") : null;
+        Cancellation c = requestId != null ? calls.get(requestId) : null;
+        if (c == null) return;
+        abandoned.add(requestId);
+        Object reason = params.get("reason");
+        c.cancel(reason != null ? CANCELLED_BY_CLIENT + ": " + reason : CANCELLED_BY_CLIENT);
+        if (!calls.containsKey(requestId)) abandoned.remove(requestId);
+    }
+
+    private void handleInitialize(Object id, Map<String, Object> params) {
+        Object requested = params != null ? params.get("protocolVersion") : null;
         Map<String, Object> result = new LinkedHashMap<>();
-        result.put("protocolVersion", PROTOCOL_VERSION);
+        result.put("protocolVersion", requested != null && PROTOCOL_VERSIONS.contains(requested) ? requested : PROTOCOL_VERSION);
         result.put("capabilities", Map.of(
             "tools", Map.of("listChanged", false),
             "logging", Collections.emptyMap()
@@ -124,48 +470,102 @@ public class McpServer {
         List<Map<String, Object>> tools = new ArrayList<>();
         tools.add(tool(
             "execute_sql",
-            "Execute SQL against the configured database. When multiple connections are configured, use the 'connection' argument (call list_connections to see names). Supports standard SQL (SELECT/INSERT/UPDATE/DELETE/DDL) and vendor-neutral stored procedure/function calls using JDBC escape syntax, e.g. \"{ call my_procedure() }\" or \"{ ? = call my_function(?) }\". For Oracle only, anonymous blocks (BEGIN...END or DECLARE...BEGIN...END) are supported; for other databases use stored procedure/function and call via \"{ call proc_name() }\". Some SQL may require user approval; if rejected, you will receive an execution cancelled result.",
+            "Execute SQL against the configured database. When multiple connections are configured, use the 'connection' argument (call list_connections to see names). Supports standard SQL (SELECT/INSERT/UPDATE/DELETE/DDL) and vendor-neutral stored procedure/function calls using JDBC escape syntax, e.g. \"{ call my_procedure() }\" or \"{ ? = call my_function(?) }\". For Oracle only, anonymous blocks (BEGIN...END or DECLARE...BEGIN...END) are supported; for other databases use stored procedure/function and call via \"{ call proc_name() }\". Some SQL may require user approval; if rejected, you will receive an execution cancelled result. Returned rows are capped at max_rows; when more exist the result has hasMore=true and a cursor token: call fetch_more with it to read the next page.",
             Map.of(
                 "sql", prop("string", "SQL to run. For normal SQL, use one or multiple statements separated by semicolons. For Oracle, anonymous blocks (BEGIN...END or DECLARE...BEGIN...END) are supported. For stored procedures/functions on any database, use JDBC escape syntax \"{ call proc_name() }\" or \"{ ? = call func_name(?) }\". On non-Oracle databases do not send anonymous blocks; use procedures/functions and call them."),
-                "connection", prop("string", "Which configured database to use. Required when multiple connections; omit when only one.")
+                "connection", prop("string", "Which configured database to use. Required when multiple connections; omit when only one."),
+                "max_rows", prop("integer", "Max rows to return inline (default from server config, usually 1000; 0 = unlimited). Remaining rows are available via fetch_more."),
+                "max_lob_chars", prop("integer", "Cut CLOB/BLOB and long text values after this many characters (binary: hex characters), marked ...[truncated] (default from server config, usually 65536; 0 = unlimited). Export tools always write full values."),
+                "fetch_size", prop("integer", "JDBC fetch size hint (rows per round trip). Optional; default max_rows + 1, at most 1001."),
+                "batch_size", prop("integer", "Send consecutive INSERT/UPDATE/DELETE/MERGE statements in JDBC batches of this size (default from server config, usually 0 = off). The result then has updateCounts, one per statement."),
+                "params", prop("array", "Values for the ? placeholders in sql, in order (strings, numbers, booleans or null). The statement is then prepared and bound instead of sent as literal text, so the database can reuse its plan; sql must be a single statement. Prefer this over inlining values."),
+                "out_params", prop("object", "OUT / INOUT placeholders of a { call } statement (or Oracle anonymous block): 1-based ? position to SQL type name, e.g. {\"1\": \"INTEGER\", \"3\": \"REF_CURSOR\"} (java.sql.Types names: VARCHAR, INTEGER, BIGINT, DECIMAL, TIMESTAMP, CLOB, REF_CURSOR, ...). Their values come back in outParams, cursors as result sets. A non-null params value at the same position is the INOUT input. Every result set the call returns comes back too: the first in columns/rows, the others in moreResults."),
+                "timeout_ms", prop("integer", "Cancel the call when the database work takes longer than this many milliseconds (default: 300 s per statement). The client can also stop it early with notifications/cancelled.")
             ),
             List.of("sql")
         ));
         tools.add(tool(
             "execute_sql_file",
-            "Read SQL from a file and execute it. Same rules as execute_sql. File path is relative to server working directory unless absolute.",
+            "Read SQL from a file and execute it. Same rules as execute_sql (including max_rows / fetch_more). File path is relative to server working directory unless absolute.",
             Map.of(
                 "file_path", prop("string", "Absolute path to the SQL file (callers must use absolute path; relative path depends on server working directory and may fail)."),
-                "connection", prop("string", "Which configured database to use. Required when multiple connections; omit when only one.")
+                "connection", prop("string", "Which configured database to use. Required when multiple connections; omit when only one."),
+                "max_rows", prop("integer", "Max rows to return inline (default from server config; 0 = unlimited)."),
+                "max_lob_chars", prop("integer", "Cut CLOB/BLOB and long text values after this many characters (default from server config; 0 = unlimited)."),
+                "fetch_size", prop("integer", "JDBC fetch size hint (rows per round trip). Optional; default max_rows + 1, at most 1001."),
+                "batch_size", prop("integer", "Send consecutive DML statements in JDBC batches of this size (0 = off). Useful for large INSERT seed files."),
+                "timeout_ms", prop("integer", "Cancel the call when the database work takes longer than this many milliseconds (default: 300 s per statement). The client can also stop it early with notifications/cancelled.")
             ),
             List.of("file_path")
         ));
+        tools.add(tool(
+            "fetch_more",
+            "Read the next page of a result cut off by max_rows, using the cursor token returned by execute_sql / execute_sql_file. The result has the same shape as execute_sql; while more rows remain it carries the cursor again. Cursors are closed when exhausted, after an idle timeout, or with close=true.",
+            Map.of(
+                "cursor", prop("string", "Cursor token from a previous result."),
+                "max_rows", prop("integer", "Max rows to return in this page (default from server config; 0 = all remaining)."),
+                "close", prop("boolean", "Close the cursor without reading more rows.")
+            ),
+            List.of("cursor")
+        ));
         tools.add(tool(
             "list_connections",
-            "List configured database connections, their availability, and db_type (mysql/oracle/postgresql/sql_server). Each call re-checks every connection (validates with the database); unavailable or previously failed connections are retried. Use 'name' as the 'connection' argument in execute_sql; use db_type for SQL syntax reference.",
-            Map.of(),
+            "List configured database connections, their availability, and db_type (mysql/oracle/postgresql/sql_server). Availability comes from background health checks and is returned at once; checked_at is when each connection was last validated, and unavailable ones carry the error and are retried with backoff. Pass refresh=true to re-check every connection (in parallel) before answering. Use 'name' as the 'connection' argument in execute_sql; use db_type for SQL syntax reference.",
+            Map.of("refresh", prop("boolean", "Re-check all connections now instead of returning the cached status (e.g. after the user fixed a connection).")),
             List.of()
         ));
         tools.add(tool(
             "query_to_csv_file",
-            "Execute the given SQL and write the result to a file as CSV (header + data rows, UTF-8). Format follows RFC 4180. file_path must be absolute. No confirmation dialog.",
+            "Execute the given SQL and write the result to a file as CSV (header + data rows, UTF-8). Format follows RFC 4180. Rows are streamed to the file as they are read, so large results are supported. Returns rows_written and bytes_written. file_path must be absolute. No confirmation dialog.",
             Map.of(
                 "sql", prop("string", "SQL to run (e.g. SELECT). Single or multiple statements; last result is written."),
                 "file_path", prop("string", "Absolute path of the output CSV file."),
-                "connection", prop("string", "Which configured database to use. Required when multiple connections; omit when only one.")
+                "connection", prop("string", "Which configured database to use. Required when multiple connections; omit when only one."),
+                "partition_column", prop("string", PARTITION_COLUMN_DESC),
+                "parallelism", prop("integer", PARALLELISM_DESC),
+                "output", prop("string", PARTITION_OUTPUT_DESC),
+                "compression", prop("string", COMPRESSION_DESC),
+                "compression_level", prop("integer", COMPRESSION_LEVEL_DESC),
+                "timeout_ms", prop("integer", "Cancel the call when the database work takes longer than this many milliseconds (default: 300 s per statement). The client can also stop it early with notifications/cancelled.")
             ),
             List.of("sql", "file_path")
         ));
         tools.add(tool(
             "query_to_text_file",
-            "Execute the given SQL and write the result to a file as plain text: no header, columns tab-separated. No extra newlines added between rows; only newlines in the cell data are written. CLOB columns are read in full. Use for procedure source or any query (including CLOB). file_path must be absolute. No confirmation dialog.",
+            "Execute the given SQL and write the result to a file as plain text: no header, columns tab-separated. No extra newlines added between rows; only newlines in the cell data are written. CLOB columns are read in full. Rows are streamed to the file; returns rows_written and bytes_written. Use for procedure source or any query (including CLOB). file_path must be absolute. No confirmation dialog.",
             Map.of(
                 "sql", prop("string", "SQL to run (e.g. SELECT text FROM user_source ...). Single or multiple statements; last result is written."),
                 "file_path", prop("string", "Absolute path of the output text file (e.g. .sql)."),
-                "connection", prop("string", "Which configured database to use. Required when multiple connections; omit when only one.")
+                "connection", prop("string", "Which configured database to use. Required when multiple connections; omit when only one."),
+                "partition_column", prop("string", PARTITION_COLUMN_DESC),
+                "parallelism", prop("integer", PARALLELISM_DESC),
+                "output", prop("string", PARTITION_OUTPUT_DESC),
+                "compression", prop("string", COMPRESSION_DESC),
+                "compression_level", prop("integer", COMPRESSION_LEVEL_DESC),
+                "timeout_ms", prop("integer", "Cancel the call when the database work takes longer than this many milliseconds (default: 300 s per statement). The client can also stop it early with notifications/cancelled.")
+            ),
+            List.of("sql", "file_path")
+        ));
+        tools.add(tool(
+            "query_to_arrow_file",
+            "Execute the given SQL and write the result to an Apache Arrow IPC file (.arrow / Feather v2) with typed columns taken from the result set metadata: integers, floating point, DECIMAL, DATE, TIME, TIMESTAMP, boolean and binary keep their types; other columns are UTF-8 text. Rows are streamed in record batches; returns rows_written and bytes_written. Readable by pyarrow, pandas, polars, DuckDB and Spark. file_path must be absolute. No confirmation dialog.",
+            Map.of(
+                "sql", prop("string", "SQL to run (e.g. SELECT). Single or multiple statements; last result is written."),
+                "file_path", prop("string", "Absolute path of the output Arrow file (e.g. .arrow)."),
+                "connection", prop("string", "Which configured database to use. Required when multiple connections; omit when only one."),
+                "partition_column", prop("string", PARTITION_COLUMN_DESC),
+                "parallelism", prop("integer", PARALLELISM_DESC),
+                "output", prop("string", PARTITION_OUTPUT_DESC),
+                "timeout_ms", prop("integer", "Cancel the call when the database work takes longer than this many milliseconds (default: 300 s per statement). The client can also stop it early with notifications/cancelled.")
             ),
             List.of("sql", "file_path")
         ));
+        tools.add(tool(
+            "server_metrics",
+            "Server metrics in Prometheus text format: tool latency histograms (total and per phase: queue, parse, analyze, confirm, borrow, execute, serialize, write), audit write latency, connection pool usage and SQL analyzer cache hit ratio. Read-only; no database access.",
+            Map.of(),
+            List.of()
+        ));
         sendResult(id, Map.of("tools", tools));
     }
 
@@ -188,6 +588,123 @@ public class McpServer {
         return p;
     }
 
+    /** Worker-side entry for tools/call: waits for a call slot (virtual threads only) and reports unexpected failures. */
+    private void runToolsCall(Object id, Map<String, Object> params, long parseNanos, long receivedNanos, Channel channel) {
+        CURRENT_CHANNEL.set(channel);
+        Session session = channel.session;
+        try {
+            if (callSlots != null) callSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(id, ERR_CODE_INTERNAL, "Server shutting down", null);
+            CURRENT_CHANNEL.remove();
+            return;
+        }
+        Object name = params != null ? params.get("name") : null;
+        String tool = name != null && TOOL_NAMES.contains(name.toString()) ? name.toString() : "unknown";
+        CURRENT_TOOL.set(tool);
+        Cancellation cancellation = new Cancellation();
+        if (id != null) session.calls.put(id, cancellation);
+        Object token = progressToken(params);
+        if (token != null) CURRENT_PROGRESS.set(new ProgressReporter(token, channel.writer));
+        try {
+            phaseHistogram(tool, "parse").observeNanos(parseNanos);
+            phase("queue", receivedNanos);
+            handleToolsCall(id, params);
+        } catch (RuntimeException e) {
+            sendError(id, ERR_CODE_INTERNAL, "Internal error: " + e.getMessage(), null);
+        } finally {
+            metrics.histogram("db_mcp_tool_call_seconds", "Tool call latency from request parsed to response written.",
+                "tool", tool).since(receivedNanos);
+            cancellation.finish();
+            if (id != null) {
+                session.calls.remove(id, cancellation);
+                session.abandoned.remove(id);
+            }
+            ProgressReporter reporter = CURRENT_PROGRESS.get();
+            if (reporter != null) reporter.close();
+            CURRENT_PROGRESS.remove();
+            CURRENT_TOOL.remove();
+            CURRENT_CHANNEL.remove();
+            if (callSlots != null) callSlots.release();
+        }
+    }
+
+    /** params._meta.progressToken of a tools/call: the client wants notifications/progress under this token. */
+    private static Object progressToken(Map<String, Object> params) {
+        Object meta = params != null ? params.get("_meta") : null;
+        return meta instanceof Map ? ((Map<?, ?>) meta).get("progressToken") : null;
+    }
+
+    /**
+     * Progress tracking for the call on this thread, reported as rows fetched (exports) or statements completed
+     * (byStatements, execute_sql_file); {@link Progress#NONE} when the client asked for no progress.
+     */
+    private Progress progress(boolean byStatements) {
+        ProgressReporter reporter = CURRENT_PROGRESS.get();
+        if (reporter == null) return Progress.NONE;
+        reporter.byStatements = byStatements;
+        return byStatements
+            ? new Progress(reporter, 0, config.getServer().getProgressIntervalStatements())
+            : new Progress(reporter, config.getServer().getProgressIntervalRows(), 0);
+    }
+
+    /**
+     * Sends notifications/progress for one tool call. Workers only flag that an update is due; the notifier
+     * thread then sends the latest totals, so bursts collapse into one message and a slow client never stalls an
+     * export. Nothing is sent once the call's response is on its way.
+     */
+    private final class ProgressReporter implements Progress.Listener {
+        private final Object token;
+        private final JsonRpcWriter writer;
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private volatile boolean byStatements;
+        /** Guarded by this. */
+        private boolean closed;
+        private long lastSent = -1;
+
+        ProgressReporter(Object token, JsonRpcWriter writer) {
+            this.token = token;
+            this.writer = writer;
+        }
+
+        @Override
+        public void onProgress(Progress progress) {
+            if (!queued.compareAndSet(false, true)) return;
+            try {
+                notifier.execute(() -> send(progress));
+            } catch (RejectedExecutionException e) {
+                queued.set(false); // shutting down
+            }
+        }
+
+        private synchronized void send(Progress p) {
+            queued.set(false);
+            long rows = p.getRows();
+            long bytes = p.getBytes();
+            long statements = p.getStatements();
+            long elapsedMs = p.getElapsedMs();
+            long rate = elapsedMs > 0 ? rows * 1000 / elapsedMs : 0;
+            long value = byStatements ? statements : rows;
+            if (closed || value <= lastSent) return; // progress must increase
+            lastSent = value;
+            Map<String, Object> params = new LinkedHashMap<>();
+            params.put("progressToken", token);
+            params.put("progress", value);
+            params.put("message", rows + " rows, " + bytes + " bytes written, " + statements + " statements, " + rate + " rows/s");
+            params.put("rows", rows);
+            params.put("bytes_written", bytes);
+            params.put("statements", statements);
+            params.put("rows_per_second", rate);
+            params.put("elapsed_ms", elapsedMs);
+            writer.writeNotification("notifications/progress", params);
+        }
+
+        synchronized void close() {
+            closed = true;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private void handleToolsCall(Object id, Map<String, Object> params) {
         if (params == null) {
@@ -198,45 +715,34 @@ public class McpServer {
         Map<String, Object> args = (Map<String, Object>) params.get("arguments");
         if (args == null) args = Map.of();
         if ("list_connections".equals(name)) {
-            List<Map<String, Object>> connections = pool.listConnectionsWithStatus();
+            List<Map<String, Object>> connections = health != null
+                ? health.snapshot(Boolean.TRUE.equals(args.get("refresh")), REFRESH_WAIT_MS)
+                : pool.listConnectionsWithStatus();
             Map<String, Object> out = new LinkedHashMap<>();
             out.put("connections", connections);
-            out.put("message", "Use these names as the 'connection' argument in execute_sql. Unavailable connections are retried on each list_connections call.");
-            sendToolResult(id, GSON.toJson(out));
+            out.put("message", health != null
+                ? "Use these names as the 'connection' argument in execute_sql. Status is from background checks (see checked_at); unavailable connections are retried automatically, or pass refresh=true to re-check now."
+                : "Use these names as the 'connection' argument in execute_sql. Unavailable connections are retried on each list_connections call.");
+            sendToolResult(id, out);
         } else if ("execute_sql".equals(name)) {
             handleExecuteSql(id, args);
         } else if ("execute_sql_file".equals(name)) {
             handleExecuteSqlFile(id, args);
+        } else if ("fetch_more".equals(name)) {
+            handleFetchMore(id, args);
         } else if ("query_to_csv_file".equals(name)) {
             handleQueryToCsvFile(id, args);
         } else if ("query_to_text_file".equals(name)) {
             handleQueryToTextFile(id, args);
+        } else if ("query_to_arrow_file".equals(name)) {
+            handleQueryToArrowFile(id, args);
+        } else if ("server_metrics".equals(name)) {
+            sendToolResult(id, metrics.toText());
         } else {
             sendToolError(id, "Unknown tool: " + name);
         }
     }
 
-    /**
-     * Remove trailing lines that are only "/" (SQL*Plus execute buffer command). Aligned with Go stripTrailingSlashLine.
-     */
-    private static String stripTrailingSlashLine(String s) {
-        if (s == null) return "";
-        while (true) {
-            s = s.replaceAll("\\r?\\n$", "");
-            int last = s.lastIndexOf('\n');
-            if (last < 0) {
-                if (s.trim().equals("/")) return "";
-                return s;
-            }
-            String line = s.substring(last + 1);
-            if (line.trim().equals("/")) {
-                s = s.substring(0, last);
-                continue;
-            }
-            return s;
-        }
-    }
-
     @SuppressWarnings("unchecked")
     private void handleExecuteSqlFile(Object id, Map<String, Object> args) {
         Object pathArg = args.get("file_path");
@@ -255,20 +761,52 @@ public class McpServer {
         }
         path = path.normalize();
 
-        String sql;
+        // Large files are never read whole: analyzed and executed one statement at a time (SqlScriptReader),
+        // both passes through the one channel opened here, so what runs is what was reviewed.
+        String sql = null;
+        ScriptFile script = null;
         try {
-            sql = Files.readString(path, StandardCharsets.UTF_8);
+            if (Files.size(path) > STREAM_FILE_THRESHOLD_BYTES) {
+                script = ScriptFile.open(path);
+            } else {
+                sql = Files.readString(path, StandardCharsets.UTF_8);
+            }
         } catch (IOException e) {
             sendToolError(id, "Cannot read file: " + e.getMessage());
             return;
         }
-        if (sql == null || sql.isBlank()) {
-            sendToolError(id, "File is empty");
-            return;
+        try {
+            executeSqlFile(id, args, path, sql, script);
+        } finally {
+            if (script != null) {
+                try {
+                    script.close();
+                } catch (IOException ignored) {
+                }
+            }
         }
-        sql = stripTrailingSlashLine(sql).trim();
-        if (sql.isEmpty()) {
-            sendToolError(id, "File contains no SQL (only \"/\" lines)");
+    }
+
+    /** execute_sql_file once the file is open: sql holds a small file's text, script a large file (one is null). */
+    private void executeSqlFile(Object id, Map<String, Object> args, Path path, String sql, ScriptFile script) {
+        boolean streamed = script != null;
+        if (!streamed) {
+            if (sql == null || sql.isBlank()) {
+                sendToolError(id, "File is empty");
+                return;
+            }
+            sql = JdbcExecutor.stripTrailingSlashLine(sql).trim();
+            if (sql.isEmpty()) {
+                sendToolError(id, "File contains no SQL (only \"/\" lines)");
+                return;
+            }
+        }
+        ExecuteOptions options;
+        try {
+            options = executeOptions(id, args);
+            options.setProgress(progress(true));
+        } catch (IllegalArgumentException e) {
+            sendToolError(id, e.getMessage());
             return;
         }
 
@@ -285,7 +823,27 @@ public class McpServer {
 
         String connKey = connectionName.isEmpty() ? names.get(0) : connectionName;
         SqlAnalyzer analyzer = pool.getAnalyzer(connKey);
-        AnalysisResult analysis = analyzer.analyze(sql);
+        boolean oracle = pool.getDialect(connKey).isOracle();
+        AnalysisResult analysis;
+        long analyzeStart = System.nanoTime();
+        if (streamed) {
+            try {
+                analysis = analyzeScript(analyzer, script, path, oracle);
+            } catch (IOException e) {
+                sendToolError(id, "Cannot read file: " + e.getMessage());
+                return;
+            }
+            if (analysis.getStatementType() == null) {
+                sendToolError(id, "File contains no SQL");
+                return;
+            }
+            // Audit text: the file's identity, then the dialog text (summary plus statements needing review)
+            sql = "-- File: " + path + ", " + script.getSize() + " bytes, SHA-256 " + script.getSha256()
+                + " (audit text abridged: statements needing review only)\n" + analysis.getPreviewSql();
+        } else {
+            analysis = analyzer.analyze(sql);
+        }
+        phase("analyze", analyzeStart);
         boolean needsConfirmation = analysis.isDangerous()
             || (config.getReview() != null && config.getReview().isAlwaysReviewDdl() && analysis.isDdl());
 
@@ -311,6 +869,7 @@ public class McpServer {
             req.setSchema(schema);
             req.setDriver(driver);
             boolean approved;
+            long confirmStart = System.nanoTime();
             try {
                 approved = confirmer.confirm(req);
             } catch (Exception e) {
@@ -318,6 +877,7 @@ public class McpServer {
                 sendToolError(id, "Confirmation dialog error: " + e.getMessage());
                 return;
             }
+            phase("confirm", confirmStart);
             if (!approved) {
                 logAudit(sql, analysis.getMatchedKeywords(), false, "USER_REJECTED", displayConnection, dbName, schema, driver);
                 Map<String, Object> data = new LinkedHashMap<>();
@@ -328,20 +888,90 @@ public class McpServer {
             }
         }
 
-        try (Connection conn = pool.getConnection(connKey)) {
-            ExecutionResult result = JdbcExecutor.execute(conn, sql);
+        if (streamed) {
+            try {
+                script.checkUnchanged();
+            } catch (IOException e) {
+                logAudit(sql, analysis.getMatchedKeywords(), false, "FILE_CHANGED: " + e.getMessage(), displayConnection, dbName, schema, driver);
+                sendToolError(id, e.getMessage());
+                return;
+            }
+        }
+        Connection conn = null;
+        ExecutionResult result = null;
+        try {
+            long t = System.nanoTime();
+            options.getCancellation().startTimer(timers);
+            conn = pool.getConnection(connKey);
+            options.setDialect(pool.getDialect(connKey, conn));
+            options.setConnectionName(connKey);
+            t = phase("borrow", t);
+            if (streamed) {
+                try (SqlScriptReader reader = script.reader(oracle)) {
+                    result = JdbcExecutor.execute(conn, reader, options);
+                }
+            } else {
+                result = JdbcExecutor.execute(conn, sql, options);
+            }
+            phase("execute", t);
             logAudit(sql, analysis.getMatchedKeywords(), true, "SUCCESS", displayConnection, dbName, schema, driver);
             verboseLog("[debug] Execute File Action: " + analysis.getStatementType() + ", Connection: " + displayConnection + ", File: " + path);
-            sendToolResult(id, GSON.toJson(result));
+            sendToolResult(id, result);
         } catch (Exception e) {
             logAudit(sql, analysis.getMatchedKeywords(), false, "EXECUTION_ERROR: " + e.getMessage(), displayConnection, dbName, schema, driver);
-            if (JdbcPool.isConnectionError(e)) {
+            if (!options.getCancellation().isCancelled() && JdbcPool.isConnectionError(e)) {
                 pool.markUnavailable(connKey);
                 sendToolError(id, JdbcPool.MSG_CONNECTION_UNAVAILABLE);
             } else {
-                sendToolError(id, "SQL execution failed: " + e.getMessage());
+                sendToolError(id, "SQL execution failed: " + options.getCancellation().describe(e));
+            }
+        } finally {
+            closeUnlessCursor(conn, result);
+        }
+    }
+
+    /**
+     * Review a large script statement by statement: flags and matched keywords/actions are merged; the preview
+     * (dialog and audit text) is a summary line plus the statements that need review, up to PREVIEW_CHARS.
+     * Statement type is that of the first statement, or null when the file holds no SQL.
+     */
+    private AnalysisResult analyzeScript(SqlAnalyzer analyzer, ScriptFile file, Path path, boolean oracle) throws IOException {
+        boolean reviewDdl = config.getReview() != null && config.getReview().isAlwaysReviewDdl();
+        AnalysisResult merged = new AnalysisResult();
+        Set<String> keywords = new LinkedHashSet<>();
+        Set<String> highlight = new LinkedHashSet<>();
+        Set<String> actions = new LinkedHashSet<>();
+        StringBuilder flagged = new StringBuilder();
+        long flaggedCount = 0;
+        long count;
+        try (SqlScriptReader script = file.reader(oracle)) {
+            String stmt;
+            while ((stmt = script.next()) != null) {
+                AnalysisResult a = analyzer.analyze(stmt);
+                if (merged.getStatementType() == null) merged.setStatementType(a.getStatementType());
+                if (a.isDangerous()) merged.setDangerous(true);
+                if (a.isDdl()) merged.setDdl(true);
+                if (a.getMatchedKeywords() != null) keywords.addAll(a.getMatchedKeywords());
+                if (a.getMatchedKeywordsForHighlight() != null) highlight.addAll(a.getMatchedKeywordsForHighlight());
+                if (a.getMatchedActions() != null) actions.addAll(a.getMatchedActions());
+                if (a.isDangerous() || (reviewDdl && a.isDdl())) {
+                    flaggedCount++;
+                    if (flagged.length() < PREVIEW_CHARS) {
+                        flagged.append(a.getPreviewSql() != null ? a.getPreviewSql() : stmt).append(";\n\n");
+                    }
+                }
             }
+            count = script.getStatementCount();
         }
+        String summary = "-- " + path.getFileName() + ": " + count + " statements, " + flaggedCount + " need review"
+            + (flagged.length() >= PREVIEW_CHARS ? " (first shown)" : "") + "\n\n";
+        merged.setMatchedKeywords(new ArrayList<>(keywords));
+        merged.setMatchedKeywordsForHighlight(new ArrayList<>(highlight));
+        merged.setMatchedActions(new ArrayList<>(actions));
+        merged.setMultiStatement(count > 1);
+        merged.setParseSucceeded(true);
+        merged.setPreviewSql(summary + flagged);
+        return merged;
     }
 
     @SuppressWarnings("unchecked")
@@ -352,6 +982,16 @@ public class McpServer {
             return;
         }
         String sql = sqlArg.toString().trim();
+        ExecuteOptions options;
+        try {
+            options = executeOptions(id, args);
+            options.setParams(paramsArg(args));
+            options.setOutParams(outParamsArg(args));
+        } catch (IllegalArgumentException e) {
+            sendToolError(id, e.getMessage());
+            return;
+        }
+        String auditParams = options.getParams() != null ? GSON.toJson(options.getParams()) : null;
         String connectionName = args.get("connection") != null ? args.get("connection").toString().trim() : "";
         List<String> names = pool.getNames();
         if (connectionName.isEmpty() && names.size() == 1) {
@@ -365,7 +1005,9 @@ public class McpServer {
         String connKey = connectionName.isEmpty() ? names.get(0) : connectionName;
 
         SqlAnalyzer analyzer = pool.getAnalyzer(connKey);
+        long analyzeStart = System.nanoTime();
         AnalysisResult analysis = analyzer.analyze(sql);
+        phase("analyze", analyzeStart);
         boolean needsConfirmation = analysis.isDangerous()
             || (config.getReview() != null && config.getReview().isAlwaysReviewDdl() && analysis.isDdl());
 
@@ -391,15 +1033,17 @@ public class McpServer {
             req.setSchema(schema);
             req.setDriver(driver);
             boolean approved;
+            long confirmStart = System.nanoTime();
             try {
                 approved = confirmer.confirm(req);
             } catch (Exception e) {
-                logAudit(sql, analysis.getMatchedKeywords(), false, "CONFIRM_ERROR: " + e.getMessage(), displayConnection, dbName, schema, driver);
+                logAudit(sql, analysis.getMatchedKeywords(), false, "CONFIRM_ERROR: " + e.getMessage(), displayConnection, dbName, schema, driver, null, auditParams);
                 sendToolError(id, "Confirmation dialog error: " + e.getMessage());
                 return;
             }
+            phase("confirm", confirmStart);
             if (!approved) {
-                logAudit(sql, analysis.getMatchedKeywords(), false, "USER_REJECTED", displayConnection, dbName, schema, driver);
+                logAudit(sql, analysis.getMatchedKeywords(), false, "USER_REJECTED", displayConnection, dbName, schema, driver, null, auditParams);
                 Map<String, Object> data = new LinkedHashMap<>();
                 data.put("code", "USER_REJECTED");
                 data.put("matched_keywords", analysis.getMatchedKeywords() != null ? analysis.getMatchedKeywords() : List.of());
@@ -408,76 +1052,208 @@ public class McpServer {
             }
         }
 
-        try (Connection conn = pool.getConnection(connKey)) {
-            ExecutionResult result = JdbcExecutor.execute(conn, sql);
-            logAudit(sql, analysis.getMatchedKeywords(), true, "SUCCESS", displayConnection, dbName, schema, driver);
+        Connection conn = null;
+        ExecutionResult result = null;
+        try {
+            long t = System.nanoTime();
+            options.getCancellation().startTimer(timers);
+            conn = pool.getConnection(connKey);
+            options.setDialect(pool.getDialect(connKey, conn));
+            options.setConnectionName(connKey);
+            t = phase("borrow", t);
+            result = JdbcExecutor.execute(conn, sql, options);
+            phase("execute", t);
+            logAudit(sql, analysis.getMatchedKeywords(), true, "SUCCESS", displayConnection, dbName, schema, driver, null, auditParams);
             verboseLog("[debug] Execute Action: " + analysis.getStatementType() + ", Connection: " + displayConnection);
-            sendToolResult(id, GSON.toJson(result));
+            sendToolResult(id, result);
         } catch (Exception e) {
-            logAudit(sql, analysis.getMatchedKeywords(), false, "EXECUTION_ERROR: " + e.getMessage(), displayConnection, dbName, schema, driver);
-            if (JdbcPool.isConnectionError(e)) {
+            logAudit(sql, analysis.getMatchedKeywords(), false, "EXECUTION_ERROR: " + e.getMessage(), displayConnection, dbName, schema, driver, null, auditParams);
+            if (!options.getCancellation().isCancelled() && JdbcPool.isConnectionError(e)) {
                 pool.markUnavailable(connKey);
                 sendToolError(id, JdbcPool.MSG_CONNECTION_UNAVAILABLE);
             } else {
-                sendToolError(id, "SQL execution failed: " + e.getMessage());
+                sendToolError(id, "SQL execution failed: " + options.getCancellation().describe(e));
             }
+        } finally {
+            closeUnlessCursor(conn, result);
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private void handleQueryToCsvFile(Object id, Map<String, Object> args) {
-        Object sqlArg = args.get("sql");
-        Object pathArg = args.get("file_path");
-        if (sqlArg == null || pathArg == null) {
-            sendToolError(id, "Missing required parameter: sql or file_path");
+    private void handleFetchMore(Object id, Map<String, Object> args) {
+        Object cursorArg = args.get("cursor");
+        String token = cursorArg != null ? cursorArg.toString().trim() : "";
+        if (token.isEmpty()) {
+            sendToolError(id, "Missing required parameter: cursor");
             return;
         }
-        String sql = sqlArg.toString().trim();
-        if (sql.isEmpty()) {
-            sendToolError(id, "sql cannot be empty");
+        if (Boolean.TRUE.equals(args.get("close"))) {
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("cursor", token);
+            out.put("closed", cursors.close(token));
+            sendToolResult(id, out);
             return;
         }
-        Path path = Paths.get(pathArg.toString().trim());
-        if (!path.isAbsolute()) {
-            sendToolError(id, "file_path must be an absolute path");
+        int maxRows;
+        try {
+            maxRows = intArg(args, "max_rows", config.getServer().getMaxRows());
+        } catch (IllegalArgumentException e) {
+            sendToolError(id, e.getMessage());
             return;
         }
-        String connectionName = args.get("connection") != null ? args.get("connection").toString().trim() : "";
-        List<String> names = pool.getNames();
-        if (connectionName.isEmpty() && names.size() == 1) {
-            connectionName = names.get(0);
-        } else if (connectionName.isEmpty() && names.size() > 1) {
-            sendToolError(id, "Multiple connections configured; specify 'connection' (call list_connections for names).");
-            return;
+        try {
+            long t = System.nanoTime();
+            ExecutionResult result = cursors.fetch(token, maxRows);
+            phase("execute", t);
+            if (result == null) {
+                sendToolError(id, "Cursor not found: it was exhausted, closed, expired after being idle, or is being read by another call.");
+                return;
+            }
+            sendToolResult(id, result);
+        } catch (SQLException e) {
+            sendToolError(id, "fetch_more failed: " + e.getMessage());
         }
-        String connKey = connectionName.isEmpty() ? names.get(0) : connectionName;
-        String displayConnection = connectionName.isEmpty() ? (names.isEmpty() ? "" : names.get(0)) : connectionName;
-        if (displayConnection.isEmpty()) displayConnection = "default";
-        String[] meta = pool.getConnectionMeta(connKey);
-        String dbName = (meta != null && meta.length > 0) ? meta[0] : displayConnection;
-        String schema = (meta != null && meta.length > 1) ? meta[1] : "";
-        String driver = (meta != null && meta.length > 2) ? meta[2] : "";
-        try (Connection conn = pool.getConnection(connKey)) {
-            long rowsWritten = JdbcExecutor.executeToCsvFile(conn, sql, path);
-            logAudit(sql, null, true, "QUERY_TO_CSV", displayConnection, dbName, schema, driver, path.toString());
-            Map<String, Object> out = new LinkedHashMap<>();
-            out.put("file_path", path.toString());
-            out.put("rows_written", rowsWritten);
-            out.put("message", "CSV written to " + path.toString());
-            sendToolResult(id, GSON.toJson(out));
-        } catch (Exception e) {
-            logAudit(sql, null, false, "QUERY_TO_CSV_ERROR: " + e.getMessage(), displayConnection, dbName, schema, driver, path.toString());
-            if (JdbcPool.isConnectionError(e)) {
-                pool.markUnavailable(connKey);
-                sendToolError(id, JdbcPool.MSG_CONNECTION_UNAVAILABLE);
-            } else {
-                sendToolError(id, "query_to_csv_file failed: " + e.getMessage());
+    }
+
+    /**
+     * Options from execute_sql / execute_sql_file arguments (max_rows, fetch_size, batch_size, timeout_ms); rows past
+     * the cap go to a cursor.
+     */
+    private ExecuteOptions executeOptions(Object id, Map<String, Object> args) {
+        ExecuteOptions options = new ExecuteOptions();
+        options.setCancellation(cancellation(id, args));
+        options.setMaxRows(intArg(args, "max_rows", config.getServer().getMaxRows()));
+        options.setMaxLobChars(intArg(args, "max_lob_chars", config.getServer().getMaxLobChars()));
+        options.setFetchSize(intArg(args, "fetch_size", 0));
+        options.setBatchSize(intArg(args, "batch_size", config.getServer().getBatchSize()));
+        options.setCursors(cursors);
+        return options;
+    }
+
+    /**
+     * partition_column / parallelism / output / compression / timeout_ms of the query_to_*_file tools; parallelism
+     * is capped by the pool size.
+     */
+    private ExportOptions exportOptions(Object id, Map<String, Object> args, String connKey, ExportFormat format) {
+        ExportOptions options = new ExportOptions();
+        options.setCancellation(cancellation(id, args));
+        Object compression = args.get("compression");
+        if (compression != null) {
+            Compression c = Compression.parse(compression.toString());
+            if (c != Compression.NONE && format == ExportFormat.ARROW) {
+                throw new IllegalArgumentException("compression applies to query_to_csv_file and query_to_text_file");
+            }
+            int level = intArg(args, "compression_level", 0);
+            if (level > c.getMaxLevel()) {
+                throw new IllegalArgumentException("compression_level must be 1 to " + c.getMaxLevel() + " for " + c.name().toLowerCase());
+            }
+            options.setCompression(c);
+            options.setCompressionLevel(level);
+            options.setCompressionBufferSize(config.getServer().getCompressionBufferSize());
+        }
+        Object column = args.get("partition_column");
+        if (column == null || column.toString().isBlank()) return options;
+        options.setPartitionColumn(column.toString().trim());
+        int limit = Math.min(MAX_EXPORT_PARALLELISM, pool.getMaxActive(connKey));
+        options.setParallelism(Math.min(intArg(args, "parallelism", DEFAULT_EXPORT_PARALLELISM), limit));
+        Object output = args.get("output");
+        String mode = output != null ? output.toString().trim().toLowerCase() : "merged";
+        if (!"merged".equals(mode) && !"parts".equals(mode)) {
+            throw new IllegalArgumentException("output must be 'merged' or 'parts'");
+        }
+        options.setPartFiles("parts".equals(mode));
+        return options;
+    }
+
+    /** execute_sql params: null when absent; otherwise a list of scalars. Throws IllegalArgumentException on other shapes. */
+    private static List<Object> paramsArg(Map<String, Object> args) {
+        Object v = args.get("params");
+        if (v == null) return null;
+        if (!(v instanceof List)) throw new IllegalArgumentException("Invalid params: must be an array");
+        List<Object> params = new ArrayList<>((List<?>) v);
+        for (Object p : params) {
+            if (p != null && !(p instanceof String) && !(p instanceof Number) && !(p instanceof Boolean)) {
+                throw new IllegalArgumentException("Invalid params: values must be strings, numbers, booleans or null");
+            }
+        }
+        return params;
+    }
+
+    /**
+     * execute_sql out_params: null when absent; otherwise 1-based placeholder position to java.sql.Types code
+     * ("CURSOR" is accepted for REF_CURSOR). Throws IllegalArgumentException on other shapes or unknown type names.
+     */
+    private static Map<Integer, Integer> outParamsArg(Map<String, Object> args) {
+        Object v = args.get("out_params");
+        if (v == null) return null;
+        if (!(v instanceof Map)) {
+            throw new IllegalArgumentException("Invalid out_params: must be an object of ? position to SQL type, e.g. {\"2\": \"INTEGER\"}");
+        }
+        Map<Integer, Integer> out = new TreeMap<>();
+        for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+            int position;
+            try {
+                position = Integer.parseInt(e.getKey().toString().trim());
+            } catch (NumberFormatException ex) {
+                position = 0;
+            }
+            if (position < 1) {
+                throw new IllegalArgumentException("Invalid out_params: keys must be ? positions 1, 2, ...; got " + e.getKey());
             }
+            String type = e.getValue() != null ? e.getValue().toString().trim().toUpperCase() : "";
+            if ("CURSOR".equals(type)) type = "REF_CURSOR";
+            try {
+                out.put(position, JDBCType.valueOf(type).getVendorTypeNumber());
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Invalid out_params type for position " + position + ": " + e.getValue()
+                    + " (use a java.sql.Types name such as VARCHAR, INTEGER, DECIMAL, TIMESTAMP, CLOB or REF_CURSOR)");
+            }
+        }
+        return out;
+    }
+
+    /** The call's cancellation (registered under its id by runToolsCall) with timeout_ms applied; its timer is not started yet. */
+    private Cancellation cancellation(Object id, Map<String, Object> args) {
+        Cancellation c = id != null ? channel().session.calls.get(id) : null;
+        if (c == null) c = new Cancellation();
+        c.setTimeoutMs(intArg(args, "timeout_ms", 0));
+        return c;
+    }
+
+    /** Integer tool argument, or def when absent. Throws IllegalArgumentException if not a non-negative integer. */
+    private static int intArg(Map<String, Object> args, String key, int def) {
+        Object v = args.get(key);
+        if (v == null) return def;
+        try {
+            long n = v instanceof Number ? ((Number) v).longValue() : Long.parseLong(v.toString().trim());
+            if (n < 0 || n > Integer.MAX_VALUE) throw new NumberFormatException();
+            return (int) n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + key + ": must be a non-negative integer");
         }
     }
 
+    /** Return the connection to the pool unless the result handed it to an open cursor. */
+    private static void closeUnlessCursor(Connection conn, ExecutionResult result) {
+        if (conn == null || (result != null && result.getCursor() != null)) return;
+        try { conn.close(); } catch (SQLException ignored) {}
+    }
+
     @SuppressWarnings("unchecked")
+    private void handleQueryToCsvFile(Object id, Map<String, Object> args) {
+        handleQueryToFile(id, args, "query_to_csv_file", "QUERY_TO_CSV", "CSV", ExportFormat.CSV);
+    }
+
     private void handleQueryToTextFile(Object id, Map<String, Object> args) {
+        handleQueryToFile(id, args, "query_to_text_file", "QUERY_TO_TEXT", "Text", ExportFormat.TEXT);
+    }
+
+    private void handleQueryToArrowFile(Object id, Map<String, Object> args) {
+        handleQueryToFile(id, args, "query_to_arrow_file", "QUERY_TO_ARROW", "Arrow file", ExportFormat.ARROW);
+    }
+
+    /** Shared body of the query_to_*_file tools: resolve connection, export, audit (no confirmation dialog). */
+    private void handleQueryToFile(Object id, Map<String, Object> args, String tool, String auditAction,
+                                   String label, ExportFormat format) {
         Object sqlArg = args.get("sql");
         Object pathArg = args.get("file_path");
         if (sqlArg == null || pathArg == null) {
@@ -509,25 +1285,53 @@ public class McpServer {
         String dbName = (meta != null && meta.length > 0) ? meta[0] : displayConnection;
         String schema = (meta != null && meta.length > 1) ? meta[1] : "";
         String driver = (meta != null && meta.length > 2) ? meta[2] : "";
-        try (Connection conn = pool.getConnection(connKey)) {
-            long rowsWritten = JdbcExecutor.executeToTextFile(conn, sql, path);
-            logAudit(sql, null, true, "QUERY_TO_TEXT", displayConnection, dbName, schema, driver, path.toString());
+        ExportOptions options;
+        try {
+            options = exportOptions(id, args, connKey, format);
+            options.setProgress(progress(false));
+        } catch (IllegalArgumentException e) {
+            sendToolError(id, e.getMessage());
+            return;
+        }
+        long t = System.nanoTime();
+        options.getCancellation().startTimer(timers);
+        try {
+            ExportResult export;
+            if (options.isPartitioned()) {
+                export = JdbcExecutor.executeToFile(() -> pool.getConnection(connKey), pool.getDialect(connKey), sql, path, format, options);
+                phase("execute", t);
+            } else {
+                try (Connection conn = pool.getConnection(connKey)) {
+                    t = phase("borrow", t);
+                    export = JdbcExecutor.executeToFile(conn, pool.getDialect(connKey, conn), sql, path, format, options);
+                    phase("execute", t);
+                }
+            }
+            logAudit(sql, null, true, auditAction, displayConnection, dbName, schema, driver, path.toString());
             Map<String, Object> out = new LinkedHashMap<>();
             out.put("file_path", path.toString());
-            out.put("rows_written", rowsWritten);
-            out.put("message", "Text written to " + path.toString());
-            sendToolResult(id, GSON.toJson(out));
+            out.put("rows_written", export.getRowsWritten());
+            out.put("bytes_written", export.getBytesWritten());
+            if (options.getCompression() != Compression.NONE) out.put("uncompressed_bytes", export.getUncompressedBytes());
+            if (options.isPartitioned()) out.put("partitions", export.getPartitions());
+            if (export.getFiles() != null) out.put("files", export.getFiles());
+            out.put("message", export.getFiles() != null
+                ? label + " written to " + export.getFiles().size() + " part files next to " + path
+                : label + " written to " + path.toString());
+            sendToolResult(id, out);
         } catch (Exception e) {
-            logAudit(sql, null, false, "QUERY_TO_TEXT_ERROR: " + e.getMessage(), displayConnection, dbName, schema, driver, path.toString());
-            if (JdbcPool.isConnectionError(e)) {
+            String message = options.getCancellation().describe(e);
+            logAudit(sql, null, false, auditAction + "_ERROR: " + message, displayConnection, dbName, schema, driver, path.toString());
+            if (!options.getCancellation().isCancelled() && JdbcPool.isConnectionError(e)) {
                 pool.markUnavailable(connKey);
                 sendToolError(id, JdbcPool.MSG_CONNECTION_UNAVAILABLE);
             } else {
-                sendToolError(id, "query_to_text_file failed: " + e.getMessage());
+                sendToolError(id, tool + " failed: " + message);
             }
         }
     }
 
+
     private void logAudit(String sql, List<String> keywords, boolean approved, String action,
                           String connection, String dbName, String schema, String driver) {
         logAudit(sql, keywords, approved, action, connection, dbName, schema, driver, null);
@@ -535,8 +1339,16 @@ public class McpServer {
 
     private void logAudit(String sql, List<String> keywords, boolean approved, String action,
                           String connection, String dbName, String schema, String driver, String outputFile) {
+        logAudit(sql, keywords, approved, action, connection, dbName, schema, driver, outputFile, null);
+    }
+
+    private void logAudit(String sql, List<String> keywords, boolean approved, String action,
+                          String connection, String dbName, String schema, String driver, String outputFile,
+                          String params) {
         if (auditor != null) {
-            auditor.log(sql, keywords, approved, action, connection, dbName, schema, driver, outputFile);
+            long t = System.nanoTime();
+            auditor.log(sql, keywords, approved, action, connection, dbName, schema, driver, outputFile, params);
+            metrics.histogram("db_mcp_audit_write_seconds", "Time to queue one audit log entry (with every_entry, until it is fsynced).").since(t);
         }
     }
 
@@ -549,37 +1361,38 @@ public class McpServer {
         // Intentionally do not log to stderr/stdout to keep MCP stdio clean for clients.
     }
 
+    /** No progress notification may follow the call's response. */
+    private static void endProgress() {
+        ProgressReporter reporter = CURRENT_PROGRESS.get();
+        if (reporter != null) reporter.close();
+    }
+
     private void sendResult(Object id, Object result) {
-        Map<String, Object> resp = new LinkedHashMap<>();
-        resp.put("jsonrpc", "2.0");
-        resp.put("id", id);
-        resp.put("result", result);
-        writer.println(GSON.toJson(resp));
+        endProgress();
+        Channel channel = channel();
+        if (id != null && channel.session.abandoned.contains(id)) return;
+        channel.writer.writeResult(id, result);
     }
 
     private void sendError(Object id, int code, String message, Object data) {
-        Map<String, Object> resp = new LinkedHashMap<>();
-        resp.put("jsonrpc", "2.0");
-        resp.put("id", id);
-        Map<String, Object> err = new LinkedHashMap<>();
-        err.put("code", code);
-        err.put("message", message);
-        if (data != null) err.put("data", data);
-        resp.put("error", err);
-        writer.println(GSON.toJson(resp));
+        endProgress();
+        Channel channel = channel();
+        if (id != null && channel.session.abandoned.contains(id)) return;
+        channel.writer.writeError(id, code, message, data);
     }
 
-    private void sendToolResult(Object id, String contentJson) {
-        Map<String, Object> content = new LinkedHashMap<>();
-        content.put("type", "text");
-        content.put("text", contentJson);
-        sendResult(id, Map.of("content", List.of(content)));
+    /** Tool result whose text content is the payload serialized as JSON (streamed, not built as a String). */
+    private void sendToolResult(Object id, Object payload) {
+        endProgress();
+        Channel channel = channel();
+        if (id != null && channel.session.abandoned.contains(id)) return;
+        channel.writer.writeToolResult(id, payload, false);
     }
 
     private void sendToolError(Object id, String message) {
-        Map<String, Object> content = new LinkedHashMap<>();
-        content.put("type", "text");
-        content.put("text", message);
-        sendResult(id, Map.of("content", List.of(content), "isError", true));
+        endProgress();
+        Channel channel = channel();
+        if (id != null && channel.session.abandoned.contains(id)) return;
+        channel.writer.writeToolResult(id, message, true);
     }
 }
@@ -0,0 +1,73 @@
+package com.alvinliu.dbmcp.mcp;
+
+import com.alvinliu.dbmcp.jdbc.RowSet;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link RowSet} as an array of row arrays straight from its column arrays: LONG and DOUBLE cells as
+ * numbers without boxing, DECIMAL as numbers, BOOLEAN as true/false, TEXT as strings, SQL NULL as null.
+ * NaN and infinite floating point values, which JSON has no number for, are written as strings. Rows only ever
+ * go out to clients, so reading one back is refused with a {@link JsonParseException}.
+ */
+final class RowSetTypeAdapter extends TypeAdapter<RowSet> {
+
+    @Override
+    public void write(JsonWriter out, RowSet rows) throws IOException {
+        if (rows == null) {
+            out.nullValue();
+            return;
+        }
+        int cols = rows.getColumnCount();
+        RowSet.Kind[] kinds = new RowSet.Kind[cols];
+        for (int c = 0; c < cols; c++) kinds[c] = rows.getKind(c);
+        out.beginArray();
+        for (int r = 0; r < rows.size(); r++) {
+            out.beginArray();
+            for (int c = 0; c < cols; c++) {
+                if (rows.isNull(r, c)) {
+                    out.nullValue();
+                    continue;
+                }
+                switch (kinds[c]) {
+                    case LONG:
+                        out.value(rows.getLong(r, c));
+                        break;
+                    case DOUBLE: {
+                        double d = rows.getDouble(r, c);
+                        if (Double.isFinite(d)) out.value(d);
+                        else out.value(Double.toString(d));
+                        break;
+                    }
+                    case FLOAT: {
+                        float f = rows.getFloat(r, c);
+                        // Float's own digits: widening to double would print 0.1f as 0.10000000149011612.
+                        if (Float.isFinite(f)) out.jsonValue(Float.toString(f));
+                        else out.value(Float.toString(f));
+                        break;
+                    }
+                    case BOOLEAN:
+                        out.value(rows.getBoolean(r, c));
+                        break;
+                    case DECIMAL:
+                        out.value((Number) rows.get(r, c));
+                        break;
+                    default:
+                        out.value((String) rows.get(r, c));
+                }
+            }
+            out.endArray();
+        }
+        out.endArray();
+    }
+
+    @Override
+    public RowSet read(JsonReader in) {
+        throw new JsonParseException("Cannot read a RowSet from JSON at " + in.getPath()
+            + ": result rows are only serialized, never parsed");
+    }
+}
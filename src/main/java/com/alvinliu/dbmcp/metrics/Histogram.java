@@ -0,0 +1,56 @@
+package com.alvinliu.dbmcp.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed buckets (seconds, Prometheus style). Lock-free: one LongAdder per bucket.
+ */
+public final class Histogram {
+    /** Upper bounds in seconds; an implicit +Inf bucket follows. */
+    static final double[] BOUNDS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300
+    };
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) BOUNDS_NANOS[i] = (long) (BOUNDS[i] * 1_000_000_000L);
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAdder count = new LongAdder();
+
+    Histogram() {
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    public void observeNanos(long nanos) {
+        if (nanos < 0) nanos = 0;
+        int i = 0;
+        while (i < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[i]) i++;
+        buckets[i].increment();
+        sumNanos.add(nanos);
+        count.increment();
+    }
+
+    /** Observe the time since startNanos (from System.nanoTime()); returns now, to chain consecutive phases. */
+    public long since(long startNanos) {
+        long now = System.nanoTime();
+        observeNanos(now - startNanos);
+        return now;
+    }
+
+    /** Per-bucket (non-cumulative) counts, +Inf last. */
+    long[] bucketCounts() {
+        long[] out = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) out[i] = buckets[i].sum();
+        return out;
+    }
+
+    double sumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+
+    long count() {
+        return count.sum();
+    }
+}
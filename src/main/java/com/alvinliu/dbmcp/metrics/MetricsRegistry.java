@@ -0,0 +1,181 @@
+package com.alvinliu.dbmcp.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * In-process metrics: labelled histograms recorded by the server, plus gauges/counters read on demand from
+ * suppliers (pool counts, cache counters). {@link #writeText(Appendable)} renders the Prometheus text exposition
+ * format; {@link #startFileDump(Path, int)} rewrites it to a file periodically for a local scraper.
+ */
+public final class MetricsRegistry {
+
+    private static final class Family {
+        final String name;
+        final String help;
+        final String type;
+        /** Histograms by label string (e.g. tool="execute_sql",phase="execute"); unused for gauges. */
+        final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+        /** Gauge/counter samples by label string; null for histograms. */
+        final Supplier<Map<String, ? extends Number>> samples;
+
+        Family(String name, String help, String type, Supplier<Map<String, ? extends Number>> samples) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.samples = samples;
+        }
+    }
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService dumper;
+
+    /** Histogram for the given name and labels (key/value pairs), created on first use. */
+    public Histogram histogram(String name, String help, String... labels) {
+        Family f = families.computeIfAbsent(name, n -> new Family(n, help, "histogram", null));
+        return f.histograms.computeIfAbsent(labels(labels), k -> new Histogram());
+    }
+
+    /** Gauge whose samples (label string to value, see {@link #labels}) are read at each exposition. */
+    public void gauge(String name, String help, Supplier<Map<String, ? extends Number>> samples) {
+        families.put(name, new Family(name, help, "gauge", samples));
+    }
+
+    /** Monotonic counter read from a supplier at each exposition (name should end in _total). */
+    public void counter(String name, String help, Supplier<Map<String, ? extends Number>> samples) {
+        families.put(name, new Family(name, help, "counter", samples));
+    }
+
+    /** Label string for key/value pairs: labels("tool", "x") is tool="x". Values are escaped. */
+    public static String labels(String... kv) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i + 1 < kv.length; i += 2) {
+            if (sb.length() > 0) sb.append(',');
+            sb.append(kv[i]).append("=\"");
+            String v = kv[i + 1] != null ? kv[i + 1] : "";
+            for (int j = 0; j < v.length(); j++) {
+                char c = v.charAt(j);
+                if (c == '\\' || c == '"') sb.append('\\').append(c);
+                else if (c == '\n') sb.append("\\n");
+                else sb.append(c);
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    /** Prometheus text exposition of all metrics, families sorted by name. */
+    public void writeText(Appendable out) throws IOException {
+        for (Family f : new TreeMap<>(families).values()) {
+            out.append("# HELP ").append(f.name).append(' ').append(f.help).append('\n');
+            out.append("# TYPE ").append(f.name).append(' ').append(f.type).append('\n');
+            if (f.samples != null) {
+                Map<String, ? extends Number> samples;
+                try {
+                    samples = f.samples.get();
+                } catch (RuntimeException e) {
+                    continue; // source unavailable right now (e.g. pool closed)
+                }
+                for (Map.Entry<String, ? extends Number> e : new TreeMap<>(samples).entrySet()) {
+                    sample(out, f.name, e.getKey(), null, format(e.getValue().doubleValue()));
+                }
+            } else {
+                for (Map.Entry<String, Histogram> e : new TreeMap<>(f.histograms).entrySet()) {
+                    writeHistogram(out, f.name, e.getKey(), e.getValue());
+                }
+            }
+        }
+    }
+
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeText(sb);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder does not throw
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Rewrite the exposition to file every intervalSeconds (written to a temp file, then moved into place so a
+     * scraper never reads a partial file). Runs on a daemon thread until {@link #close()}.
+     */
+    public synchronized void startFileDump(Path file, int intervalSeconds) {
+        if (dumper != null) return;
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-mcp-metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleWithFixedDelay(() -> dumpTo(file), 0, Math.max(1, intervalSeconds), TimeUnit.SECONDS);
+    }
+
+    /** Write the exposition to file once (best effort). */
+    public void dumpTo(Path file) {
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            if (dir != null) Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writeText(w);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException ignored) {
+            // best effort, like the audit log
+        }
+    }
+
+    /** Stop the file dump (writing one last snapshot is left to the caller). */
+    public synchronized void close() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    private static void writeHistogram(Appendable out, String name, String labels, Histogram h) throws IOException {
+        long[] counts = h.bucketCounts();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            String le = i < Histogram.BOUNDS.length ? format(Histogram.BOUNDS[i]) : "+Inf";
+            sample(out, name + "_bucket", labels, "le=\"" + le + "\"", Long.toString(cumulative));
+        }
+        sample(out, name + "_sum", labels, null, format(h.sumSeconds()));
+        sample(out, name + "_count", labels, null, Long.toString(h.count()));
+    }
+
+    private static void sample(Appendable out, String name, String labels, String extra, String value) throws IOException {
+        out.append(name);
+        boolean hasLabels = labels != null && !labels.isEmpty();
+        if (hasLabels || extra != null) {
+            out.append('{');
+            if (hasLabels) out.append(labels);
+            if (extra != null) {
+                if (hasLabels) out.append(',');
+                out.append(extra);
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String format(double v) {
+        if (v == Math.rint(v) && !Double.isInfinite(v) && Math.abs(v) < 1e15) return Long.toString((long) v);
+        if (Double.isNaN(v) || Double.isInfinite(v)) return Double.isNaN(v) ? "NaN" : (v > 0 ? "+Inf" : "-Inf");
+        return BigDecimal.valueOf(v).stripTrailingZeros().toPlainString();
+    }
+}